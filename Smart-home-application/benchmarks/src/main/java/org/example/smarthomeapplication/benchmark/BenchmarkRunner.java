@@ -0,0 +1,135 @@
+package org.example.smarthomeapplication.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Runs the benchmarks with the GC profiler and writes one CSV line per benchmark and parameter set,
+ * so results can be compared with a plain diff.
+ *
+ * Usage: java -cp target/benchmarks.jar org.example.smarthomeapplication.benchmark.BenchmarkRunner [--record] [regex]
+ * Without --record the results go to target/results.csv and are compared with baseline/results.csv
+ * if there is one; with --record they become the baseline. Scores only compare on the same JDK and
+ * hardware, so record the baseline on the machine later runs are made on.
+ */
+public class BenchmarkRunner {
+    private static final Path BASELINE = Paths.get("baseline", "results.csv");
+    private static final Path LATEST = Paths.get("target", "results.csv");
+    private static final String HEADER = "benchmark,params,mode,score,error,unit,alloc_bytes_per_op";
+
+    public static void main(String[] args) throws RunnerException, IOException {
+        boolean record = false;
+        String include = BenchmarkRunner.class.getPackageName() + ".*Benchmark.*";
+        for (String arg : args) {
+            if (arg.equals("--record")) {
+                record = true;
+            } else {
+                include = arg;
+            }
+        }
+
+        Options options = new OptionsBuilder()
+                .include(include)
+                .addProfiler(GCProfiler.class)
+                .build();
+        Collection<RunResult> results = new Runner(options).run();
+
+        Map<String, String> lines = toCsv(results);
+        Path output = record ? BASELINE : LATEST;
+        write(output, lines);
+        System.out.println("Results written to " + output.toAbsolutePath());
+
+        if (!record && Files.exists(BASELINE)) {
+            compare(read(BASELINE), lines);
+        } else if (!record) {
+            System.out.println("No baseline to compare with; run again with --record to make " + BASELINE);
+        }
+    }
+
+    private static Map<String, String> toCsv(Collection<RunResult> results) {
+        Map<String, String> lines = new TreeMap<>();
+        for (RunResult run : results) {
+            Result<?> primary = run.getPrimaryResult();
+            Result<?> alloc = run.getSecondaryResults().get("gc.alloc.rate.norm");
+            String benchmark = run.getParams().getBenchmark();
+            String params = paramsOf(run);
+            String key = benchmark + "," + params;
+            lines.put(key, String.join(",",
+                    key,
+                    run.getParams().getMode().shortLabel(),
+                    String.format(Locale.ROOT, "%.3f", primary.getScore()),
+                    String.format(Locale.ROOT, "%.3f", primary.getScoreError()),
+                    primary.getScoreUnit(),
+                    alloc != null ? String.format(Locale.ROOT, "%.1f", alloc.getScore()) : ""));
+        }
+        return lines;
+    }
+
+    private static String paramsOf(RunResult run) {
+        List<String> params = new ArrayList<>();
+        for (String name : run.getParams().getParamsKeys()) {
+            params.add(name + "=" + run.getParams().getParam(name));
+        }
+        return String.join(";", params);
+    }
+
+    private static void write(Path path, Map<String, String> lines) throws IOException {
+        Files.createDirectories(path.getParent());
+        List<String> content = new ArrayList<>();
+        content.add(HEADER);
+        content.addAll(lines.values());
+        Files.write(path, content);
+    }
+
+    private static Map<String, String> read(Path path) throws IOException {
+        Map<String, String> lines = new LinkedHashMap<>();
+        for (String line : Files.readAllLines(path)) {
+            if (line.isBlank() || line.equals(HEADER)) continue;
+            String[] fields = line.split(",", -1);
+            lines.put(fields[0] + "," + fields[1], line);
+        }
+        return lines;
+    }
+
+    // Prints score and allocation change per benchmark; for throughput higher is better, otherwise lower
+    private static void compare(Map<String, String> baseline, Map<String, String> latest) {
+        System.out.println();
+        System.out.println("Change against " + BASELINE + ":");
+        for (Map.Entry<String, String> entry : latest.entrySet()) {
+            String before = baseline.get(entry.getKey());
+            if (before == null) {
+                System.out.println("  " + entry.getKey() + ": new");
+                continue;
+            }
+            String[] old = before.split(",", -1);
+            String[] now = entry.getValue().split(",", -1);
+            System.out.printf(Locale.ROOT, "  %s: score %s, alloc %s%n", entry.getKey(),
+                    percentChange(old[3], now[3]), percentChange(old[6], now[6]));
+        }
+    }
+
+    private static String percentChange(String before, String after) {
+        if (before.isEmpty() || after.isEmpty()) return "n/a";
+        double old = Double.parseDouble(before);
+        double now = Double.parseDouble(after);
+        if (old == 0) return now == 0 ? "+0.0%" : "n/a";
+        return String.format(Locale.ROOT, "%+.1f%%", (now - old) / old * 100);
+    }
+}
@@ -0,0 +1,64 @@
+package org.example.smarthomeapplication.benchmark;
+
+import org.example.smarthomeapplication.model.command.DeviceCommand;
+import org.example.smarthomeapplication.model.device.SmartLight;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of handling a light command from text versus from a pre-parsed DeviceCommand.
+ * Run with -prof gc to compare the allocation rate per command (gc.alloc.rate.norm).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class DeviceCommandBenchmark {
+    @Param({"onOff", "brightness", "color", "mixed"})
+    public String commandMix;
+
+    private String[] commands;
+    private SmartLight light;
+    private DeviceCommand[] parsed;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        commands = switch (commandMix) {
+            case "onOff" -> new String[]{"on", "off"};
+            case "brightness" -> new String[]{"brightness:40", "brightness:90", "brightness:abc"};
+            case "color" -> new String[]{"color:blue", "color:White", "color:teal"};
+            default -> new String[]{"on", "brightness:40", "color:blue", "brightness:90", "color:white", "off"};
+        };
+        light = new SmartLight("bench-light");
+        parsed = new DeviceCommand[commands.length];
+        for (int i = 0; i < commands.length; i++) {
+            parsed[i] = DeviceCommand.parse(commands[i]);
+        }
+    }
+
+    private int nextIndex() {
+        int index = next;
+        next = index + 1 == commands.length ? 0 : index + 1;
+        return index;
+    }
+
+    @Benchmark
+    public DeviceCommand parse() {
+        return DeviceCommand.parse(commands[nextIndex()]);
+    }
+
+    @Benchmark
+    public String changeStateFromText() {
+        light.changeState(commands[nextIndex()]);
+        return light.getColor();
+    }
+
+    @Benchmark
+    public boolean executeParsed() {
+        return light.execute(parsed[nextIndex()]);
+    }
+}
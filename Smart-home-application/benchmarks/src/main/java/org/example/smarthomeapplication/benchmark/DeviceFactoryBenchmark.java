@@ -0,0 +1,29 @@
+package org.example.smarthomeapplication.benchmark;
+
+import org.example.smarthomeapplication.Factory.SmartDeviceFactory;
+import org.example.smarthomeapplication.model.device.SmartDevice;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Device creation through the factory; no device touches the disk until it is first used
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class DeviceFactoryBenchmark {
+
+    @Param({"light", "thermostat", "voice assistant", "camera"})
+    public String type;
+
+    private final SmartDeviceFactory factory = new SmartDeviceFactory();
+
+    @Benchmark
+    public SmartDevice createDevice() {
+        return factory.createDevice(type, "bench-device");
+    }
+}
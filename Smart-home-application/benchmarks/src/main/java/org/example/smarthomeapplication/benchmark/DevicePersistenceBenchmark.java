@@ -0,0 +1,77 @@
+package org.example.smarthomeapplication.benchmark;
+
+import org.example.smarthomeapplication.model.command.DeviceCommand;
+import org.example.smarthomeapplication.model.device.SmartDevice;
+import org.example.smarthomeapplication.model.device.SmartLight;
+import org.example.smarthomeapplication.model.device.SmartThermostat;
+import org.example.smarthomeapplication.viewmodel.DevicePersistence;
+import org.example.smarthomeapplication.viewmodel.SmartHomeController;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Startup restore: reading the snapshot of every device and replaying the journal written after it,
+ * then registering the devices with a controller. The target is under a second for 100k devices.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DevicePersistenceBenchmark {
+
+    @Param({"10000", "100000"})
+    public int deviceCount;
+
+    // Changes journaled after the snapshot
+    @Param({"0", "10000"})
+    public int journalTail;
+
+    private Path directory;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("device-persistence-bench");
+        List<SmartDevice> devices = new ArrayList<>(deviceCount);
+        for (int i = 0; i < deviceCount; i++) {
+            devices.add(i % 4 == 0 ? new SmartThermostat("thermostat-" + i) : new SmartLight("light-" + i));
+        }
+
+        try (DevicePersistence persistence = DevicePersistence.open(directory)) {
+            SmartHomeController controller = new SmartHomeController(deviceCount);
+            controller.addDevices(devices);
+            controller.enablePersistence(persistence);
+            persistence.snapshot(controller.getDevices());
+            for (int i = 0; i < journalTail; i++) {
+                controller.executeCommand("light-" + (i * 4 + 1) % deviceCount, DeviceCommand.brightness(i % 101));
+            }
+            persistence.sync();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public int restore() throws IOException {
+        try (DevicePersistence persistence = DevicePersistence.open(directory)) {
+            SmartHomeController controller = new SmartHomeController(deviceCount);
+            return controller.enablePersistence(persistence);
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package org.example.smarthomeapplication.benchmark;
+
+import org.example.smarthomeapplication.model.device.SmartDevice;
+import org.example.smarthomeapplication.model.device.SmartLight;
+import org.example.smarthomeapplication.viewmodel.DeviceRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Multi-threaded throughput of the device registry against the HashMap the controller used before.
+ * A plain HashMap can't take concurrent writers at all, so the mixed read/write group compares
+ * against the synchronized wrapper, which is the cheapest correct version of the old map.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DeviceRegistryBenchmark {
+
+    interface Store {
+        SmartDevice get(String name);
+
+        SmartDevice putIfAbsent(SmartDevice device);
+
+        SmartDevice remove(String name);
+    }
+
+    public abstract static class Devices {
+        String[] names;
+        SmartDevice[] spare;
+        Store store;
+
+        void fill(String impl, int deviceCount) {
+            names = new String[deviceCount];
+            spare = new SmartDevice[deviceCount];
+            for (int i = 0; i < deviceCount; i++) {
+                names[i] = "light-" + i;
+                spare[i] = new SmartLight(names[i]);
+            }
+            store = createStore(impl, deviceCount);
+            for (SmartDevice device : spare) {
+                store.putIfAbsent(device);
+            }
+        }
+
+        String randomName() {
+            return names[ThreadLocalRandom.current().nextInt(names.length)];
+        }
+
+        SmartDevice randomDevice() {
+            return spare[ThreadLocalRandom.current().nextInt(spare.length)];
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class ReadOnlyDevices extends Devices {
+        @Param({"hashMap", "synchronizedMap", "registry"})
+        public String impl;
+
+        @Param({"1000", "50000"})
+        public int deviceCount;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            fill(impl, deviceCount);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class SharedDevices extends Devices {
+        @Param({"synchronizedMap", "registry"})
+        public String impl;
+
+        @Param({"1000", "50000"})
+        public int deviceCount;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            fill(impl, deviceCount);
+        }
+    }
+
+    static Store createStore(String impl, int capacity) {
+        switch (impl) {
+            case "hashMap":
+                return mapStore(new HashMap<>(capacity));
+            case "synchronizedMap":
+                return mapStore(Collections.synchronizedMap(new HashMap<>(capacity)));
+            case "registry":
+                DeviceRegistry registry = new DeviceRegistry(capacity);
+                return new Store() {
+                    public SmartDevice get(String name) {
+                        return registry.get(name);
+                    }
+
+                    public SmartDevice putIfAbsent(SmartDevice device) {
+                        return registry.addIfAbsent(device);
+                    }
+
+                    public SmartDevice remove(String name) {
+                        return registry.remove(name);
+                    }
+                };
+            default:
+                throw new IllegalArgumentException("Unknown store: " + impl);
+        }
+    }
+
+    private static Store mapStore(Map<String, SmartDevice> map) {
+        return new Store() {
+            public SmartDevice get(String name) {
+                return map.get(name);
+            }
+
+            public SmartDevice putIfAbsent(SmartDevice device) {
+                return map.putIfAbsent(device.getDeviceName(), device);
+            }
+
+            public SmartDevice remove(String name) {
+                return map.remove(name);
+            }
+        };
+    }
+
+    // Read-only lookups: the only workload a plain HashMap can safely run from several threads
+    @Benchmark
+    @Threads(8)
+    public SmartDevice lookup(ReadOnlyDevices devices) {
+        return devices.store.get(devices.randomName());
+    }
+
+    // 6 readers and 2 writers adding and removing devices, like timer threads racing the UI
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(6)
+    public SmartDevice mixedRead(SharedDevices devices) {
+        return devices.store.get(devices.randomName());
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(2)
+    public SmartDevice mixedWrite(SharedDevices devices) {
+        SmartDevice device = devices.randomDevice();
+        if (devices.store.remove(device.getDeviceName()) == null) {
+            return devices.store.putIfAbsent(device);
+        }
+        return device;
+    }
+}
@@ -0,0 +1,51 @@
+package org.example.smarthomeapplication.benchmark;
+
+import org.example.smarthomeapplication.model.device.SmartDevice;
+import org.example.smarthomeapplication.model.device.SmartThermostat;
+import org.example.smarthomeapplication.simulation.ThermostatSimulationEngine;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One headless engine tick over a large fleet, split across all cores
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class FleetSimulationBenchmark {
+    private static final String[] MODES = {"cooling", "heating", "auto", "off"};
+
+    @Param({"100000", "1000000"})
+    public int deviceCount;
+
+    private ThermostatSimulationEngine engine;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // Generous budget so the benchmark measures a full tick rather than the cut-off
+        engine = new ThermostatSimulationEngine(1000, 60_000, Runtime.getRuntime().availableProcessors());
+        List<SmartDevice> fleet = new ArrayList<>(deviceCount);
+        for (int i = 0; i < deviceCount; i++) {
+            SmartThermostat thermostat = new SmartThermostat("thermostat-" + i);
+            thermostat.changeState(MODES[i % MODES.length]);
+            fleet.add(thermostat);
+        }
+        engine.registerAll(fleet);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        engine.shutdown();
+    }
+
+    @Benchmark
+    public ThermostatSimulationEngine.TickStats tick() {
+        return engine.tick();
+    }
+}
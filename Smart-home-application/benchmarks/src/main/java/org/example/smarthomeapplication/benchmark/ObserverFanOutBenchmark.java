@@ -0,0 +1,63 @@
+package org.example.smarthomeapplication.benchmark;
+
+import org.example.smarthomeapplication.event.AsyncEventBus;
+import org.example.smarthomeapplication.model.device.SmartLight;
+import org.example.smarthomeapplication.user.Observer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost to the device of notifying its observers, delivered inline or through the async event bus
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ObserverFanOutBenchmark {
+
+    @Param({"0", "1", "10", "100"})
+    public int observerCount;
+
+    @Param({"sync", "async"})
+    public String dispatch;
+
+    private SmartLight light;
+    private AsyncEventBus bus;
+    private boolean active;
+    private volatile String lastMessage;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        light = new SmartLight("bench-light");
+        for (int i = 0; i < observerCount; i++) {
+            light.addObserver(new Observer() {
+                @Override
+                public void update(String message) {
+                    lastMessage = message;
+                }
+            });
+        }
+        if (dispatch.equals("async")) {
+            bus = new AsyncEventBus();
+            light.setEventBus(bus);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (bus != null) {
+            bus.shutdown();
+        }
+    }
+
+    // setActive is the one public entry point that does nothing but notify
+    @Benchmark
+    public boolean notifyObservers() {
+        active = !active;
+        light.setActive(active);
+        return light.isActive();
+    }
+}
@@ -0,0 +1,44 @@
+package org.example.smarthomeapplication.benchmark;
+
+import org.example.smarthomeapplication.model.device.SmartThermostat;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One simulation tick over a fleet of thermostats spread across cooling, heating, auto and off
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ThermostatSimulationBenchmark {
+    private static final String[] MODES = {"cooling", "heating", "auto", "off"};
+
+    @Param({"1", "1000", "100000"})
+    public int deviceCount;
+
+    private SmartThermostat[] thermostats;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        thermostats = new SmartThermostat[deviceCount];
+        for (int i = 0; i < deviceCount; i++) {
+            thermostats[i] = new SmartThermostat("thermostat-" + i);
+            thermostats[i].changeState("target:" + (18 + i % 8));
+            thermostats[i].changeState(MODES[i % MODES.length]);
+        }
+    }
+
+    @Benchmark
+    public double tick() {
+        double sum = 0;
+        for (SmartThermostat thermostat : thermostats) {
+            thermostat.simulateTemperatureChanges();
+            sum += thermostat.getCurrentTemperature();
+        }
+        return sum;
+    }
+}
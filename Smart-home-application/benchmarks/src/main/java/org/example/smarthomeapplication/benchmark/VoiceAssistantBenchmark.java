@@ -0,0 +1,49 @@
+package org.example.smarthomeapplication.benchmark;
+
+import org.example.smarthomeapplication.model.device.SmartVoiceAssistant;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Command interpretation, which runs for every command a voice assistant hears
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class VoiceAssistantBenchmark {
+
+    @Param({"temperature", "time", "security", "weather", "smalltalk", "fallback", "mixed"})
+    public String commandMix;
+
+    private SmartVoiceAssistant assistant;
+    private String[] commands;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        assistant = new SmartVoiceAssistant("bench-assistant");
+        commands = switch (commandMix) {
+            case "temperature" -> new String[]{"What is the temperature inside?"};
+            case "time" -> new String[]{"What time is it?"};
+            case "security" -> new String[]{"Please arm the security system"};
+            case "weather" -> new String[]{"How is the weather tomorrow?"};
+            case "smalltalk" -> new String[]{"Thank you very much"};
+            case "fallback" -> new String[]{"Sing me a song about the sea"};
+            default -> new String[]{
+                    "What is the temperature inside?", "What time is it?", "Please arm the security system",
+                    "How is the weather tomorrow?", "Thank you very much", "Sing me a song about the sea"
+            };
+        };
+    }
+
+    @Benchmark
+    public String interpretCommand() {
+        String command = commands[next];
+        next = next + 1 == commands.length ? 0 : next + 1;
+        return assistant.interpretCommand(command);
+    }
+}
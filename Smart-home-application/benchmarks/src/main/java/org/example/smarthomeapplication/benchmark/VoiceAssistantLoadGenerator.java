@@ -0,0 +1,235 @@
+package org.example.smarthomeapplication.benchmark;
+
+import org.example.smarthomeapplication.model.device.SmartVoiceAssistant;
+import org.example.smarthomeapplication.model.voice.CommandHistory;
+import org.example.smarthomeapplication.model.voice.LatencyHistogram;
+import org.example.smarthomeapplication.user.Observer;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Headless load test for voice assistants: drives many SmartVoiceAssistant instances with commands arriving
+ * as a Poisson process and reports the latency from processCommand to the "Response:" notification.
+ * <p>
+ * The load is open-loop: arrivals follow their own schedule whether or not earlier commands have been
+ * answered, and latency is measured from when a command was due rather than when it was actually sent,
+ * so a stalled sender shows up in the numbers instead of hiding them (coordinated omission).
+ *
+ * Usage: java -cp target/benchmarks.jar org.example.smarthomeapplication.benchmark.VoiceAssistantLoadGenerator
+ *   [--assistants 1000] [--rate 2000] [--duration 30] [--warmup 5] [--delay 800] [--seed 42]
+ *   [--mix temperature=1,time=1,security=1,weather=1,smalltalk=1,fallback=1]
+ * Rate is commands per second across all assistants; duration and warmup are in seconds, delay in milliseconds.
+ */
+public class VoiceAssistantLoadGenerator {
+    private static final Map<String, String> COMMANDS = new LinkedHashMap<>();
+    private static final double[] REPORTED_PERCENTILES = {50, 75, 90, 99, 99.9, 99.99, 100};
+    private static final long DRAIN_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+    static {
+        COMMANDS.put("temperature", "What is the temperature inside?");
+        COMMANDS.put("time", "What time is it?");
+        COMMANDS.put("security", "Please arm the security system");
+        COMMANDS.put("weather", "How is the weather tomorrow?");
+        COMMANDS.put("smalltalk", "Thank you very much");
+        COMMANDS.put("fallback", "Sing me a song about the sea");
+    }
+
+    private final int assistantCount;
+    private final double ratePerSecond;
+    private final long durationNanos;
+    private final long warmupNanos;
+    private final long responseDelayMillis;
+    private final long seed;
+    private final String[] mixCommands; // commands repeated by weight, picked uniformly
+
+    private final LatencyHistogram latency = new LatencyHistogram(TimeUnit.MINUTES.toNanos(10), 10);
+    private final AtomicLong completed = new AtomicLong();
+    private long sent;
+    private long rejected;
+    private long measured;
+
+    public VoiceAssistantLoadGenerator(int assistantCount, double ratePerSecond, long durationSeconds,
+                                       long warmupSeconds, long responseDelayMillis, long seed,
+                                       Map<String, Integer> mix) {
+        if (assistantCount <= 0 || ratePerSecond <= 0 || durationSeconds <= 0 || warmupSeconds < 0) {
+            throw new IllegalArgumentException("Assistants, rate and duration must be positive");
+        }
+        this.assistantCount = assistantCount;
+        this.ratePerSecond = ratePerSecond;
+        this.durationNanos = TimeUnit.SECONDS.toNanos(durationSeconds);
+        this.warmupNanos = TimeUnit.SECONDS.toNanos(warmupSeconds);
+        this.responseDelayMillis = responseDelayMillis;
+        this.seed = seed;
+
+        List<String> weighted = new ArrayList<>();
+        for (Map.Entry<String, Integer> entry : mix.entrySet()) {
+            String command = COMMANDS.get(entry.getKey());
+            if (command == null) {
+                throw new IllegalArgumentException("Unknown command type " + entry.getKey() + ", expected one of "
+                        + COMMANDS.keySet());
+            }
+            for (int i = 0; i < entry.getValue(); i++) {
+                weighted.add(command);
+            }
+        }
+        if (weighted.isEmpty()) {
+            throw new IllegalArgumentException("Command mix is empty");
+        }
+        this.mixCommands = weighted.toArray(String[]::new);
+    }
+
+    public static void main(String[] args) {
+        int assistants = 1000;
+        double rate = 2000;
+        long duration = 30;
+        long warmup = 5;
+        long delay = 800;
+        long seed = 42;
+        Map<String, Integer> mix = new LinkedHashMap<>();
+        for (String type : COMMANDS.keySet()) {
+            mix.put(type, 1);
+        }
+
+        for (int i = 0; i < args.length; i++) {
+            String value = i + 1 < args.length ? args[i + 1] : "";
+            switch (args[i]) {
+                case "--assistants" -> assistants = Integer.parseInt(value);
+                case "--rate" -> rate = Double.parseDouble(value);
+                case "--duration" -> duration = Long.parseLong(value);
+                case "--warmup" -> warmup = Long.parseLong(value);
+                case "--delay" -> delay = Long.parseLong(value);
+                case "--seed" -> seed = Long.parseLong(value);
+                case "--mix" -> mix = parseMix(value);
+                default -> {
+                    System.err.println("Unknown option " + args[i]);
+                    System.exit(1);
+                }
+            }
+            i++;
+        }
+
+        new VoiceAssistantLoadGenerator(assistants, rate, duration, warmup, delay, seed, mix).run();
+    }
+
+    public void run() {
+        List<SmartVoiceAssistant> assistants = new ArrayList<>(assistantCount);
+        List<ConcurrentLinkedDeque<Long>> outstanding = new ArrayList<>(assistantCount);
+        long start = System.nanoTime();
+        long measureFrom = start + warmupNanos;
+
+        for (int i = 0; i < assistantCount; i++) {
+            SmartVoiceAssistant assistant = new SmartVoiceAssistant("load-" + i,
+                    new CommandHistory(CommandHistory.DEFAULT_CAPACITY));
+            assistant.setResponseDelay(responseDelayMillis);
+
+            // Each assistant answers in order, so a response always belongs to its oldest outstanding command
+            ConcurrentLinkedDeque<Long> dueTimes = new ConcurrentLinkedDeque<>();
+            assistant.addObserver(new Observer() {
+                @Override
+                public void update(String message) {
+                    if (!message.contains(": Response: ")) return;
+                    Long due = dueTimes.poll();
+                    if (due == null) return;
+                    if (due >= measureFrom) {
+                        latency.record(System.nanoTime() - due);
+                    }
+                    completed.incrementAndGet();
+                }
+            });
+            assistants.add(assistant);
+            outstanding.add(dueTimes);
+        }
+
+        System.out.printf(Locale.ROOT, "Driving %d assistants at %.0f commands/s for %ds (+%ds warmup), %dms response delay%n",
+                assistantCount, ratePerSecond, TimeUnit.NANOSECONDS.toSeconds(durationNanos),
+                TimeUnit.NANOSECONDS.toSeconds(warmupNanos), responseDelayMillis);
+
+        Random random = new Random(seed);
+        double meanGapNanos = 1e9 / ratePerSecond;
+        long end = measureFrom + durationNanos;
+        long due = start;
+        while (true) {
+            // Exponential gaps between arrivals make a Poisson process
+            due += (long) (-Math.log(1 - random.nextDouble()) * meanGapNanos);
+            if (due >= end) break;
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+
+            int target = random.nextInt(assistantCount);
+            SmartVoiceAssistant assistant = assistants.get(target);
+            ConcurrentLinkedDeque<Long> dueTimes = outstanding.get(target);
+            dueTimes.add(due);
+            long rejectedBefore = assistant.getRejectedCommandCount();
+            assistant.processCommand(mixCommands[random.nextInt(mixCommands.length)]);
+            if (assistant.getRejectedCommandCount() != rejectedBefore) {
+                // Turned away: it will never be answered. Only this thread submits, so it is still the newest.
+                dueTimes.pollLast();
+                rejected++;
+            } else if (due >= measureFrom) {
+                measured++;
+            }
+            sent++;
+        }
+
+        long drainDeadline = System.nanoTime() + DRAIN_TIMEOUT_NANOS;
+        while (completed.get() < sent - rejected && System.nanoTime() < drainDeadline) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(50));
+        }
+
+        LatencyHistogram service = new LatencyHistogram();
+        for (SmartVoiceAssistant assistant : assistants) {
+            service.add(assistant.getCommandLatency());
+        }
+        report(service);
+    }
+
+    private void report(LatencyHistogram service) {
+        long unanswered = sent - rejected - completed.get();
+        double measuredSeconds = durationNanos / 1e9;
+        System.out.println();
+        System.out.printf(Locale.ROOT, "Sent %d commands, %d turned away by full queues, %d unanswered after draining%n",
+                sent, rejected, unanswered);
+        System.out.printf(Locale.ROOT, "Measured %d commands, %.1f/s offered%n", measured, measured / measuredSeconds);
+        System.out.println();
+        System.out.println("Latency from when each command was due to its response (ms):");
+        printPercentiles(latency);
+        System.out.println();
+        System.out.println("Latency inside the assistants, from processCommand to response, warmup included (ms):");
+        printPercentiles(service);
+    }
+
+    private static void printPercentiles(LatencyHistogram histogram) {
+        for (double percentile : REPORTED_PERCENTILES) {
+            System.out.printf(Locale.ROOT, "  %-8s %10.2f%n", percentile == 100 ? "max" : "p" + format(percentile),
+                    histogram.valueAtPercentile(percentile) / 1e6);
+        }
+        System.out.printf(Locale.ROOT, "  %-8s %10.2f   (n=%d)%n", "mean", histogram.getMean() / 1e6, histogram.getCount());
+        if (histogram.getClampedCount() > 0) {
+            System.out.println("  " + histogram.getClampedCount() + " values were above the histogram's range");
+        }
+    }
+
+    private static String format(double percentile) {
+        return percentile == Math.rint(percentile) ? Long.toString((long) percentile) : Double.toString(percentile);
+    }
+
+    private static Map<String, Integer> parseMix(String text) {
+        Map<String, Integer> mix = new LinkedHashMap<>();
+        for (String part : text.split(",")) {
+            String[] typeAndWeight = part.split("=");
+            mix.put(typeAndWeight[0].trim(), typeAndWeight.length > 1 ? Integer.parseInt(typeAndWeight[1].trim()) : 1);
+        }
+        return mix;
+    }
+}
@@ -2,13 +2,32 @@ package org.example.smarthomeapplication.Factory;
 
 import org.example.smarthomeapplication.model.device.*;
 
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
 public class SmartDeviceFactory {
+    private final Path dataDirectory;
+
+    /**
+     * Devices keep their files in the working directory
+     */
+    public SmartDeviceFactory() {
+        this(Paths.get(""));
+    }
+
+    /**
+     * @param dataDirectory where voice assistants keep their command history
+     */
+    public SmartDeviceFactory(Path dataDirectory) {
+        this.dataDirectory = dataDirectory;
+    }
+
     public SmartDevice createDevice(String type, String name) {
         return switch (type.toLowerCase()) {
             case "light" -> new SmartLight(name);
             case "thermostat" -> new SmartThermostat(name);
             case "camera" -> new SmartCamera(name);
-            case "voice assistant" -> new SmartVoiceAssistant(name);
+            case "voice assistant" -> new SmartVoiceAssistant(name, dataDirectory);
             default -> throw new IllegalArgumentException("Unknown device type: " + type);
         };
     }
@@ -0,0 +1,249 @@
+package org.example.smarthomeapplication.event;
+
+import org.example.smarthomeapplication.user.Observer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Delivers device notifications to observers on worker threads.
+ * Every observer gets its own bounded ring buffer; publishing only enqueues, so a slow
+ * observer never holds up the device that raised the event. Each observer is drained by
+ * at most one worker at a time, which keeps its events in publish order.
+ * <p>
+ * Observers are subscribed once for each device they watch, and their queue and counters are
+ * released when the last of those subscriptions is dropped.
+ */
+public class AsyncEventBus {
+    public static final int DEFAULT_QUEUE_CAPACITY = 1024;
+    public static final int DEFAULT_BATCH_SIZE = 64;
+
+    private final int queueCapacity;
+    private final int batchSize;
+    private final OverflowPolicy overflowPolicy;
+    private final ExecutorService workers;
+    private final Consumer<String> onError;
+    private final Map<Observer, Subscription> subscriptions = new ConcurrentHashMap<>();
+
+    public AsyncEventBus() {
+        this(DEFAULT_QUEUE_CAPACITY, DEFAULT_BATCH_SIZE, OverflowPolicy.DROP_OLDEST,
+                Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+    }
+
+    public AsyncEventBus(int queueCapacity, int batchSize, OverflowPolicy overflowPolicy, int workerThreads) {
+        this(queueCapacity, batchSize, overflowPolicy, workerThreads, System.err::println);
+    }
+
+    /**
+     * @param onError told when an observer throws while handling its events, on the worker thread
+     */
+    public AsyncEventBus(int queueCapacity, int batchSize, OverflowPolicy overflowPolicy, int workerThreads,
+                         Consumer<String> onError) {
+        if (queueCapacity <= 0 || batchSize <= 0 || workerThreads <= 0) {
+            throw new IllegalArgumentException("Capacity, batch size and worker count must be positive");
+        }
+        this.queueCapacity = queueCapacity;
+        this.batchSize = batchSize;
+        this.overflowPolicy = overflowPolicy;
+        this.onError = onError;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(workerThreads, runnable -> {
+            Thread thread = new Thread(runnable, "event-bus-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts delivering to the observer; call once for every device it watches
+     */
+    public void subscribe(Observer observer) {
+        subscriptions.compute(observer, (key, subscription) -> {
+            Subscription subscribed = subscription != null ? subscription : new Subscription(observer);
+            subscribed.subscribers++;
+            return subscribed;
+        });
+    }
+
+    /**
+     * Drops one subscription of the observer. Once none is left, delivery stops, events still queued
+     * for it are discarded and its queue is released.
+     */
+    public void unsubscribe(Observer observer) {
+        subscriptions.computeIfPresent(observer, (key, subscription) -> {
+            if (--subscription.subscribers > 0) return subscription;
+            subscription.queue.clear();
+            return null;
+        });
+    }
+
+    /**
+     * Queues the message for the observer and schedules a drain if none is pending.
+     * Messages for an observer that isn't subscribed are dropped.
+     * With the BLOCK policy this waits for room; avoid it when publishing from an observer callback.
+     */
+    public void publish(Observer observer, String message) {
+        publish(observer, new Event(List.of(message), System.nanoTime()));
+    }
+
+    /**
+     * Queues the messages as one event, which reaches the observer in a single updateBatch call.
+     * The messages take one place in the queue and are dropped together on overflow.
+     */
+    public void publishBatch(Observer observer, List<String> messages) {
+        if (messages.isEmpty()) return;
+        publish(observer, new Event(List.copyOf(messages), System.nanoTime()));
+    }
+
+    private void publish(Observer observer, Event event) {
+        Subscription subscription = subscriptions.get(observer);
+        if (subscription != null && subscription.offer(event)) {
+            subscription.scheduleDrain();
+        }
+    }
+
+    public Stats getStats(Observer observer) {
+        Subscription subscription = subscriptions.get(observer);
+        return subscription != null ? subscription.stats() : new Stats(0, 0, 0, 0, 0, 0);
+    }
+
+    public Map<Observer, Stats> getAllStats() {
+        Map<Observer, Stats> stats = new HashMap<>();
+        for (Subscription subscription : subscriptions.values()) {
+            stats.put(subscription.observer, subscription.stats());
+        }
+        return stats;
+    }
+
+    /**
+     * Stops the worker threads after the events already scheduled have been delivered
+     */
+    public void shutdown() {
+        workers.shutdown();
+        try {
+            if (!workers.awaitTermination(5, TimeUnit.SECONDS)) {
+                workers.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            workers.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private record Event(List<String> messages, long publishedAt) {
+    }
+
+    /**
+     * Delivery counters for one observer.
+     * Lag is the time between publishing an event and handing it to the observer.
+     */
+    public record Stats(long published, long delivered, long dropped, int queued,
+                        long lastLagNanos, long maxLagNanos) {
+    }
+
+    private class Subscription {
+        private final Observer observer;
+        private final ArrayBlockingQueue<Event> queue = new ArrayBlockingQueue<>(queueCapacity);
+        private final AtomicBoolean drainScheduled = new AtomicBoolean();
+        private final AtomicLong published = new AtomicLong();
+        private final AtomicLong delivered = new AtomicLong();
+        private final AtomicLong dropped = new AtomicLong();
+        private volatile long lastLagNanos;
+        private volatile long maxLagNanos;
+        private int subscribers; // changed only inside the map's compute calls
+
+        Subscription(Observer observer) {
+            this.observer = observer;
+        }
+
+        boolean offer(Event event) {
+            published.addAndGet(event.messages().size());
+            switch (overflowPolicy) {
+                case DROP_NEWEST -> {
+                    if (!queue.offer(event)) {
+                        dropped.addAndGet(event.messages().size());
+                        return false;
+                    }
+                }
+                case DROP_OLDEST -> {
+                    while (!queue.offer(event)) {
+                        Event oldest = queue.poll();
+                        if (oldest != null) {
+                            dropped.addAndGet(oldest.messages().size());
+                        }
+                    }
+                }
+                case BLOCK -> {
+                    try {
+                        queue.put(event);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        dropped.addAndGet(event.messages().size());
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        void scheduleDrain() {
+            if (drainScheduled.compareAndSet(false, true)) {
+                try {
+                    workers.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    // Bus has been shut down, the event stays queued
+                    drainScheduled.set(false);
+                }
+            }
+        }
+
+        // A published batch is never split, so one drain may deliver a little more than batchSize
+        private void drain() {
+            List<String> batch = new ArrayList<>(batchSize);
+            long now = System.nanoTime();
+            Event event;
+            while (batch.size() < batchSize && (event = queue.poll()) != null) {
+                batch.addAll(event.messages());
+                long lag = now - event.publishedAt();
+                lastLagNanos = lag;
+                if (lag > maxLagNanos) {
+                    maxLagNanos = lag;
+                }
+            }
+
+            try {
+                // Nothing more reaches an observer once it has been unsubscribed
+                if (!batch.isEmpty() && subscriptions.get(observer) == this) {
+                    observer.updateBatch(batch);
+                    delivered.addAndGet(batch.size());
+                }
+            } catch (RuntimeException e) {
+                onError.accept("Observer failed to handle events: " + e.getMessage());
+            } finally {
+                drainScheduled.set(false);
+                // Events published while we were delivering still need a worker
+                if (!queue.isEmpty() && !workers.isShutdown()) {
+                    scheduleDrain();
+                }
+            }
+        }
+
+        Stats stats() {
+            return new Stats(published.get(), delivered.get(), dropped.get(), queue.size(),
+                    lastLagNanos, maxLagNanos);
+        }
+    }
+}
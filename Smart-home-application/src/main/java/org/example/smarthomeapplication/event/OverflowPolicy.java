@@ -0,0 +1,10 @@
+package org.example.smarthomeapplication.event;
+
+/**
+ * What the event bus does when an observer's queue is full
+ */
+public enum OverflowPolicy {
+    DROP_NEWEST, // discard the event being published
+    DROP_OLDEST, // discard the oldest queued event to make room
+    BLOCK        // make the publishing thread wait for room
+}
@@ -0,0 +1,119 @@
+package org.example.smarthomeapplication.model.camera;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * A fixed number of photos taken at a fixed rate.
+ * One shared scheduler thread starts a frame every period and never waits on it: the frame goes into the
+ * capture pipeline, which encodes frames in parallel. At most frameBuffer frames are in flight at once;
+ * a frame due while the buffer is full, or refused by the pipeline, is dropped rather than delaying the
+ * frames after it.
+ */
+public class BurstCapture {
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "camera-burst-" + THREAD_COUNT.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final int count;
+    private final long periodNanos;
+    private final Semaphore frameBuffer;
+    private final Supplier<CompletableFuture<?>> captureFrame;
+
+    private final CompletableFuture<BurstResult> result = new CompletableFuture<>();
+    private final AtomicInteger saved = new AtomicInteger();
+    private final AtomicInteger skipped = new AtomicInteger();
+    private final AtomicInteger dropped = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private int started; // only touched by the scheduler thread
+    private long startNanos;
+    private volatile long lastFrameNanos;
+
+    /**
+     * @param count        number of frames
+     * @param fps          frames per second to aim for
+     * @param frameBuffer  frames that may be captured but not yet written
+     * @param captureFrame starts one frame through the capture pipeline, completing once it is stored,
+     *                     or with null if it was skipped as unchanged
+     */
+    public BurstCapture(int count, double fps, int frameBuffer, Supplier<CompletableFuture<?>> captureFrame) {
+        if (count <= 0 || fps <= 0 || frameBuffer <= 0) {
+            throw new IllegalArgumentException("Count, fps and frame buffer must be positive");
+        }
+        this.count = count;
+        this.periodNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / fps));
+        this.frameBuffer = new Semaphore(frameBuffer);
+        this.captureFrame = captureFrame;
+    }
+
+    /**
+     * Starts the burst. Cancelling the returned future stops frames that haven't started yet.
+     * @return completes once every frame is written, dropped or failed
+     */
+    public CompletableFuture<BurstResult> start() {
+        startNanos = System.nanoTime();
+        ScheduledFuture<?> ticking = SCHEDULER.scheduleAtFixedRate(this::startFrame, 0, periodNanos,
+                TimeUnit.NANOSECONDS);
+        result.whenComplete((burst, error) -> ticking.cancel(false));
+        return result;
+    }
+
+    private void startFrame() {
+        if (started >= count || result.isDone()) return;
+        started++;
+        lastFrameNanos = System.nanoTime();
+
+        if (!frameBuffer.tryAcquire()) {
+            dropped.incrementAndGet();
+            frameDone();
+            return;
+        }
+
+        captureFrame.get().whenComplete((stored, error) -> {
+            frameBuffer.release();
+            if (error == null) {
+                (stored != null ? saved : skipped).incrementAndGet();
+            } else if (unwrap(error) instanceof RejectedExecutionException) {
+                dropped.incrementAndGet();
+            } else {
+                failed.incrementAndGet();
+            }
+            frameDone();
+        });
+    }
+
+    private void frameDone() {
+        if (saved.get() + skipped.get() + dropped.get() + failed.get() < count) return;
+
+        // Rate over the capture window: first frame to last frame plus the period that frame had
+        long window = lastFrameNanos - startNanos + periodNanos;
+        double fps = saved.get() * (double) TimeUnit.SECONDS.toNanos(1) / window;
+        result.complete(new BurstResult(count, saved.get(), skipped.get(), dropped.get(), failed.get(),
+                System.nanoTime() - startNanos, fps));
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    /**
+     * What a burst did
+     * @param skipped      frames left out because nothing had changed
+     * @param elapsedNanos time from the first frame until the last one was written
+     * @param achievedFps  frames written per second of capture
+     */
+    public record BurstResult(int requested, int saved, int skipped, int dropped, int failed, long elapsedNanos,
+                              double achievedFps) {
+    }
+}
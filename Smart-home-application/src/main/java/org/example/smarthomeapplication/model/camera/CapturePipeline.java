@@ -0,0 +1,282 @@
+package org.example.smarthomeapplication.model.camera;
+
+import javax.imageio.ImageIO;
+import java.awt.AWTException;
+import java.awt.Rectangle;
+import java.awt.Robot;
+import java.awt.Toolkit;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Staged photo pipeline: capture, then the optional night-mode transform, then PNG encoding, then the write to disk.
+ * Every stage has its own bounded queue and worker pool. The capture stage has a single thread that owns the one
+ * Robot, since screen grabs can't run in parallel anyway. When a later stage is full its upstream worker waits,
+ * so a slow disk slows capture down instead of piling frames up in memory. Only the capture queue refuses work:
+ * a photo asked for while it is full fails right away, so callers such as the UI never block.
+ */
+public class CapturePipeline {
+    public static final int DEFAULT_QUEUE_CAPACITY = 16;
+
+    private static volatile CapturePipeline shared;
+
+    private final ThreadPoolExecutor captureStage;
+    private final ThreadPoolExecutor transformStage;
+    private final ThreadPoolExecutor encodeStage;
+    private final ThreadPoolExecutor writeStage;
+
+    private final Supplier<BufferedImage> screen; // null grabs the real screen
+    private Robot robot; // only touched by the capture thread
+
+    private final AtomicLong captured = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    public CapturePipeline() {
+        this(DEFAULT_QUEUE_CAPACITY, Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+    }
+
+    /**
+     * @param queueCapacity frames each stage may hold waiting for a worker
+     * @param workers       threads for each of the transform and encode stages
+     */
+    public CapturePipeline(int queueCapacity, int workers) {
+        this(queueCapacity, workers, null);
+    }
+
+    /**
+     * @param screen grabs one frame on the capture thread instead of the real screen, e.g. a fake screen for tests
+     */
+    public CapturePipeline(int queueCapacity, int workers, Supplier<BufferedImage> screen) {
+        if (queueCapacity <= 0 || workers <= 0) {
+            throw new IllegalArgumentException("Queue capacity and workers must be positive");
+        }
+        this.captureStage = stage("capture", 1, queueCapacity, new ThreadPoolExecutor.AbortPolicy());
+        this.transformStage = stage("night-mode", workers, queueCapacity, WAIT_FOR_SPACE);
+        this.encodeStage = stage("encode", workers, queueCapacity, WAIT_FOR_SPACE);
+        this.writeStage = stage("write", 1, queueCapacity, WAIT_FOR_SPACE);
+        this.screen = screen;
+    }
+
+    /**
+     * The pipeline shared by every camera; its threads are daemons and start on first use
+     */
+    public static CapturePipeline shared() {
+        CapturePipeline pipeline = shared;
+        if (pipeline == null) {
+            synchronized (CapturePipeline.class) {
+                pipeline = shared;
+                if (pipeline == null) {
+                    pipeline = new CapturePipeline();
+                    shared = pipeline;
+                }
+            }
+        }
+        return pipeline;
+    }
+
+    /**
+     * Captures the screen and writes it to the target as a PNG
+     * @param nightMode convert the frame to black and white first
+     * @return completes with the target once the file is written, or exceptionally if any stage failed
+     */
+    public CompletableFuture<Path> capture(Path target, boolean nightMode) {
+        return capture(target, nightMode, null);
+    }
+
+    /**
+     * Like capture(target, nightMode), but frames the motion detector turns down are dropped right after
+     * capture, before any conversion, encoding or disk work
+     * @param motion decides which frames to keep, or null to keep all
+     * @return completes with the target, or with null if the frame was skipped
+     */
+    public CompletableFuture<Path> capture(Path target, boolean nightMode, MotionDetector motion) {
+        return capture(nightMode, motion, frame -> encodePng(frame.image()), png -> write(target, png));
+    }
+
+    /**
+     * Captures the screen and appends the frame to a frame container instead of writing a PNG file
+     * @param motion decides which frames to keep, or null to keep all
+     * @return completes with the frame's index in the container, or with null if the frame was skipped
+     */
+    public CompletableFuture<Integer> capture(FrameContainer container, boolean nightMode, MotionDetector motion) {
+        return capture(nightMode, motion, container::encode, container::append);
+    }
+
+    private <T> CompletableFuture<T> capture(boolean nightMode, MotionDetector motion,
+                                             Function<Frame, byte[]> encoder, Function<byte[], T> writer) {
+        // Chain the stages before capturing, so every hand-off happens on a pipeline thread, never the caller's.
+        // A skipped frame travels down the chain as null.
+        CompletableFuture<Frame> grabbed = new CompletableFuture<>();
+        CompletableFuture<Frame> frame = nightMode
+                ? grabbed.thenApplyAsync(unlessSkipped(CapturePipeline::toBlackAndWhite), transformStage)
+                : grabbed;
+        CompletableFuture<T> saved = frame
+                .thenApplyAsync(unlessSkipped(encoder), encodeStage)
+                .thenApplyAsync(unlessSkipped(writer), writeStage)
+                .whenComplete((result, error) -> {
+                    if (error != null) failed.incrementAndGet();
+                    else if (result != null) written.incrementAndGet();
+                });
+
+        try {
+            captureStage.execute(() -> {
+                try {
+                    Frame captured = grabScreen();
+                    // Motion is judged here, on the one capture thread, so frames are compared in the order taken
+                    if (motion != null && !motion.examine(captured.image())) {
+                        skipped.incrementAndGet();
+                        captured = null;
+                    }
+                    grabbed.complete(captured);
+                } catch (Throwable e) {
+                    // Errors too, or the photo's future would never complete
+                    grabbed.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            return CompletableFuture.failedFuture(new RejectedExecutionException("Capture queue is full"));
+        }
+        return saved;
+    }
+
+    private static <A, B> Function<A, B> unlessSkipped(Function<A, B> stage) {
+        return input -> input == null ? null : stage.apply(input);
+    }
+
+    /**
+     * Stops accepting photos; frames already queued still finish
+     */
+    public void shutdown() {
+        captureStage.shutdown();
+        try {
+            captureStage.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        transformStage.shutdown();
+        encodeStage.shutdown();
+        writeStage.shutdown();
+    }
+
+    private Frame grabScreen() {
+        if (screen != null) {
+            long timestamp = System.currentTimeMillis();
+            BufferedImage image = screen.get();
+            captured.incrementAndGet();
+            return new Frame(image, timestamp);
+        }
+        if (robot == null) {
+            try {
+                robot = new Robot();
+            } catch (AWTException e) {
+                throw new IllegalStateException("Screen capture is not available", e);
+            }
+        }
+        long timestamp = System.currentTimeMillis();
+        BufferedImage image = robot.createScreenCapture(new Rectangle(Toolkit.getDefaultToolkit().getScreenSize()));
+        captured.incrementAndGet();
+        return new Frame(image, timestamp);
+    }
+
+    private static Frame toBlackAndWhite(Frame frame) {
+        return new Frame(NightModeFilter.shared().apply(frame.image(), false), frame.timestampMillis());
+    }
+
+    private static byte[] encodePng(BufferedImage image) {
+        ByteArrayOutputStream png = new ByteArrayOutputStream(image.getWidth() * image.getHeight());
+        try {
+            ImageIO.write(image, "png", png);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return png.toByteArray();
+    }
+
+    private Path write(Path target, byte[] png) {
+        try {
+            Files.write(target, png);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return target;
+    }
+
+    public long getCapturedCount() {
+        return captured.get();
+    }
+
+    public long getWrittenCount() {
+        return written.get();
+    }
+
+    // Photos refused because the capture queue was full
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    // Frames a motion detector found unchanged
+    public long getSkippedCount() {
+        return skipped.get();
+    }
+
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    // Frames waiting in all stages together
+    public int getQueuedFrames() {
+        return captureStage.getQueue().size() + transformStage.getQueue().size()
+                + encodeStage.getQueue().size() + writeStage.getQueue().size();
+    }
+
+    // Backpressure for the later stages: the upstream worker waits for room instead of dropping the frame
+    private static final RejectedExecutionHandler WAIT_FOR_SPACE = (task, executor) -> {
+        if (executor.isShutdown()) {
+            throw new RejectedExecutionException("Camera pipeline is shut down");
+        }
+        try {
+            executor.getQueue().put(task);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted while waiting for the next stage", e);
+        }
+    };
+
+    private static ThreadPoolExecutor stage(String name, int threads, int queueCapacity,
+                                            RejectedExecutionHandler whenFull) {
+        AtomicInteger count = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "camera-" + name + "-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                whenFull);
+    }
+
+    /**
+     * One captured screen
+     * @param timestampMillis when the capture started
+     */
+    public record Frame(BufferedImage image, long timestampMillis) {
+    }
+}
@@ -0,0 +1,371 @@
+package org.example.smarthomeapplication.model.camera;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32C;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+
+/**
+ * Append-only store for a camera's recorded frames, an alternative to one PNG file per frame.
+ * Frames are deflated at the fastest level and appended to a memory-mapped segment file, so
+ * recording costs a memory copy per frame instead of creating, writing and closing a file.
+ * A small index file, also mapped, holds each frame's offset and timestamp. Frames become PNGs only
+ * when someone asks to see one.
+ * <p>
+ * Mapped pages reach the disk in any order, so after a crash the index may point at frames that were
+ * never written. Opening checks every frame written since the last clean close against its checksum,
+ * keeps the frames up to the first bad one and trims both files to them before mapping anything.
+ *
+ * Segment layout per frame: magic, width, height, channels (1 gray, 3 RGB), timestamp, payload length,
+ * CRC32C of the header fields and payload, deflated pixels. Index layout: frame count, count of frames
+ * known to be on disk, then offset and timestamp per frame.
+ */
+public class FrameContainer implements Closeable {
+    public static final String SEGMENT_FILE = "frames.seg";
+    public static final String INDEX_FILE = "frames.idx";
+
+    private static final int MAGIC = 0x46524D32; // "FRM2"
+    private static final int FRAME_HEADER_BYTES = 4 + 4 + 4 + 1 + 8 + 4 + 4;
+    private static final int TIMESTAMP_OFFSET = 13;
+    private static final int LENGTH_OFFSET = 21;
+    private static final int CHECKSUM_OFFSET = 25;
+    private static final int DURABLE_COUNT_OFFSET = Long.BYTES;
+    private static final int INDEX_HEADER_BYTES = 2 * Long.BYTES;
+    private static final int INDEX_ENTRY_BYTES = 2 * Long.BYTES;
+    private static final long SEGMENT_REGION_BYTES = 64L * 1024 * 1024;
+    private static final long INDEX_REGION_BYTES = 4096L * INDEX_ENTRY_BYTES;
+
+    private final Path segmentPath;
+    private final FileChannel segment;
+    private final FileChannel index;
+    private MappedByteBuffer indexHeader;
+
+    private MappedByteBuffer segmentRegion;
+    private long segmentRegionStart;
+    private MappedByteBuffer indexRegion;
+    private long indexRegionStart;
+
+    private long[] offsets = new long[1024];
+    private long[] timestamps = new long[1024];
+    private int count;
+    private long end; // where the next frame goes in the segment
+    private boolean closed;
+
+    /**
+     * Opens the container in the directory, creating it if needed, and loads the index of frames already there
+     */
+    public FrameContainer(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        this.segmentPath = directory.resolve(SEGMENT_FILE);
+        this.segment = FileChannel.open(segmentPath, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.index = FileChannel.open(directory.resolve(INDEX_FILE), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        load();
+    }
+
+    private void load() throws IOException {
+        ByteBuffer stored = ByteBuffer.allocate(INDEX_HEADER_BYTES);
+        readFully(index, stored, 0);
+        long storedCount = Math.min(stored.getLong(0),
+                Math.max(0, index.size() - INDEX_HEADER_BYTES) / INDEX_ENTRY_BYTES);
+        long durableCount = stored.getLong(DURABLE_COUNT_OFFSET);
+        ByteBuffer entries = ByteBuffer.allocate((int) Math.max(0, Math.min(storedCount, Integer.MAX_VALUE / INDEX_ENTRY_BYTES))
+                * INDEX_ENTRY_BYTES);
+        readFully(index, entries, INDEX_HEADER_BYTES);
+        entries.flip();
+
+        // Frames are stored back to back, so each entry must point where the previous frame ended
+        long segmentSize = segment.size();
+        CRC32C checksum = new CRC32C();
+        while (entries.remaining() >= INDEX_ENTRY_BYTES) {
+            long offset = entries.getLong();
+            long timestamp = entries.getLong();
+            long frameEnd = offset == end
+                    ? validFrameEnd(offset, timestamp, segmentSize, count >= durableCount ? checksum : null)
+                    : -1;
+            if (frameEnd < 0) break; // Lost or half written in a crash, and so is everything after it
+            addToIndex(offset, timestamp);
+            end = frameEnd;
+        }
+
+        // Drop what's past the last good frame while nothing is mapped, then make the count durable
+        if (segmentSize > end) segment.truncate(end);
+        long indexBytes = INDEX_HEADER_BYTES + (long) count * INDEX_ENTRY_BYTES;
+        if (index.size() > indexBytes) index.truncate(indexBytes);
+        segment.force(false);
+        index.force(false);
+        this.indexHeader = index.map(FileChannel.MapMode.READ_WRITE, 0, INDEX_HEADER_BYTES);
+        indexHeader.putLong(0, count);
+        indexHeader.putLong(DURABLE_COUNT_OFFSET, count);
+        indexHeader.force();
+    }
+
+    /**
+     * Checks the frame's header against its index entry, and its checksum when one is given
+     * @return where the frame ends, or -1 if it isn't a whole, valid frame
+     */
+    private long validFrameEnd(long offset, long timestamp, long segmentSize, CRC32C checksum) throws IOException {
+        if (offset + FRAME_HEADER_BYTES > segmentSize) return -1;
+        ByteBuffer header = ByteBuffer.allocate(FRAME_HEADER_BYTES);
+        readFully(segment, header, offset);
+        int length = header.getInt(LENGTH_OFFSET);
+        long frameEnd = offset + FRAME_HEADER_BYTES + length;
+        if (header.getInt(0) != MAGIC || length < 0 || frameEnd > segmentSize) return -1;
+        // Indexed timestamps are the frame's own, raised to keep them ordered
+        long previous = count > 0 ? timestamps[count - 1] : Long.MIN_VALUE;
+        if (timestamp != Math.max(header.getLong(TIMESTAMP_OFFSET), previous)) return -1;
+        if (checksum == null) return frameEnd;
+
+        checksum.reset();
+        checksum.update(header.array(), 0, CHECKSUM_OFFSET);
+        ByteBuffer payload = ByteBuffer.allocate(Math.min(length, 64 * 1024));
+        for (long position = offset + FRAME_HEADER_BYTES; position < frameEnd; ) {
+            payload.clear().limit((int) Math.min(payload.capacity(), frameEnd - position));
+            readFully(segment, payload, position);
+            position += payload.position();
+            checksum.update(payload.flip());
+        }
+        return (int) checksum.getValue() == header.getInt(CHECKSUM_OFFSET) ? frameEnd : -1;
+    }
+
+    /**
+     * Converts a frame to the stored form. Safe from any thread, so it can run on the pipeline's encode workers.
+     */
+    public byte[] encode(CapturePipeline.Frame frame) {
+        BufferedImage image = frame.image();
+        int width = image.getWidth();
+        int height = image.getHeight();
+        boolean gray = image.getType() == BufferedImage.TYPE_BYTE_GRAY;
+        int channels = gray ? 1 : 3;
+
+        ByteArrayOutputStream record = new ByteArrayOutputStream(width * height * channels / 4 + FRAME_HEADER_BYTES);
+        record.writeBytes(ByteBuffer.allocate(LENGTH_OFFSET)
+                .putInt(MAGIC).putInt(width).putInt(height).put((byte) channels).putLong(frame.timestampMillis())
+                .array());
+        record.writeBytes(new byte[8]); // payload length and checksum, filled in below
+
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try (DeflaterOutputStream pixels = new DeflaterOutputStream(record, deflater, 64 * 1024)) {
+            if (gray) {
+                byte[] row = new byte[width];
+                for (int y = 0; y < height; y++) {
+                    image.getRaster().getDataElements(0, y, width, 1, row);
+                    pixels.write(row);
+                }
+            } else {
+                int[] argb = new int[width];
+                byte[] row = new byte[width * 3];
+                for (int y = 0; y < height; y++) {
+                    image.getRGB(0, y, width, 1, argb, 0, width);
+                    for (int x = 0, i = 0; x < width; x++) {
+                        row[i++] = (byte) (argb[x] >> 16);
+                        row[i++] = (byte) (argb[x] >> 8);
+                        row[i++] = (byte) argb[x];
+                    }
+                    pixels.write(row);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            deflater.end();
+        }
+
+        byte[] bytes = record.toByteArray();
+        ByteBuffer.wrap(bytes).putInt(LENGTH_OFFSET, bytes.length - FRAME_HEADER_BYTES);
+        CRC32C checksum = new CRC32C();
+        checksum.update(bytes, 0, CHECKSUM_OFFSET);
+        checksum.update(bytes, FRAME_HEADER_BYTES, bytes.length - FRAME_HEADER_BYTES);
+        ByteBuffer.wrap(bytes).putInt(CHECKSUM_OFFSET, (int) checksum.getValue());
+        return bytes;
+    }
+
+    /**
+     * Appends a frame made by encode
+     * @return the frame's index
+     */
+    public synchronized int append(byte[] record) {
+        if (closed) {
+            throw new IllegalStateException("Frame container is closed");
+        }
+        try {
+            if (segmentRegion == null || end + record.length > segmentRegionStart + segmentRegion.capacity()) {
+                segmentRegionStart = end;
+                segmentRegion = segment.map(FileChannel.MapMode.READ_WRITE, end,
+                        Math.max(SEGMENT_REGION_BYTES, record.length));
+            }
+            segmentRegion.put((int) (end - segmentRegionStart), record);
+
+            long entry = INDEX_HEADER_BYTES + (long) count * INDEX_ENTRY_BYTES;
+            if (indexRegion == null || entry + INDEX_ENTRY_BYTES > indexRegionStart + indexRegion.capacity()) {
+                indexRegionStart = entry;
+                indexRegion = index.map(FileChannel.MapMode.READ_WRITE, entry, INDEX_REGION_BYTES);
+            }
+            // Parallel encoders can finish out of order; keep indexed timestamps ordered for binary search
+            long timestamp = ByteBuffer.wrap(record).getLong(TIMESTAMP_OFFSET);
+            if (count > 0) {
+                timestamp = Math.max(timestamp, timestamps[count - 1]);
+            }
+            indexRegion.putLong((int) (entry - indexRegionStart), end);
+            indexRegion.putLong((int) (entry - indexRegionStart) + Long.BYTES, timestamp);
+
+            addToIndex(end, timestamp);
+            end += record.length;
+            indexHeader.putLong(0, count);
+            return count - 1;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public synchronized int size() {
+        return count;
+    }
+
+    public synchronized long timestampAt(int frame) {
+        checkFrame(frame);
+        return timestamps[frame];
+    }
+
+    /**
+     * Index of the first frame taken at or after the time, or size() if there is none
+     */
+    public synchronized int firstFrameAtOrAfter(long timestampMillis) {
+        int found = Arrays.binarySearch(timestamps, 0, count, timestampMillis);
+        if (found < 0) return -found - 1;
+        while (found > 0 && timestamps[found - 1] == timestampMillis) {
+            found--;
+        }
+        return found;
+    }
+
+    /**
+     * Decodes one frame back into an image
+     */
+    public BufferedImage read(int frame) throws IOException {
+        ByteBuffer header;
+        byte[] payload;
+        synchronized (this) {
+            header = readHeader(frame);
+            payload = new byte[header.getInt(LENGTH_OFFSET)];
+            readFully(segment, ByteBuffer.wrap(payload), offsets[frame] + FRAME_HEADER_BYTES);
+        }
+
+        int width = header.getInt(4);
+        int height = header.getInt(8);
+        int channels = header.get(12);
+        byte[] pixels = new byte[width * height * channels];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(payload);
+            int filled = 0;
+            while (filled < pixels.length && !inflater.finished()) {
+                filled += inflater.inflate(pixels, filled, pixels.length - filled);
+                if (inflater.needsInput()) break;
+            }
+            if (filled < pixels.length) {
+                throw new IOException("Frame " + frame + " is truncated");
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Frame " + frame + " is corrupt", e);
+        } finally {
+            inflater.end();
+        }
+
+        if (channels == 1) {
+            BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+            byte[] target = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+            System.arraycopy(pixels, 0, target, 0, target.length);
+            return image;
+        }
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        int[] target = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        for (int p = 0, i = 0; p < target.length; p++) {
+            target[p] = (pixels[i++] & 0xFF) << 16 | (pixels[i++] & 0xFF) << 8 | (pixels[i++] & 0xFF);
+        }
+        return image;
+    }
+
+    /**
+     * Writes one frame out as a PNG, e.g. when it is about to be viewed
+     */
+    public Path exportPng(int frame, Path target) throws IOException {
+        Files.createDirectories(target.toAbsolutePath().getParent());
+        ImageIO.write(read(frame), "png", target.toFile());
+        return target;
+    }
+
+    /**
+     * Flushes the mapped regions, then records that every frame is on disk. The files keep the unused
+     * tail of their last mapped region until the next open trims it; a file can't be shrunk while mapped.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        if (segmentRegion != null) segmentRegion.force();
+        if (indexRegion != null) indexRegion.force();
+        indexHeader.putLong(0, count);
+        indexHeader.putLong(DURABLE_COUNT_OFFSET, count);
+        indexHeader.force();
+        segmentRegion = null;
+        indexRegion = null;
+        segment.close();
+        index.close();
+    }
+
+    public Path getSegmentPath() {
+        return segmentPath;
+    }
+
+    private ByteBuffer readHeader(int frame) throws IOException {
+        checkFrame(frame);
+        ByteBuffer header = ByteBuffer.allocate(FRAME_HEADER_BYTES);
+        readFully(segment, header, offsets[frame]);
+        if (header.getInt(0) != MAGIC) {
+            throw new IOException("Frame " + frame + " is corrupt");
+        }
+        return header;
+    }
+
+    private void addToIndex(long offset, long timestamp) {
+        if (count == offsets.length) {
+            offsets = Arrays.copyOf(offsets, count * 2);
+            timestamps = Arrays.copyOf(timestamps, count * 2);
+        }
+        offsets[count] = offset;
+        timestamps[count] = timestamp;
+        count++;
+    }
+
+    private void checkFrame(int frame) {
+        if (frame < 0 || frame >= count) {
+            throw new IndexOutOfBoundsException("Frame " + frame + " of " + count);
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) break;
+            position += read;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package org.example.smarthomeapplication.model.camera;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decides whether a frame is worth keeping by comparing it with the last frame that was.
+ * Each frame is reduced to a small grid of luma samples; the frame counts as motion when the mean
+ * difference from the previous grid, as a fraction of full brightness, reaches the threshold.
+ * Comparing a 64x36 grid costs next to nothing next to encoding a full frame, at the price of
+ * missing changes smaller than a grid cell.
+ */
+public class MotionDetector {
+    public static final double DEFAULT_THRESHOLD = 0.02;
+
+    private static final int GRID_WIDTH = 64;
+    private static final int GRID_HEIGHT = 36;
+
+    private final Runnable onMotionStarted;
+    private volatile double threshold;
+    private byte[] reference; // grid of the last frame kept
+    private boolean moving;
+
+    private final AtomicLong examined = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+
+    /**
+     * @param onMotionStarted called when a changed frame follows one or more unchanged ones
+     */
+    public MotionDetector(double threshold, Runnable onMotionStarted) {
+        if (threshold < 0 || threshold > 1) {
+            throw new IllegalArgumentException("Threshold must be between 0 and 1");
+        }
+        this.threshold = threshold;
+        this.onMotionStarted = onMotionStarted;
+    }
+
+    /**
+     * @param threshold mean luma change between 0 and 1 that counts as motion
+     */
+    public void setThreshold(double threshold) {
+        if (threshold < 0 || threshold > 1) {
+            throw new IllegalArgumentException("Threshold must be between 0 and 1");
+        }
+        this.threshold = threshold;
+    }
+
+    public double getThreshold() {
+        return threshold;
+    }
+
+    /**
+     * @return true if the frame differs enough from the last kept frame to be kept; the first frame always is
+     */
+    public boolean examine(BufferedImage frame) {
+        byte[] grid = lumaGrid(frame);
+        examined.incrementAndGet();
+
+        boolean motionStarted;
+        synchronized (this) {
+            if (reference == null) {
+                reference = grid;
+                return true;
+            }
+            if (difference(reference, grid) < threshold) {
+                moving = false;
+                skipped.incrementAndGet();
+                return false;
+            }
+            reference = grid;
+            motionStarted = !moving;
+            moving = true;
+        }
+
+        if (motionStarted) {
+            onMotionStarted.run();
+        }
+        return true;
+    }
+
+    /**
+     * Forgets the last frame, so the next one is kept whatever it shows
+     */
+    public synchronized void reset() {
+        reference = null;
+        moving = false;
+    }
+
+    public long getExaminedCount() {
+        return examined.get();
+    }
+
+    public long getSkippedCount() {
+        return skipped.get();
+    }
+
+    // Luma of the pixel at the centre of each grid cell
+    private static byte[] lumaGrid(BufferedImage frame) {
+        byte[] grid = new byte[GRID_WIDTH * GRID_HEIGHT];
+        int width = frame.getWidth();
+        int height = frame.getHeight();
+        for (int row = 0; row < GRID_HEIGHT; row++) {
+            int y = (int) ((row + 0.5) * height / GRID_HEIGHT);
+            for (int column = 0; column < GRID_WIDTH; column++) {
+                int x = (int) ((column + 0.5) * width / GRID_WIDTH);
+                int pixel = frame.getRGB(x, y);
+                int r = (pixel >>> 16) & 0xFF;
+                int g = (pixel >>> 8) & 0xFF;
+                int b = pixel & 0xFF;
+                grid[row * GRID_WIDTH + column] = (byte) ((77 * r + 150 * g + 29 * b) >>> 8);
+            }
+        }
+        return grid;
+    }
+
+    private static double difference(byte[] previous, byte[] current) {
+        long sum = 0;
+        for (int i = 0; i < current.length; i++) {
+            sum += Math.abs((previous[i] & 0xFF) - (current[i] & 0xFF));
+        }
+        return sum / (255.0 * current.length);
+    }
+}
@@ -0,0 +1,159 @@
+package org.example.smarthomeapplication.model.camera;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.io.Serial;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Night-mode conversion of captured frames to grayscale, optionally with IR-camera style noise reduction.
+ * Works directly on the raster arrays instead of redrawing through Graphics2D, and splits the frame into
+ * bands of rows that run in parallel on a fork-join pool. The luma loop within a band is plain integer
+ * math over the array, which the JIT compiles to vector instructions on its own.
+ */
+public class NightModeFilter {
+    // Rows per band never drop below this, so small frames aren't split into tasks that cost more than they do
+    private static final int MIN_ROWS_PER_BAND = 16;
+    private static final int BANDS_PER_THREAD = 4;
+
+    private static final NightModeFilter SHARED = new NightModeFilter(ForkJoinPool.commonPool());
+
+    private final ForkJoinPool pool;
+
+    public NightModeFilter(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * The filter the capture pipeline uses, on the common pool
+     */
+    public static NightModeFilter shared() {
+        return SHARED;
+    }
+
+    /**
+     * @param denoise also smooth each pixel with its neighbours, like an IR camera's night picture
+     * @return a new TYPE_BYTE_GRAY image
+     */
+    public BufferedImage apply(BufferedImage original, boolean denoise) {
+        int width = original.getWidth();
+        int height = original.getHeight();
+        BufferedImage gray = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+        byte[] target = ((DataBufferByte) gray.getRaster().getDataBuffer()).getData();
+
+        int[] pixels = packedRgb(original);
+        if (pixels == null) {
+            // Unusual pixel layout: let Java2D do the conversion
+            Graphics2D g2d = gray.createGraphics();
+            g2d.drawImage(original, 0, 0, null);
+            g2d.dispose();
+        } else {
+            pool.invoke(new Band(height, rowsPerBand(height),
+                    (from, to) -> toGray(pixels, target, from * width, to * width)));
+        }
+
+        if (!denoise) {
+            return gray;
+        }
+
+        BufferedImage smoothed = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+        byte[] smoothedPixels = ((DataBufferByte) smoothed.getRaster().getDataBuffer()).getData();
+        pool.invoke(new Band(height, rowsPerBand(height),
+                (from, to) -> boxBlur(target, smoothedPixels, width, height, from, to)));
+        return smoothed;
+    }
+
+    private int rowsPerBand(int height) {
+        int bands = pool.getParallelism() * BANDS_PER_THREAD;
+        return Math.max(MIN_ROWS_PER_BAND, (height + bands - 1) / bands);
+    }
+
+    // The int[] behind an RGB image, or null if the image isn't stored that way
+    private static int[] packedRgb(BufferedImage image) {
+        int type = image.getType();
+        if (type != BufferedImage.TYPE_INT_RGB && type != BufferedImage.TYPE_INT_ARGB) return null;
+        if (!(image.getRaster().getDataBuffer() instanceof DataBufferInt buffer)) return null;
+        if (!(image.getSampleModel() instanceof SinglePixelPackedSampleModel model)
+                || model.getScanlineStride() != image.getWidth()
+                || image.getRaster().getSampleModelTranslateX() != 0
+                || image.getRaster().getSampleModelTranslateY() != 0
+                || buffer.getOffset() != 0) {
+            return null;
+        }
+        return buffer.getData();
+    }
+
+    // BT.601 luma in fixed point: (77 R + 150 G + 29 B) / 256
+    private static void toGray(int[] rgb, byte[] gray, int from, int to) {
+        for (int i = from; i < to; i++) {
+            int pixel = rgb[i];
+            int r = (pixel >>> 16) & 0xFF;
+            int g = (pixel >>> 8) & 0xFF;
+            int b = pixel & 0xFF;
+            gray[i] = (byte) ((77 * r + 150 * g + 29 * b) >>> 8);
+        }
+    }
+
+    // 3x3 mean, edges clamped to the nearest pixel
+    private static void boxBlur(byte[] source, byte[] target, int width, int height, int fromRow, int toRow) {
+        for (int y = fromRow; y < toRow; y++) {
+            int above = Math.max(y - 1, 0) * width;
+            int row = y * width;
+            int below = Math.min(y + 1, height - 1) * width;
+
+            // Running sum of three column sums, so each pixel costs one new column instead of nine reads
+            int left = columnSum(source, above, row, below, 0);
+            int middle = left;
+            for (int x = 0; x < width; x++) {
+                int right = x + 1 < width ? columnSum(source, above, row, below, x + 1) : middle;
+                target[row + x] = (byte) ((left + middle + right) / 9);
+                left = middle;
+                middle = right;
+            }
+        }
+    }
+
+    private static int columnSum(byte[] source, int above, int row, int below, int x) {
+        return (source[above + x] & 0xFF) + (source[row + x] & 0xFF) + (source[below + x] & 0xFF);
+    }
+
+    private interface RowRange {
+        void run(int fromRow, int toRow);
+    }
+
+    // Splits the rows in half until a band is small enough to run directly
+    private static class Band extends RecursiveAction {
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private final int fromRow;
+        private final int toRow;
+        private final int rowsPerBand;
+        private final transient RowRange work;
+
+        Band(int height, int rowsPerBand, RowRange work) {
+            this(0, height, rowsPerBand, work);
+        }
+
+        private Band(int fromRow, int toRow, int rowsPerBand, RowRange work) {
+            this.fromRow = fromRow;
+            this.toRow = toRow;
+            this.rowsPerBand = rowsPerBand;
+            this.work = work;
+        }
+
+        @Override
+        protected void compute() {
+            if (toRow - fromRow <= rowsPerBand) {
+                work.run(fromRow, toRow);
+                return;
+            }
+            int middle = (fromRow + toRow) >>> 1;
+            invokeAll(new Band(fromRow, middle, rowsPerBand, work), new Band(middle, toRow, rowsPerBand, work));
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package org.example.smarthomeapplication.model.camera;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * Deletes photos in the background, a batch at a time.
+ * After each batch the photo index drops the deleted photos in one update and the progress callback runs,
+ * so listings never show a photo that is already gone and the UI can follow along. A deletion can be
+ * cancelled between any two files; whatever was deleted by then stays deleted and is reported.
+ */
+public class PhotoDeletionService {
+    public static final int BATCH_SIZE = 256;
+
+    private static volatile PhotoDeletionService shared;
+
+    private final ExecutorService executor;
+
+    public PhotoDeletionService(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * One background thread for every camera; deletions run one after another
+     */
+    public static PhotoDeletionService shared() {
+        PhotoDeletionService service = shared;
+        if (service == null) {
+            synchronized (PhotoDeletionService.class) {
+                service = shared;
+                if (service == null) {
+                    service = new PhotoDeletionService(Executors.newSingleThreadExecutor(runnable -> {
+                        Thread thread = new Thread(runnable, "camera-photo-deletion");
+                        thread.setDaemon(true);
+                        return thread;
+                    }));
+                    shared = service;
+                }
+            }
+        }
+        return service;
+    }
+
+    /**
+     * Starts deleting the photos along with their thumbnails
+     * @param onProgress called on the deletion thread after each batch, may be null
+     */
+    public Deletion delete(PhotoIndex index, ThumbnailStore thumbnails, List<PhotoIndex.Photo> photos,
+                           Consumer<Progress> onProgress) {
+        Deletion deletion = new Deletion();
+        List<PhotoIndex.Photo> toDelete = List.copyOf(photos);
+        executor.execute(() -> run(deletion, index, thumbnails, toDelete, onProgress));
+        return deletion;
+    }
+
+    private static void run(Deletion deletion, PhotoIndex index, ThumbnailStore thumbnails,
+                            List<PhotoIndex.Photo> photos, Consumer<Progress> onProgress) {
+        int deleted = 0;
+        int failed = 0;
+        int done = 0;
+        boolean stoppedEarly = false;
+        try {
+            List<String> batch = new ArrayList<>(BATCH_SIZE);
+            for (PhotoIndex.Photo photo : photos) {
+                if (deletion.cancelled) {
+                    stoppedEarly = true;
+                    break;
+                }
+
+                Path file = index.getDirectory().resolve(photo.name());
+                try {
+                    Files.deleteIfExists(file);
+                    thumbnails.delete(photo.name());
+                    batch.add(photo.name());
+                    deleted++;
+                } catch (IOException e) {
+                    System.err.println("Failed to delete " + file + ": " + e.getMessage());
+                    failed++;
+                }
+                done++;
+
+                if (done % BATCH_SIZE == 0) {
+                    finishBatch(index, batch, onProgress, new Progress(done, photos.size(), failed));
+                }
+            }
+            finishBatch(index, batch, onProgress, new Progress(done, photos.size(), failed));
+            deletion.result.complete(new Result(photos.size(), deleted, failed, stoppedEarly));
+        } catch (RuntimeException e) {
+            deletion.result.completeExceptionally(e);
+        }
+    }
+
+    private static void finishBatch(PhotoIndex index, List<String> batch, Consumer<Progress> onProgress,
+                                    Progress progress) {
+        index.removeAll(batch);
+        batch.clear();
+        if (onProgress != null) {
+            onProgress.accept(progress);
+        }
+    }
+
+    /**
+     * A running deletion
+     */
+    public static class Deletion {
+        private final CompletableFuture<Result> result = new CompletableFuture<>();
+        private volatile boolean cancelled;
+
+        /**
+         * Stops before the next file
+         */
+        public void cancel() {
+            cancelled = true;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        public CompletableFuture<Result> result() {
+            return result;
+        }
+    }
+
+    /**
+     * @param done photos handled so far, deleted or failed
+     */
+    public record Progress(int done, int total, int failed) {
+        public double fraction() {
+            return total == 0 ? 1 : (double) done / total;
+        }
+    }
+
+    /**
+     * @param cancelled true if the deletion stopped before handling every photo
+     */
+    public record Result(int requested, int deleted, int failed, boolean cancelled) {
+        public boolean isComplete() {
+            return !cancelled && deleted == requested;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package org.example.smarthomeapplication.model.camera;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * One watcher thread for every camera's photo directory, so a hundred cameras don't need a hundred threads.
+ * Creates, changes and deletes are passed to the directory's PhotoIndex; if the OS drops events,
+ * the index is rescanned.
+ */
+class PhotoDirectoryWatcher {
+    private static volatile PhotoDirectoryWatcher shared;
+
+    private final WatchService watchService;
+    private final Map<WatchKey, PhotoIndex> indexes = new ConcurrentHashMap<>();
+    private final Map<PhotoIndex, WatchKey> keys = new ConcurrentHashMap<>();
+
+    private PhotoDirectoryWatcher(WatchService watchService) {
+        this.watchService = watchService;
+        Thread thread = new Thread(this::run, "camera-photo-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    static PhotoDirectoryWatcher shared() {
+        PhotoDirectoryWatcher watcher = shared;
+        if (watcher == null) {
+            synchronized (PhotoDirectoryWatcher.class) {
+                watcher = shared;
+                if (watcher == null) {
+                    WatchService service = null;
+                    try {
+                        service = FileSystems.getDefault().newWatchService();
+                    } catch (IOException e) {
+                        System.err.println("Photo directories won't be watched: " + e.getMessage());
+                    }
+                    watcher = new PhotoDirectoryWatcher(service);
+                    shared = watcher;
+                }
+            }
+        }
+        return watcher;
+    }
+
+    /**
+     * Starts passing the changes in the index's directory to it; does nothing if watching isn't available
+     * @throws IOException if the directory can't be watched, e.g. because it doesn't exist
+     */
+    void watch(PhotoIndex index) throws IOException {
+        if (watchService == null || keys.containsKey(index)) return;
+        WatchKey key = index.getDirectory().register(watchService,
+                StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY,
+                StandardWatchEventKinds.ENTRY_DELETE);
+        indexes.put(key, index);
+        keys.put(index, key);
+    }
+
+    void unwatch(PhotoIndex index) {
+        WatchKey key = keys.remove(index);
+        if (key != null) {
+            key.cancel();
+            indexes.remove(key);
+        }
+    }
+
+    private void run() {
+        if (watchService == null) return;
+        while (true) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+
+            PhotoIndex index = indexes.get(key);
+            if (index != null) {
+                dispatch(index, key);
+            }
+            if (!key.reset() && index != null) {
+                // The directory itself went away; the index watches it again if it comes back
+                unwatch(index);
+                index.watchEnded();
+            }
+        }
+    }
+
+    private static void dispatch(PhotoIndex index, WatchKey key) {
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                index.reload();
+                return;
+            }
+            Path file = index.getDirectory().resolve((Path) event.context());
+            if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE) {
+                index.remove(file.getFileName().toString());
+            } else {
+                index.add(file);
+            }
+        }
+    }
+}
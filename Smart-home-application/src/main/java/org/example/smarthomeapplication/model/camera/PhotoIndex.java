@@ -0,0 +1,206 @@
+package org.example.smarthomeapplication.model.camera;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+
+/**
+ * In-memory list of one camera's photos, sorted by when they were taken.
+ * The directory is scanned once, on first use; after that the camera reports its own writes and deletes,
+ * and a shared file watcher picks up changes made by anything else. A directory that doesn't exist yet is
+ * watched from the first photo added to it. Counts and totals are kept as the index changes, and time-range
+ * queries binary search the sorted set instead of scanning the directory.
+ */
+public class PhotoIndex {
+    private static final Comparator<Photo> BY_TIME =
+            Comparator.comparingLong(Photo::timestampMillis).thenComparing(Photo::name);
+
+    private final Path directory;
+    private final Consumer<String> onError;
+    private final NavigableSet<Photo> photos = new TreeSet<>(BY_TIME);
+    private final Map<String, Photo> byName = new HashMap<>();
+    private long totalBytes;
+    private boolean loaded;
+    private boolean watched; // or watching failed for a reason that trying again won't fix
+    private boolean closed;
+    private List<Photo> snapshot; // cached listing, dropped on every change
+
+    /**
+     * @param onError told when the directory can't be scanned or watched, on the thread that tried
+     */
+    public PhotoIndex(Path directory, Consumer<String> onError) {
+        this.directory = directory;
+        this.onError = onError;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public static boolean isPhoto(Path file) {
+        return file.getFileName().toString().toLowerCase().endsWith(".png");
+    }
+
+    /**
+     * Adds the photo, or updates it if it is already indexed; files that aren't photos are ignored
+     */
+    public synchronized void add(Path file) {
+        if (!watched) {
+            // The directory may have been created since the last scan: watch it, and rescan so nothing
+            // written before the watch started is missed
+            reload();
+        }
+        put(file);
+    }
+
+    public synchronized void remove(String name) {
+        ensureLoaded();
+        Photo removed = byName.remove(name);
+        if (removed != null) {
+            photos.remove(removed);
+            totalBytes -= removed.sizeBytes();
+            snapshot = null;
+        }
+    }
+
+    /**
+     * Removes several photos in one update
+     */
+    public synchronized void removeAll(Collection<String> names) {
+        for (String name : names) {
+            remove(name);
+        }
+    }
+
+    /**
+     * Forgets everything and scans the directory again
+     */
+    public synchronized void reload() {
+        photos.clear();
+        byName.clear();
+        totalBytes = 0;
+        snapshot = null;
+        loaded = true;
+
+        if (Files.isDirectory(directory)) {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+                for (Path file : files) {
+                    put(file);
+                }
+            } catch (IOException e) {
+                onError.accept("Failed to scan photos in " + directory + ": " + e.getMessage());
+            }
+            watch();
+        }
+    }
+
+    public synchronized int size() {
+        ensureLoaded();
+        return photos.size();
+    }
+
+    public synchronized long getTotalBytes() {
+        ensureLoaded();
+        return totalBytes;
+    }
+
+    /**
+     * All photos, oldest first. The list is shared and immutable; it is only rebuilt after a change.
+     */
+    public synchronized List<Photo> photos() {
+        ensureLoaded();
+        if (snapshot == null) {
+            snapshot = List.copyOf(photos);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Photos taken in [fromMillis, toMillis), oldest first
+     */
+    public synchronized List<Photo> between(long fromMillis, long toMillis) {
+        ensureLoaded();
+        if (fromMillis >= toMillis) return List.of();
+        return new ArrayList<>(photos.subSet(new Photo("", fromMillis, 0), true, new Photo("", toMillis, 0), false));
+    }
+
+    public synchronized Photo newest() {
+        ensureLoaded();
+        return photos.isEmpty() ? null : photos.last();
+    }
+
+    public synchronized boolean contains(String name) {
+        ensureLoaded();
+        return byName.containsKey(name);
+    }
+
+    /**
+     * Stops watching the directory for changes
+     */
+    public synchronized void close() {
+        closed = true;
+        PhotoDirectoryWatcher.shared().unwatch(this);
+    }
+
+    // Called by the watcher when the directory was deleted
+    synchronized void watchEnded() {
+        watched = false;
+    }
+
+    private void watch() {
+        if (watched || closed) return;
+        watched = true;
+        try {
+            PhotoDirectoryWatcher.shared().watch(this);
+        } catch (IOException e) {
+            onError.accept("Failed to watch " + directory + ": " + e.getMessage());
+        }
+    }
+
+    private void ensureLoaded() {
+        if (!loaded) {
+            reload();
+        }
+    }
+
+    private void put(Path file) {
+        if (!isPhoto(file)) return;
+
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (IOException e) {
+            return; // Deleted before we got to it
+        }
+        if (!attributes.isRegularFile()) return;
+
+        String name = file.getFileName().toString();
+        Photo photo = new Photo(name, attributes.lastModifiedTime().toMillis(), attributes.size());
+        Photo previous = byName.put(name, photo);
+        if (previous != null) {
+            photos.remove(previous);
+            totalBytes -= previous.sizeBytes();
+        }
+        photos.add(photo);
+        totalBytes += photo.sizeBytes();
+        snapshot = null;
+    }
+
+    /**
+     * One indexed photo
+     * @param name file name inside the camera's photo directory
+     */
+    public record Photo(String name, long timestampMillis, long sizeBytes) {
+    }
+}
@@ -0,0 +1,186 @@
+package org.example.smarthomeapplication.model.camera;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Small PNG thumbnails of a camera's photos, kept on disk in a "thumbnails" folder inside the photo folder.
+ * Thumbnails are made in the background, normally right after a photo is written, so the gallery only
+ * ever has to read the small files. Photos without a thumbnail get one the first time it is asked for.
+ */
+public class ThumbnailStore {
+    public static final int WIDTH = 200;
+    public static final int HEIGHT = 150;
+    private static final String DIRECTORY = "thumbnails";
+
+    private static final AtomicInteger WORKER_COUNT = new AtomicInteger();
+    private static final ExecutorService WORKERS = Executors.newFixedThreadPool(
+            Math.max(1, Runtime.getRuntime().availableProcessors() / 2),
+            runnable -> {
+                Thread thread = new Thread(runnable, "camera-thumbnail-" + WORKER_COUNT.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    private final Path photoDirectory;
+    private final Path thumbnailDirectory;
+    private final Map<String, CompletableFuture<Path>> pending = new ConcurrentHashMap<>();
+    private final Consumer<String> onError;
+
+    /**
+     * @param onError told about thumbnails that couldn't be deleted, on the thread that tried
+     */
+    public ThumbnailStore(Path photoDirectory, Consumer<String> onError) {
+        this.photoDirectory = photoDirectory;
+        this.thumbnailDirectory = photoDirectory.resolve(DIRECTORY);
+        this.onError = onError;
+    }
+
+    public Path thumbnailPath(String photoName) {
+        return thumbnailDirectory.resolve(photoName);
+    }
+
+    /**
+     * Checks the thumbnail on a worker, so the caller never waits on the disk
+     * @return completes with the thumbnail file, made first if it is missing or older than the photo
+     */
+    public CompletableFuture<Path> thumbnailFor(String photoName) {
+        return submit(photoName, true);
+    }
+
+    /**
+     * Makes the thumbnail in the background; asking again while it is being made returns the same future.
+     * Cancelling that future before a worker picks it up skips the work, for every caller sharing it.
+     */
+    public CompletableFuture<Path> generateAsync(String photoName) {
+        return submit(photoName, false);
+    }
+
+    private CompletableFuture<Path> submit(String photoName, boolean keepIfUpToDate) {
+        CompletableFuture<Path> created = new CompletableFuture<>();
+        CompletableFuture<Path> running = pending.merge(photoName, created,
+                (waiting, fresh) -> waiting.isCancelled() ? fresh : waiting);
+        if (running != created) {
+            return running;
+        }
+
+        WORKERS.execute(() -> {
+            try {
+                if (created.isCancelled()) return;
+                Path thumbnail = thumbnailPath(photoName);
+                if (keepIfUpToDate && isUpToDate(photoDirectory.resolve(photoName), thumbnail)) {
+                    created.complete(thumbnail);
+                } else {
+                    created.complete(generate(photoName));
+                }
+            } catch (RuntimeException e) {
+                created.completeExceptionally(e);
+            } finally {
+                pending.remove(photoName, created);
+            }
+        });
+        return created;
+    }
+
+    public void delete(String photoName) {
+        try {
+            Files.deleteIfExists(thumbnailPath(photoName));
+        } catch (IOException e) {
+            onError.accept("Failed to delete thumbnail: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Deletes every thumbnail
+     */
+    public void clear() {
+        if (!Files.isDirectory(thumbnailDirectory)) return;
+        try (DirectoryStream<Path> thumbnails = Files.newDirectoryStream(thumbnailDirectory, "*.png")) {
+            for (Path thumbnail : thumbnails) {
+                Files.deleteIfExists(thumbnail);
+            }
+        } catch (IOException e) {
+            onError.accept("Failed to clear thumbnails: " + e.getMessage());
+        }
+    }
+
+    private Path generate(String photoName) {
+        Path photo = photoDirectory.resolve(photoName);
+        Path thumbnail = thumbnailPath(photoName);
+        try {
+            BufferedImage source = readSubsampled(photo);
+            Files.createDirectories(thumbnailDirectory);
+            ImageIO.write(scale(source), "png", thumbnail.toFile());
+            return thumbnail;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to make thumbnail for " + photoName, e);
+        }
+    }
+
+    // Decodes only every n-th pixel, so a full-screen photo never lands on the heap at full size
+    private static BufferedImage readSubsampled(Path photo) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(photo.toFile())) {
+            if (input == null) {
+                throw new IOException("Cannot open " + photo);
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                throw new IOException("Unsupported image format: " + photo);
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int step = Math.max(1, Math.min(reader.getWidth(0) / WIDTH, reader.getHeight(0) / HEIGHT));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(step, step, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    // Fits the image inside WIDTH x HEIGHT, keeping its aspect ratio
+    private static BufferedImage scale(BufferedImage source) {
+        double ratio = Math.min((double) WIDTH / source.getWidth(), (double) HEIGHT / source.getHeight());
+        int width = Math.max(1, (int) Math.round(source.getWidth() * Math.min(1, ratio)));
+        int height = Math.max(1, (int) Math.round(source.getHeight() * Math.min(1, ratio)));
+        int type = source.getType() == BufferedImage.TYPE_BYTE_GRAY
+                ? BufferedImage.TYPE_BYTE_GRAY
+                : BufferedImage.TYPE_INT_RGB;
+
+        BufferedImage scaled = new BufferedImage(width, height, type);
+        Graphics2D g2d = scaled.createGraphics();
+        g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g2d.drawImage(source, 0, 0, width, height, null);
+        g2d.dispose();
+        return scaled;
+    }
+
+    private static boolean isUpToDate(Path photo, Path thumbnail) {
+        try {
+            return Files.exists(thumbnail)
+                    && Files.getLastModifiedTime(thumbnail).compareTo(Files.getLastModifiedTime(photo)) >= 0;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+}
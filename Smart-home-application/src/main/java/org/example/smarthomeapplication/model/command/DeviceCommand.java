@@ -0,0 +1,79 @@
+package org.example.smarthomeapplication.model.command;
+
+/**
+ * Typed form of the text states accepted by SmartDevice.changeState.
+ * Parse a command once with {@link #parse(String)} and hand it to SmartDevice.execute as often as needed;
+ * keyword commands and the usual brightness/volume/color values are shared instances, so parsing them
+ * doesn't allocate either.
+ */
+public sealed interface DeviceCommand {
+
+    record On() implements DeviceCommand {
+    }
+
+    record Off() implements DeviceCommand {
+    }
+
+    record Brightness(int percent) implements DeviceCommand {
+    }
+
+    record Color(String name) implements DeviceCommand {
+    }
+
+    record Target(double celsius) implements DeviceCommand {
+    }
+
+    // Named operating mode: cooling, heating, auto, recording, night mode, listening, passive, mute
+    record Mode(String name) implements DeviceCommand {
+    }
+
+    record Volume(int percent) implements DeviceCommand {
+    }
+
+    // "current temperature": report readings without changing anything
+    record Query() implements DeviceCommand {
+    }
+
+    // Spoken request for a voice assistant
+    record Voice(String text) implements DeviceCommand {
+    }
+
+    // A known prefix with a value that couldn't be parsed, e.g. "brightness:abc"
+    record Malformed(String field) implements DeviceCommand {
+    }
+
+    record Unknown(String text) implements DeviceCommand {
+    }
+
+    String BRIGHTNESS = "brightness";
+    String TARGET = "target";
+    String VOLUME = "volume";
+
+    On ON = new On();
+    Off OFF = new Off();
+    Query QUERY = new Query();
+    Mode COOLING = new Mode("cooling");
+    Mode HEATING = new Mode("heating");
+    Mode AUTO = new Mode("auto");
+    Mode RECORDING = new Mode("recording");
+    Mode NIGHT_MODE = new Mode("night mode");
+    Mode LISTENING = new Mode("listening");
+    Mode PASSIVE = new Mode("passive");
+    Mode MUTE = new Mode("mute");
+
+    static DeviceCommand parse(String text) {
+        return DeviceCommandParser.parse(text);
+    }
+
+    static Brightness brightness(int percent) {
+        return DeviceCommandParser.brightness(percent);
+    }
+
+    static Volume volume(int percent) {
+        return DeviceCommandParser.volume(percent);
+    }
+
+    static Color color(String name) {
+        return DeviceCommandParser.color(name);
+    }
+}
@@ -0,0 +1,141 @@
+package org.example.smarthomeapplication.model.command;
+
+/**
+ * Turns text states into DeviceCommand instances, reusing shared instances wherever it can
+ */
+final class DeviceCommandParser {
+    private static final String BRIGHTNESS_PREFIX = "brightness:";
+    private static final String COLOR_PREFIX = "color:";
+    private static final String TARGET_PREFIX = "target:";
+    private static final String VOLUME_PREFIX = "volume:";
+    private static final String VOICE_PREFIX = "command:";
+
+    private static final String[] KEYWORDS = {
+            "on", "off", "current temperature", "cooling", "heating", "auto",
+            "recording", "night mode", "listening", "passive", "mute"
+    };
+    private static final DeviceCommand[] KEYWORD_COMMANDS = {
+            DeviceCommand.ON, DeviceCommand.OFF, DeviceCommand.QUERY, DeviceCommand.COOLING,
+            DeviceCommand.HEATING, DeviceCommand.AUTO, DeviceCommand.RECORDING, DeviceCommand.NIGHT_MODE,
+            DeviceCommand.LISTENING, DeviceCommand.PASSIVE, DeviceCommand.MUTE
+    };
+
+    private static final DeviceCommand.Color[] COLORS = {
+            new DeviceCommand.Color("white"), new DeviceCommand.Color("red"),
+            new DeviceCommand.Color("blue"), new DeviceCommand.Color("pink"),
+            new DeviceCommand.Color("green"), new DeviceCommand.Color("yellow"),
+            new DeviceCommand.Color("purple"), new DeviceCommand.Color("orange")
+    };
+
+    // Percentages 0-100 cover every valid brightness and volume
+    private static final DeviceCommand.Brightness[] BRIGHTNESS_VALUES = new DeviceCommand.Brightness[101];
+    private static final DeviceCommand.Volume[] VOLUME_VALUES = new DeviceCommand.Volume[101];
+
+    static {
+        for (int i = 0; i <= 100; i++) {
+            BRIGHTNESS_VALUES[i] = new DeviceCommand.Brightness(i);
+            VOLUME_VALUES[i] = new DeviceCommand.Volume(i);
+        }
+    }
+
+    private DeviceCommandParser() {
+    }
+
+    static DeviceCommand parse(String text) {
+        for (int i = 0; i < KEYWORDS.length; i++) {
+            if (text.equalsIgnoreCase(KEYWORDS[i])) {
+                return KEYWORD_COMMANDS[i];
+            }
+        }
+
+        if (text.startsWith(BRIGHTNESS_PREFIX)) {
+            try {
+                return brightness(Integer.parseInt(text, BRIGHTNESS_PREFIX.length(), text.length(), 10));
+            } catch (NumberFormatException e) {
+                return new DeviceCommand.Malformed(DeviceCommand.BRIGHTNESS);
+            }
+        }
+
+        if (text.startsWith(VOLUME_PREFIX)) {
+            try {
+                return volume(Integer.parseInt(text, VOLUME_PREFIX.length(), text.length(), 10));
+            } catch (NumberFormatException e) {
+                return new DeviceCommand.Malformed(DeviceCommand.VOLUME);
+            }
+        }
+
+        if (text.startsWith(COLOR_PREFIX)) {
+            return parseColor(text);
+        }
+
+        if (text.startsWith(TARGET_PREFIX)) {
+            String target = text.substring(TARGET_PREFIX.length()).trim();
+            if (!looksNumeric(target)) {
+                return new DeviceCommand.Malformed(DeviceCommand.TARGET);
+            }
+            try {
+                return new DeviceCommand.Target(Double.parseDouble(target));
+            } catch (NumberFormatException e) {
+                return new DeviceCommand.Malformed(DeviceCommand.TARGET);
+            }
+        }
+
+        if (text.startsWith(VOICE_PREFIX)) {
+            return new DeviceCommand.Voice(text.substring(VOICE_PREFIX.length()));
+        }
+
+        // A bare number such as "22.5°C" is a thermostat target
+        String number = text.replace("°C", "").trim();
+        if (!looksNumeric(number)) {
+            return new DeviceCommand.Unknown(text); // Most unknown text, without the cost of an exception
+        }
+        try {
+            return new DeviceCommand.Target(Double.parseDouble(number));
+        } catch (NumberFormatException e) {
+            return new DeviceCommand.Unknown(text);
+        }
+    }
+
+    // Digits with an optional sign and decimal point; rules out words, NaN, Infinity and hex floats
+    private static boolean looksNumeric(String text) {
+        boolean digit = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digit = true;
+            } else if (c != '.' && c != '-' && c != '+') {
+                return false;
+            }
+        }
+        return digit;
+    }
+
+    static DeviceCommand.Brightness brightness(int percent) {
+        return percent >= 0 && percent <= 100 ? BRIGHTNESS_VALUES[percent] : new DeviceCommand.Brightness(percent);
+    }
+
+    static DeviceCommand.Volume volume(int percent) {
+        return percent >= 0 && percent <= 100 ? VOLUME_VALUES[percent] : new DeviceCommand.Volume(percent);
+    }
+
+    static DeviceCommand.Color color(String name) {
+        for (DeviceCommand.Color color : COLORS) {
+            if (color.name().equalsIgnoreCase(name)) {
+                return color;
+            }
+        }
+        return new DeviceCommand.Color(name.toLowerCase());
+    }
+
+    private static DeviceCommand.Color parseColor(String text) {
+        int valueLength = text.length() - COLOR_PREFIX.length();
+        for (DeviceCommand.Color color : COLORS) {
+            String name = color.name();
+            if (name.length() == valueLength
+                    && text.regionMatches(true, COLOR_PREFIX.length(), name, 0, valueLength)) {
+                return color;
+            }
+        }
+        return new DeviceCommand.Color(text.substring(COLOR_PREFIX.length()).toLowerCase());
+    }
+}
@@ -0,0 +1,35 @@
+package org.example.smarthomeapplication.model.device;
+
+import java.io.Serial;
+
+/**
+ * Thrown by {@link SmartDevice#executeAll} when a command fails, saying how far the batch got.
+ * The commands before the failed one stay applied; the failed one and those after it didn't run.
+ */
+public class PartialBatchException extends RuntimeException {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private final int failedIndex;
+    private final int executed;
+
+    public PartialBatchException(int failedIndex, int executed, RuntimeException cause) {
+        super(cause.getMessage(), cause);
+        this.failedIndex = failedIndex;
+        this.executed = executed;
+    }
+
+    /**
+     * @return index of the command that failed, which is also the number of commands that ran before it
+     */
+    public int getFailedIndex() {
+        return failedIndex;
+    }
+
+    /**
+     * @return commands before the failed one that the device supported
+     */
+    public int getExecuted() {
+        return executed;
+    }
+}
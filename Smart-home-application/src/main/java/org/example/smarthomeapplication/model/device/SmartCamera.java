@@ -1,183 +1,380 @@
 package org.example.smarthomeapplication.model.device;
 
-import java.io.File;
+import org.example.smarthomeapplication.model.camera.BurstCapture;
+import org.example.smarthomeapplication.model.camera.CapturePipeline;
+import org.example.smarthomeapplication.model.camera.FrameContainer;
+import org.example.smarthomeapplication.model.camera.MotionDetector;
+import org.example.smarthomeapplication.model.camera.PhotoDeletionService;
+import org.example.smarthomeapplication.model.camera.PhotoIndex;
+import org.example.smarthomeapplication.model.camera.ThumbnailStore;
+import org.example.smarthomeapplication.model.command.DeviceCommand;
+
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import javax.imageio.ImageIO;
-import java.awt.image.BufferedImage;
-import java.awt.Rectangle;
-import java.awt.Robot;
-import java.awt.Toolkit;
-import java.awt.Graphics2D;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 public class SmartCamera extends SmartDevice {
     private static final String PHOTOS_DIRECTORY = "camera_photos";
-    private boolean isRecording;
-    private boolean isNightMode;
+    private static final DateTimeFormatter PHOTO_TIME_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss_SSS");
+    private static final double MAX_BURST_FPS = 30;
+    private static final int BURST_FRAME_BUFFER = 8;
+    private static final String FRAMES_DIRECTORY = "frames";
+    private volatile boolean isRecording;
+    private volatile boolean isNightMode;
+    private final Path photoDirectory;
+    private final CapturePipeline pipeline; // null uses the shared one, created on first capture
+    private final ThumbnailStore thumbnails;
+    private final PhotoIndex photoIndex;
+    private final AtomicLong photoSequence = new AtomicLong();
+    private volatile FrameContainer frameContainer; // null while frames are stored as PNG files
+    private MotionDetector motionDetector; // created on first use
+    private volatile boolean motionGated = true;
+    private volatile boolean photosDirectoryCreated;
 
     public SmartCamera(String name) {
+        this(name, Paths.get(PHOTOS_DIRECTORY, name), null);
+    }
+
+    /**
+     * @param photoDirectory where this camera keeps its photos, thumbnails and recorded frames
+     * @param pipeline       captures the frames, or null for the shared pipeline
+     */
+    @SuppressWarnings("this-escape") // The thumbnail store and photo index only notify observers once they are used
+    public SmartCamera(String name, Path photoDirectory, CapturePipeline pipeline) {
         super(name);
+        this.photoDirectory = photoDirectory;
+        this.pipeline = pipeline;
+        this.thumbnails = new ThumbnailStore(photoDirectory, this::notifyObservers);
+        this.photoIndex = new PhotoIndex(photoDirectory, this::notifyObservers);
         this.status = "off";
         this.isRecording = false;
         this.isNightMode = false;
-
-        // Create photos directory if it doesn't exist
-        createPhotosDirectory();
     }
 
+    // Create photos directory on the first photo, so creating a camera has no side effects on disk
     private void createPhotosDirectory() {
+        if (photosDirectoryCreated) return;
         try {
-            Path photosPath = Paths.get(PHOTOS_DIRECTORY, deviceName);
-            Files.createDirectories(photosPath);
-            System.out.println("Photos directory created at: " + photosPath.toAbsolutePath());
+            Files.createDirectories(photoDirectory);
+            photosDirectoryCreated = true;
+            System.out.println("Photos directory created at: " + photoDirectory.toAbsolutePath());
         } catch (IOException e) {
             System.err.println("Failed to create photos directory: " + e.getMessage());
         }
     }
 
     @Override
-    public void changeState(String newState) {
+    public boolean execute(DeviceCommand command) {
         if (!isActive) {
             System.out.println("Device is disconnected");
-            return;
+            return true;
         }
 
-        switch (newState.toLowerCase()) {
-            case "off":
+        switch (command) {
+            case DeviceCommand.Off off -> {
                 this.status = "off";
                 this.isRecording = false;
                 this.isNightMode = false;
                 notifyObservers("Camera is off");
-                break;
-            case "on":
+            }
+            case DeviceCommand.On on -> {
                 this.status = "on";
                 this.isRecording = false;
                 this.isNightMode = false;
                 notifyObservers("Camera is on (standby)");
-                break;
-            case "recording":
-                this.status = "recording";
-                this.isRecording = true;
-                this.isNightMode = false;
-                notifyObservers("Camera is now recording");
-                takePhoto(); // Take initial photo when recording starts
-                break;
-            case "night mode":
-                this.status = "night mode";
-                this.isRecording = true;
-                this.isNightMode = true;
-                notifyObservers("Camera is in night mode recording");
-                takePhoto(); // Take initial photo when night mode starts
-                break;
-            default:
-                System.out.println("Invalid camera state: " + newState);
+            }
+            case DeviceCommand.Mode(String mode) -> {
+                switch (mode) {
+                    case "recording" -> {
+                        this.status = "recording";
+                        this.isRecording = true;
+                        this.isNightMode = false;
+                        notifyObservers("Camera is now recording");
+                        captureInitialFrame(); // Take initial photo when recording starts
+                    }
+                    case "night mode" -> {
+                        this.status = "night mode";
+                        this.isRecording = true;
+                        this.isNightMode = true;
+                        notifyObservers("Camera is in night mode recording");
+                        captureInitialFrame(); // Take initial photo when night mode starts
+                    }
+                    default -> {
+                        return false;
+                    }
+                }
+            }
+            default -> {
+                return false;
+            }
         }
+        return true;
+    }
+
+    @Override
+    protected void onUnsupportedState(String state) {
+        System.out.println("Invalid camera state: " + state);
     }
 
     /**
-     * Takes a photo if the camera is in recording mode
+     * Takes a photo if the camera is in recording mode and waits for it to be saved
      * @return true if photo was taken successfully, false otherwise
      */
     public boolean takePhoto() {
+        try {
+            return takePhotoAsync().join() != null;
+        } catch (CompletionException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Takes a photo in the background if the camera is in recording mode.
+     * Capture, night-mode conversion, encoding and the write run on the shared capture pipeline,
+     * so the calling thread never waits for the screen grab or the disk.
+     * @return completes with the saved file, or exceptionally if the photo could not be taken
+     */
+    public CompletableFuture<Path> takePhotoAsync() {
         if (!isActive) {
             System.out.println("Cannot take photo: Camera is disconnected");
-            return false;
+            return CompletableFuture.failedFuture(new IllegalStateException("Camera is disconnected"));
         }
 
         if (!isRecording) {
             System.out.println("Cannot take photo: Camera is not in recording mode");
-            return false;
+            return CompletableFuture.failedFuture(new IllegalStateException("Camera is not in recording mode"));
         }
 
-        try {
-            // Create a unique filename based on timestamp
-            LocalDateTime now = LocalDateTime.now();
-            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss");
-            String filename = deviceName + "_" + formatter.format(now) + ".png";
-
-            // Take screenshot as a simulation of a camera photo
-            Robot robot = new Robot();
-            Rectangle screenRect = new Rectangle(Toolkit.getDefaultToolkit().getScreenSize());
-            BufferedImage screenCapture = robot.createScreenCapture(screenRect);
-
-            // Convert to black and white if in night mode
-            if (isNightMode) {
-                screenCapture = convertToBlackAndWhite(screenCapture);
-            }
+        Path outputFile = nextPhotoPath();
+        String filename = outputFile.getFileName().toString();
+
+        return pipeline().capture(outputFile, isNightMode)
+                .whenComplete((path, error) -> {
+                    if (error == null) {
+                        photoSaved(path);
+                        // Notify users about the new photo
+                        notifyObservers("Photo taken: " + filename + ". View it in the gallery.");
+                    } else {
+                        notifyObservers("Failed to take photo: " + rootCause(error).getMessage());
+                    }
+                });
+    }
+
+    // One frame, stored the way this camera is set up to store frames, without notifying anyone.
+    // Completes with null if motion gating found nothing new in it.
+    private CompletableFuture<?> captureFrame() {
+        FrameContainer container = frameContainer;
+        MotionDetector motion = motionGated ? getMotionDetector() : null;
+        if (container != null) {
+            return pipeline().capture(container, isNightMode, motion);
+        }
+        return pipeline().capture(nextPhotoPath(), isNightMode, motion)
+                .whenComplete((path, error) -> {
+                    if (path != null) photoSaved(path);
+                });
+    }
+
+    private void captureInitialFrame() {
+        // A new recording always keeps its first frame
+        getMotionDetector().reset();
+        if (frameContainer != null) {
+            recordFrameAsync();
+        } else {
+            takePhotoAsync();
+        }
+    }
+
+    /**
+     * Records one frame into the frame container
+     * @return completes with the frame's index in the container, or null if motion gating skipped it
+     */
+    public CompletableFuture<Integer> recordFrameAsync() {
+        FrameContainer container = frameContainer;
+        if (container == null) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Frame storage is not enabled"));
+        }
+        if (!isActive || !isRecording) {
+            System.out.println("Cannot record frame: Camera is not in recording mode");
+            return CompletableFuture.failedFuture(new IllegalStateException("Camera is not in recording mode"));
+        }
 
-            // Save the image
-            File outputFile = new File(PHOTOS_DIRECTORY + "/" + deviceName + "/" + filename);
-            ImageIO.write(screenCapture, "png", outputFile);
+        return pipeline().capture(container, isNightMode, motionGated ? getMotionDetector() : null)
+                .whenComplete((frame, error) -> {
+                    if (frame != null) {
+                        notifyObservers("Frame " + frame + " recorded");
+                    } else if (error == null) {
+                        System.out.println("Frame skipped: no motion");
+                    } else {
+                        notifyObservers("Failed to record frame: " + rootCause(error).getMessage());
+                    }
+                });
+    }
 
-            // Notify users about the new photo
-            notifyObservers("Photo taken: " + filename + ". View it in the gallery.");
+    /**
+     * Switches recorded frames between one PNG file each and an append-only frame container.
+     * Explicit photos from takePhoto are always PNG files.
+     * @return true if the requested storage is now in use
+     */
+    public synchronized boolean setFrameStorage(boolean enabled) {
+        if (enabled == (frameContainer != null)) return true;
 
+        try {
+            if (enabled) {
+                frameContainer = new FrameContainer(photoDirectory.resolve(FRAMES_DIRECTORY));
+            } else {
+                FrameContainer container = frameContainer;
+                frameContainer = null;
+                container.close();
+            }
             return true;
-        } catch (Exception e) {
-            System.err.println("Failed to take photo: " + e.getMessage());
+        } catch (IOException e) {
+            System.err.println("Failed to switch frame storage: " + e.getMessage());
             return false;
         }
     }
 
     /**
-     * Converts a color image to black and white
-     * @param original the original color image
-     * @return black and white version of the image
+     * When on, which is the default, recorded frames and bursts only keep frames that differ from the last one
+     * kept; the rest are dropped before they are encoded or written. Explicit photos from takePhoto are always kept.
+     */
+    public void setMotionGating(boolean enabled) {
+        this.motionGated = enabled;
+    }
+
+    public boolean isMotionGatingEnabled() {
+        return motionGated;
+    }
+
+    /**
+     * Threshold and skipped-frame count for motion gating
+     */
+    public synchronized MotionDetector getMotionDetector() {
+        if (motionDetector == null) {
+            motionDetector = new MotionDetector(MotionDetector.DEFAULT_THRESHOLD,
+                    () -> notifyObservers("Motion detected"));
+        }
+        return motionDetector;
+    }
+
+    public boolean isFrameStorageEnabled() {
+        return frameContainer != null;
+    }
+
+    public int getRecordedFrameCount() {
+        FrameContainer container = frameContainer;
+        return container != null ? container.size() : 0;
+    }
+
+    /**
+     * Writes a recorded frame out as a PNG so it can be viewed; a frame exported before is reused
+     * @return completes with the PNG file
      */
-    private BufferedImage convertToBlackAndWhite(BufferedImage original) {
-        BufferedImage blackAndWhite = new BufferedImage(
-                original.getWidth(),
-                original.getHeight(),
-                BufferedImage.TYPE_BYTE_GRAY);
+    public CompletableFuture<Path> exportFrame(int frame) {
+        FrameContainer container = frameContainer;
+        if (container == null) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Frame storage is not enabled"));
+        }
+        Path target = photoDirectory.resolve(FRAMES_DIRECTORY).resolve(String.format("frame_%06d.png", frame));
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return Files.exists(target) ? target : container.exportPng(frame, target);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
 
-        Graphics2D g2d = blackAndWhite.createGraphics();
-        g2d.drawImage(original, 0, 0, null);
-        g2d.dispose();
+    // Unique filename: millisecond timestamp plus a per-camera counter, so names sort in the order taken
+    private Path nextPhotoPath() {
+        createPhotosDirectory();
+        String filename = deviceName + "_" + PHOTO_TIME_FORMAT.format(LocalDateTime.now())
+                + "_" + String.format("%06d", photoSequence.incrementAndGet()) + ".png";
+        return photoDirectory.resolve(filename);
+    }
 
-        return blackAndWhite;
+    private CapturePipeline pipeline() {
+        return pipeline != null ? pipeline : CapturePipeline.shared();
+    }
+
+    private void photoSaved(Path photo) {
+        photoIndex.add(photo);
+        thumbnails.generateAsync(photo.getFileName().toString());
+    }
+
+    private static Throwable rootCause(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
     }
 
     /**
-     * Takes multiple photos in sequence
+     * Takes multiple photos in sequence and waits for them to be saved
      * @param count number of photos to take
      * @param delayMs delay between photos in milliseconds
      * @return number of photos successfully taken
      */
     public int takePhotoSequence(int count, int delayMs) {
-        int successCount = 0;
+        double fps = delayMs > 0 ? 1000.0 / delayMs : MAX_BURST_FPS;
+        try {
+            return takeBurstAsync(count, Math.min(fps, MAX_BURST_FPS)).join().saved();
+        } catch (CompletionException e) {
+            return 0;
+        }
+    }
 
-        for (int i = 0; i < count; i++) {
-            if (takePhoto()) {
-                successCount++;
-            }
+    /**
+     * Takes a burst of photos on a fixed-rate schedule without waiting between them.
+     * Frames are encoded in parallel; frames that can't keep up with the rate are dropped and counted.
+     * @param count number of photos to take
+     * @param fps photos per second to aim for
+     * @return completes with how many photos were saved or dropped and the rate achieved
+     */
+    public CompletableFuture<BurstCapture.BurstResult> takeBurstAsync(int count, double fps) {
+        if (!isActive) {
+            System.out.println("Cannot take photo: Camera is disconnected");
+            return CompletableFuture.failedFuture(new IllegalStateException("Camera is disconnected"));
+        }
 
-            try {
-                Thread.sleep(delayMs);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                break;
-            }
+        if (!isRecording) {
+            System.out.println("Cannot take photo: Camera is not in recording mode");
+            return CompletableFuture.failedFuture(new IllegalStateException("Camera is not in recording mode"));
         }
 
-        notifyObservers("Photo sequence completed: " + successCount + "/" + count + " photos taken. View them in the gallery.");
-        return successCount;
+        BurstCapture burst = new BurstCapture(count, fps, BURST_FRAME_BUFFER, this::captureFrame);
+        return burst.start().whenComplete((result, error) -> {
+            if (result != null) {
+                notifyObservers("Photo sequence completed: " + result.saved() + "/" + count + " photos taken ("
+                        + String.format("%.1f", result.achievedFps()) + " fps, " + result.skipped()
+                        + " unchanged, " + result.dropped() + " dropped). View them in the gallery.");
+            }
+        });
     }
 
     /**
-     * Gets all photos taken by this camera
-     * @return array of photo file paths
+     * Gets all photos taken by this camera, oldest first
+     * @return array of photo file names
      */
     public String[] getPhotosList() {
-        File photoDir = new File(PHOTOS_DIRECTORY + "/" + deviceName);
-        if (!photoDir.exists() || !photoDir.isDirectory()) {
-            return new String[0];
+        List<PhotoIndex.Photo> photos = photoIndex.photos();
+        String[] names = new String[photos.size()];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = photos.get(i).name();
         }
+        return names;
+    }
 
-        return photoDir.list((dir, name) -> name.toLowerCase().endsWith(".png"));
+    /**
+     * Sorted, always current list of this camera's photos, with counts and sizes
+     */
+    public PhotoIndex getPhotoIndex() {
+        return photoIndex;
     }
 
     /**
@@ -186,35 +383,70 @@ public class SmartCamera extends SmartDevice {
      * @return full path to the photo
      */
     public String getPhotoPath(String photoName) {
-        return PHOTOS_DIRECTORY + "/" + deviceName + "/" + photoName;
+        return photoDirectory.resolve(photoName).toString();
     }
 
     /**
-     * Deletes all photos taken by this camera
+     * Deletes all photos taken by this camera, waiting until they are gone
      * @return true if successful, false otherwise
      */
     public boolean clearAllPhotos() {
-        File photoDir = new File(PHOTOS_DIRECTORY + "/" + deviceName);
-        if (!photoDir.exists() || !photoDir.isDirectory()) {
+        if (!Files.isDirectory(photoDirectory)) {
             return false;
         }
+        return clearAllPhotosAsync(null).result().join().isComplete();
+    }
+
+    /**
+     * Deletes all photos taken by this camera in the background
+     * @param onProgress called from the deletion thread after each batch, may be null
+     */
+    public PhotoDeletionService.Deletion clearAllPhotosAsync(Consumer<PhotoDeletionService.Progress> onProgress) {
+        return deletePhotos(photoIndex.photos(), onProgress, "All photos cleared from " + deviceName);
+    }
 
-        boolean success = true;
-        File[] photos = photoDir.listFiles((dir, name) -> name.toLowerCase().endsWith(".png"));
+    /**
+     * Deletes the photos taken in [fromMillis, toMillis) in the background, e.g. to apply a retention period
+     * @param onProgress called from the deletion thread after each batch, may be null
+     */
+    public PhotoDeletionService.Deletion deletePhotosAsync(long fromMillis, long toMillis,
+                                                           Consumer<PhotoDeletionService.Progress> onProgress) {
+        List<PhotoIndex.Photo> photos = photoIndex.between(fromMillis, toMillis);
+        return deletePhotos(photos, onProgress, photos.size() + " photos deleted from " + deviceName);
+    }
 
-        if (photos != null) {
-            for (File photo : photos) {
-                if (!photo.delete()) {
-                    success = false;
-                }
+    private PhotoDeletionService.Deletion deletePhotos(List<PhotoIndex.Photo> photos,
+                                                       Consumer<PhotoDeletionService.Progress> onProgress,
+                                                       String completedMessage) {
+        PhotoDeletionService.Deletion deletion =
+                PhotoDeletionService.shared().delete(photoIndex, thumbnails, photos, onProgress);
+        deletion.result().thenAccept(result -> {
+            if (result.isComplete()) {
+                notifyObservers(completedMessage);
+            } else {
+                notifyObservers("Deleted " + result.deleted() + "/" + result.requested() + " photos from " + deviceName
+                        + (result.cancelled() ? " before it was cancelled" : ""));
             }
-        }
+        });
+        return deletion;
+    }
 
-        if (success) {
-            notifyObservers("All photos cleared from " + deviceName);
-        }
+    /**
+     * Small versions of this camera's photos, for the gallery
+     */
+    public ThumbnailStore getThumbnails() {
+        return thumbnails;
+    }
 
-        return success;
+    /**
+     * Puts back a saved mode ("on", "off", "recording" or "night mode") without notifying observers
+     * or taking a photo, e.g. when devices are restored on startup
+     */
+    public void restoreState(String mode) {
+        this.status = mode;
+        this.isRecording = mode.equals("recording") || mode.equals("night mode");
+        this.isNightMode = mode.equals("night mode");
+        stateChanged();
     }
 
     public boolean isRecording() {
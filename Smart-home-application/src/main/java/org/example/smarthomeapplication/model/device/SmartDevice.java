@@ -1,36 +1,159 @@
 package org.example.smarthomeapplication.model.device;
 
+import org.example.smarthomeapplication.event.AsyncEventBus;
+import org.example.smarthomeapplication.model.command.DeviceCommand;
 import org.example.smarthomeapplication.user.Observer;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public abstract class SmartDevice {
     protected String deviceName;
     protected String status;
     protected boolean isActive;
-    protected List<Observer> observers = new ArrayList<>();
+    protected List<Observer> observers = new CopyOnWriteArrayList<>();
+    private final List<StateListener> stateListeners = new CopyOnWriteArrayList<>();
+    private volatile AsyncEventBus eventBus; // null means observers are notified on the caller's thread
+    private volatile Thread batchThread; // thread running executeAll, its notifications are held back
+    private List<String> batchNotifications;
 
     public SmartDevice(String deviceName) {
         this.deviceName = deviceName;
         this.isActive = true;
     }
 
-    public void addObserver(Observer observer) {
+    public synchronized void addObserver(Observer observer) {
         observers.add(observer);
+        if (eventBus != null) {
+            eventBus.subscribe(observer);
+        }
+    }
+
+    /**
+     * Also releases the observer's queue on the event bus, once no other device uses it
+     */
+    public synchronized void removeObserver(Observer observer) {
+        if (observers.remove(observer) && eventBus != null) {
+            eventBus.unsubscribe(observer);
+        }
+    }
+
+    public void addStateListener(StateListener listener) {
+        stateListeners.add(listener);
+    }
+
+    public void removeStateListener(StateListener listener) {
+        stateListeners.remove(listener);
     }
 
-    public void removeObserver(Observer observer) {
-        observers.remove(observer);
+    /**
+     * Tells state listeners that something readable through the getters changed.
+     * Subclasses call this after each change, including ones they don't notify observers about.
+     */
+    protected void stateChanged() {
+        for (StateListener listener : stateListeners) {
+            listener.stateChanged(this);
+        }
+    }
+
+    /**
+     * Switches between synchronous notification and delivery through the event bus
+     * @param eventBus bus to publish to, or null to notify observers directly
+     */
+    public synchronized void setEventBus(AsyncEventBus eventBus) {
+        if (eventBus == this.eventBus) return;
+        for (Observer observer : observers) {
+            if (this.eventBus != null) {
+                this.eventBus.unsubscribe(observer);
+            }
+            if (eventBus != null) {
+                eventBus.subscribe(observer);
+            }
+        }
+        this.eventBus = eventBus;
     }
 
     protected void notifyObservers(String message) {
+        if (observers.isEmpty()) return;
+
+        String event = deviceName + ": " + message;
+        if (batchThread == Thread.currentThread()) {
+            batchNotifications.add(event);
+            return;
+        }
+
+        AsyncEventBus bus = eventBus;
         for (Observer observer : observers) {
-            observer.update(deviceName + ": " + message);
+            if (bus != null) {
+                bus.publish(observer, event);
+            } else {
+                observer.update(event);
+            }
         }
     }
 
-    public abstract void changeState(String newState);
+    /**
+     * Parses the text state and executes it; kept for callers that still speak in strings
+     * @param newState state such as "on", "brightness:80" or "target:21.5"
+     */
+    public void changeState(String newState) {
+        if (!execute(DeviceCommand.parse(newState))) {
+            onUnsupportedState(newState);
+        }
+    }
+
+    /**
+     * Applies an already parsed command
+     * @return false if this device doesn't support the command, true otherwise (even if its value was rejected)
+     */
+    public abstract boolean execute(DeviceCommand command);
+
+    /**
+     * Executes the commands in order and hands every observer all the resulting
+     * notifications as a single batch instead of one update per command
+     * @return number of commands this device supported
+     * @throws PartialBatchException if a command fails; the commands before it stay applied
+     */
+    public synchronized int executeAll(List<DeviceCommand> commands) {
+        batchNotifications = new ArrayList<>();
+        batchThread = Thread.currentThread();
+        int executed = 0;
+        int index = 0;
+        try {
+            for (; index < commands.size(); index++) {
+                if (execute(commands.get(index))) {
+                    executed++;
+                }
+            }
+        } catch (RuntimeException e) {
+            throw new PartialBatchException(index, executed, e);
+        } finally {
+            batchThread = null;
+            List<String> notifications = batchNotifications;
+            batchNotifications = null;
+            publishBatch(notifications);
+        }
+        return executed;
+    }
+
+    private void publishBatch(List<String> notifications) {
+        if (notifications.isEmpty()) return;
+
+        AsyncEventBus bus = eventBus;
+        for (Observer observer : observers) {
+            if (bus != null) {
+                bus.publishBatch(observer, notifications);
+            } else {
+                observer.updateBatch(notifications);
+            }
+        }
+    }
+
+    // Reports a state this device doesn't understand
+    protected void onUnsupportedState(String state) {
+        notifyObservers("Unrecognized state: " + state);
+    }
 
     public String getDeviceName() {
         return deviceName;
@@ -46,6 +169,14 @@ public abstract class SmartDevice {
 
     public void setActive(boolean active) {
         isActive = active;
+        stateChanged();
         notifyObservers(active ? "Device connected" : "Device disconnected");
     }
+
+    /**
+     * Told when a device's state changes, without any message text; runs on the thread that changed it
+     */
+    public interface StateListener {
+        void stateChanged(SmartDevice device);
+    }
 }
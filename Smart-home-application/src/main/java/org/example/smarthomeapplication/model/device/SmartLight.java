@@ -1,5 +1,7 @@
 package org.example.smarthomeapplication.model.device;
 
+import org.example.smarthomeapplication.model.command.DeviceCommand;
+
 public class SmartLight extends SmartDevice {
     private int brightness;
     private String color;
@@ -12,52 +14,70 @@ public class SmartLight extends SmartDevice {
     }
 
     @Override
-    public void changeState(String newState) {
+    public boolean execute(DeviceCommand command) {
         if (!isActive) {
             System.out.println("Device is disconnected");
-            return;
-        }
-
-        // Handle on/off states
-        if (newState.equalsIgnoreCase("on") || newState.equalsIgnoreCase("off")) {
-            this.status = newState.toLowerCase();
-            notifyObservers("Light is " + status);
-            return;
+            return true;
         }
 
-        // Handle brightness changes
-        if (newState.startsWith("brightness:")) {
-            try {
-                String brightnessStr = newState.substring("brightness:".length());
-                int newBrightness = Integer.parseInt(brightnessStr);
+        switch (command) {
+            // Handle on/off states
+            case DeviceCommand.On on -> {
+                this.status = "on";
+                stateChanged();
+                notifyObservers("Light is on");
+            }
+            case DeviceCommand.Off off -> {
+                this.status = "off";
+                stateChanged();
+                notifyObservers("Light is off");
+            }
 
+            // Handle brightness changes
+            case DeviceCommand.Brightness(int newBrightness) -> {
                 if (newBrightness >= 0 && newBrightness <= 100) {
                     this.brightness = newBrightness;
+                    stateChanged();
                     notifyObservers("Brightness changed to " + brightness + "%");
                 } else {
                     notifyObservers("Invalid brightness value: " + newBrightness + " (must be 0-100)");
                 }
-            } catch (NumberFormatException e) {
-                notifyObservers("Invalid brightness format");
             }
-            return;
-        }
+            case DeviceCommand.Malformed(String field) when field.equals(DeviceCommand.BRIGHTNESS) ->
+                    notifyObservers("Invalid brightness format");
 
-        // Handle color changes
-        if (newState.startsWith("color:")) {
-            String newColor = newState.substring("color:".length()).toLowerCase();
-            switch (newColor) {
-                case "red", "blue", "pink", "white", "green", "yellow", "purple", "orange" -> {
-                    this.color = newColor;
-                    notifyObservers("Color changed to " + color);
+            // Handle color changes
+            case DeviceCommand.Color(String newColor) -> {
+                switch (newColor) {
+                    case "red", "blue", "pink", "white", "green", "yellow", "purple", "orange" -> {
+                        this.color = newColor;
+                        stateChanged();
+                        notifyObservers("Color changed to " + color);
+                    }
+                    default -> notifyObservers("Unsupported color: " + newColor);
                 }
-                default -> notifyObservers("Unsupported color: " + newColor);
             }
-            return;
+
+            // Anything else is an unrecognized state
+            default -> {
+                return false;
+            }
         }
+        return true;
+    }
+
+    /**
+     * Puts back a saved state without notifying observers, e.g. when devices are restored on startup
+     */
+    public void restoreState(boolean on, int brightness, String color) {
+        this.status = on ? "on" : "off";
+        this.brightness = brightness;
+        this.color = color;
+        stateChanged();
+    }
 
-        // If we get here, it's an unrecognized state
-        notifyObservers("Unrecognized state: " + newState);
+    public boolean isOn() {
+        return "on".equalsIgnoreCase(status);
     }
 
     public int getBrightness() {
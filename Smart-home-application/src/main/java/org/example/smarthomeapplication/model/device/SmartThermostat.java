@@ -1,9 +1,13 @@
 package org.example.smarthomeapplication.model.device;
 
+import org.example.smarthomeapplication.model.command.DeviceCommand;
+import org.example.smarthomeapplication.model.telemetry.ThermostatTelemetry;
+import org.example.smarthomeapplication.model.telemetry.ThermostatTelemetry.Channel;
+
 import org.example.smarthomeapplication.viewmodel.SmartHomeController;
 
 import java.time.LocalDateTime;
-import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 
 public class SmartThermostat extends SmartDevice {
     private double currentTemperature;
@@ -12,12 +16,14 @@ public class SmartThermostat extends SmartDevice {
     private double energyUsage;
     private double humidityLevel;
     private LocalDateTime lastModeChange;
-    private static final Random random = new Random();
+    private boolean statusStale; // status text is only formatted when someone reads it
+    private volatile ThermostatTelemetry telemetry; // only kept while someone asked for history
 
     // Temperature change rates in degrees per minute
     private static final double HEATING_RATE = 0.5;
     private static final double COOLING_RATE = 0.4;
     private static final double NATURAL_CHANGE_RATE = 0.1;
+    private static final long WEEK_MILLIS = 7L * 24 * 60 * 60 * 1000;
 
     public SmartThermostat(String name) {
         super(name);
@@ -31,10 +37,10 @@ public class SmartThermostat extends SmartDevice {
     }
 
     @Override
-    public void changeState(String newState) {
+    public synchronized boolean execute(DeviceCommand command) {
         if (!isActive) {
             notifyObservers("Device is disconnected");
-            return;
+            return true;
         }
 
         String originalMode = this.mode;
@@ -46,20 +52,14 @@ public class SmartThermostat extends SmartDevice {
             energyUsage += calculateEnergyUsage(originalMode, minutesInMode);
         }
 
-        // Parse new state
-        if (newState.startsWith("target:")) {
-            try {
-                double newTarget = Double.parseDouble(newState.substring(7));
+        switch (command) {
+            case DeviceCommand.Target(double newTarget) -> {
                 setTargetTemperature(newTarget);
                 notifyObservers("Target temperature set to " + String.format("%.1f°C", targetTemperature));
-            } catch (NumberFormatException e) {
-                notifyObservers("Invalid temperature format");
             }
-            return;
-        }
-
-        switch (newState.toLowerCase()) {
-            case "current temperature" -> {
+            case DeviceCommand.Malformed(String field) when field.equals(DeviceCommand.TARGET) ->
+                    notifyObservers("Invalid temperature format");
+            case DeviceCommand.Query query -> {
                 // Just display current status without changing mode
                 String tempInfo = String.format("Current temperature: %.1f°C, Target: %.1f°C, Mode: %s",
                         currentTemperature, targetTemperature, mode.toUpperCase());
@@ -67,44 +67,50 @@ public class SmartThermostat extends SmartDevice {
                 String energyInfo = String.format("Energy usage: %.2f kWh", energyUsage);
                 notifyObservers(tempInfo + "\n" + humidityInfo + "\n" + energyInfo);
             }
-            case "cooling" -> {
-                mode = "cooling";
-                lastModeChange = now;
-                simulateTemperatureChanges();
-                updateStatus();
-                notifyObservers("Cooling mode activated. Target: " + String.format("%.1f°C", targetTemperature));
-            }
-            case "heating" -> {
-                mode = "heating";
-                lastModeChange = now;
-                simulateTemperatureChanges();
-                updateStatus();
-                notifyObservers("Heating mode activated. Target: " + String.format("%.1f°C", targetTemperature));
-            }
-            case "auto" -> {
-                mode = "auto";
-                lastModeChange = now;
-                decideAutoMode();
-                updateStatus();
-                notifyObservers("Auto mode activated. System will maintain " + String.format("%.1f°C", targetTemperature));
-            }
-            case "off" -> {
+            case DeviceCommand.Off off -> {
                 mode = "off";
                 lastModeChange = now;
                 updateStatus();
                 notifyObservers("Thermostat turned off");
             }
-            default -> {
-                try {
-                    // Try to parse the input as a direct temperature setting
-                    double newTemp = Double.parseDouble(newState.replace("°C", "").trim());
-                    setTargetTemperature(newTemp);
-                    notifyObservers("Target temperature set to " + String.format("%.1f°C", targetTemperature));
-                } catch (NumberFormatException e) {
-                    notifyObservers("Unknown command: " + newState);
+            case DeviceCommand.Mode(String newMode) -> {
+                switch (newMode) {
+                    case "cooling" -> {
+                        mode = "cooling";
+                        lastModeChange = now;
+                        simulateTemperatureChanges();
+                        updateStatus();
+                        notifyObservers("Cooling mode activated. Target: " + String.format("%.1f°C", targetTemperature));
+                    }
+                    case "heating" -> {
+                        mode = "heating";
+                        lastModeChange = now;
+                        simulateTemperatureChanges();
+                        updateStatus();
+                        notifyObservers("Heating mode activated. Target: " + String.format("%.1f°C", targetTemperature));
+                    }
+                    case "auto" -> {
+                        mode = "auto";
+                        lastModeChange = now;
+                        decideAutoMode();
+                        updateStatus();
+                        notifyObservers("Auto mode activated. System will maintain " + String.format("%.1f°C", targetTemperature));
+                    }
+                    default -> {
+                        return false;
+                    }
                 }
             }
+            default -> {
+                return false;
+            }
         }
+        return true;
+    }
+
+    @Override
+    protected void onUnsupportedState(String state) {
+        notifyObservers("Unknown command: " + state);
     }
 
     public void openControlPanel(SmartHomeController controller) {
@@ -112,7 +118,7 @@ public class SmartThermostat extends SmartDevice {
         controlPanel.showThermostatControlPanel(this.getDeviceName());
     }
 
-    public void setTargetTemperature(double target) {
+    public synchronized void setTargetTemperature(double target) {
         // Limit to reasonable range (10-32°C)
         if (target < 10) target = 10;
         if (target > 32) target = 32;
@@ -143,8 +149,23 @@ public class SmartThermostat extends SmartDevice {
         }
     }
 
-    public void simulateTemperatureChanges() {
+    /**
+     * Puts back saved readings and settings without notifying observers, e.g. when devices are restored on startup
+     */
+    public synchronized void restoreState(double currentTemperature, double targetTemperature, String mode,
+                                          double energyUsage, double humidityLevel) {
+        this.currentTemperature = currentTemperature;
+        this.targetTemperature = targetTemperature;
+        this.mode = mode;
+        this.energyUsage = energyUsage;
+        this.humidityLevel = humidityLevel;
+        this.lastModeChange = LocalDateTime.now();
+        updateStatus();
+    }
+
+    public synchronized void simulateTemperatureChanges() {
         // Simulate temperature change based on current mode
+        ThreadLocalRandom random = ThreadLocalRandom.current();
         double tempChange = 0.0;
         double humidityChange = 0.0;
 
@@ -184,6 +205,30 @@ public class SmartThermostat extends SmartDevice {
         }
 
         updateStatus();
+
+        ThermostatTelemetry history = telemetry;
+        if (history != null) {
+            history.record(System.currentTimeMillis(), currentTemperature, targetTemperature,
+                    humidityLevel, energyUsage);
+        }
+    }
+
+    /**
+     * Starts keeping a history of readings, recorded on every simulation step
+     * @return the history, shared with anyone who enabled it before
+     */
+    public synchronized ThermostatTelemetry enableTelemetry() {
+        if (telemetry == null) {
+            telemetry = new ThermostatTelemetry();
+        }
+        return telemetry;
+    }
+
+    /**
+     * @return the history of readings, or null if it was never enabled
+     */
+    public ThermostatTelemetry getTelemetry() {
+        return telemetry;
     }
 
     private double calculateEnergyUsage(String mode, double minutes) {
@@ -198,8 +243,18 @@ public class SmartThermostat extends SmartDevice {
     }
 
     private void updateStatus() {
-        String modeDisplay = mode.toUpperCase();
-        this.status = String.format("%.1f°C | %s", currentTemperature, modeDisplay);
+        statusStale = true;
+        stateChanged();
+    }
+
+    @Override
+    public synchronized String getStatus() {
+        if (statusStale) {
+            String modeDisplay = mode.toUpperCase();
+            this.status = String.format("%.1f°C | %s", currentTemperature, modeDisplay);
+            statusStale = false;
+        }
+        return status;
     }
 
     public double getCurrentTemperature() {
@@ -228,8 +283,17 @@ public class SmartThermostat extends SmartDevice {
         report.append("=== Weekly Thermostat Report ===\n");
         report.append(String.format("Total Energy Usage: %.2f kWh\n", energyUsage));
         report.append(String.format("Estimated Cost: $%.2f\n", energyUsage * 0.15)); // Assuming $0.15 per kWh
-        report.append(String.format("Average Temperature: %.1f°C\n", currentTemperature));
-        report.append(String.format("Average Humidity: %.1f%%\n", humidityLevel));
+
+        // Average over the recorded week when there is history, otherwise the current reading
+        double averageTemperature = currentTemperature;
+        double averageHumidity = humidityLevel;
+        ThermostatTelemetry history = telemetry;
+        if (history != null && history.size() > 0) {
+            averageTemperature = history.summarizeLast(Channel.CURRENT_TEMPERATURE, WEEK_MILLIS).average();
+            averageHumidity = history.summarizeLast(Channel.HUMIDITY, WEEK_MILLIS).average();
+        }
+        report.append(String.format("Average Temperature: %.1f°C\n", averageTemperature));
+        report.append(String.format("Average Humidity: %.1f%%\n", averageHumidity));
 
         // Calculate energy saving recommendations
         double potentialSavings = 0;
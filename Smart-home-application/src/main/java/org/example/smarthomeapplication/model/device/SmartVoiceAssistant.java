@@ -1,292 +1,352 @@
 package org.example.smarthomeapplication.model.device;
 
+import org.example.smarthomeapplication.model.command.DeviceCommand;
+import org.example.smarthomeapplication.model.voice.CommandHistory;
+import org.example.smarthomeapplication.model.voice.KeywordMatcher;
+import org.example.smarthomeapplication.model.voice.LatencyHistogram;
+import org.example.smarthomeapplication.model.voice.Placeholder;
+import org.example.smarthomeapplication.model.voice.ResponseContext;
+import org.example.smarthomeapplication.model.voice.ResponseTemplates;
+import org.example.smarthomeapplication.model.voice.VoiceRequestQueue;
+import org.example.smarthomeapplication.viewmodel.DeviceReadModel;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.function.Function;
 
 public class SmartVoiceAssistant extends SmartDevice {
-    private String listeningMode; // "active", "passive", "muted"
+    private static final String HISTORY_DIRECTORY = "voice_history";
+    private static final int MAX_HISTORY_NAME_CHARS = 120;
+    private static final HexFormat HEX = HexFormat.of().withUpperCase();
+    private static final Set<String> RESERVED_FILE_NAMES = Set.of( // Windows device names, whatever the extension
+            "CON", "PRN", "AUX", "NUL", "COM1", "COM2", "COM3", "COM4", "COM5", "COM6", "COM7", "COM8", "COM9",
+            "LPT1", "LPT2", "LPT3", "LPT4", "LPT5", "LPT6", "LPT7", "LPT8", "LPT9");
+    private static final List<String> DEFAULT_COMMANDS = List.of(
+            "lights", "temperature", "music", "camera", "security", "weather", "news", "time", "reminders", "routines");
+
+    // Keyword groups of the command router. Within a group the first keyword found in this order wins.
+    private static final int INTENT = 0;
+    private static final int SECURITY_ACTION = 1;
+    private static final int WEATHER_PERIOD = 2;
+    // Small talk first, then the commands that have their own answers, then the other supported commands
+    private static final List<String> INTENTS =
+            List.of("hello", "hi", "thank", "temperature", "lights", "time", "security", "weather");
+    private static final List<String> SECURITY_ACTIONS = List.of("disarm", "arm", "check", "camera");
+    private static final List<String> WEATHER_PERIODS = List.of("today", "tomorrow", "weekend", "week");
+    private static final KeywordMatcher DEFAULT_ROUTER = newRouter().build();
+
+    private static final ResponseTemplates RESPONSES = ResponseTemplates.shared();
+    private static final int MAX_LIGHTS_NAMED = 5;
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("h:mm a");
+    private static final DateTimeFormatter DAY_OF_WEEK_FORMAT = DateTimeFormatter.ofPattern("EEEE");
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("MMMM d, yyyy");
+    private static final List<String> FALLBACK_RESPONSES = List.of(
+            "I'm not quite sure I understood that.",
+            "Could you rephrase that for me?",
+            "I'm listening, but could you be more specific?",
+            "Hmm, I didn't catch that completely."
+    );
+
+    private volatile String listeningMode; // "active", "passive", "muted"
     private int volume;
     private List<String> supportedCommands;
-    private Map<String, String> commandHistory;
-    private String activeConversation;
-    private boolean isProcessingCommand;
+    private final CommandHistory commandHistory;
+    private volatile String activeConversation;
+    private final VoiceRequestQueue requests;
     private final Random random = new Random();
-    private ResponseGenerator responseGenerator;
+    private volatile KeywordMatcher router = DEFAULT_ROUTER;
+    private volatile DeviceReadModel readModel; // null until the assistant joins a controller
+    private KeywordMatcher.Builder routerBuilder; // created when the first command is added
 
     public SmartVoiceAssistant(String deviceName) {
+        this(deviceName, Paths.get(""));
+    }
+
+    /**
+     * @param dataDirectory the command history is logged in its voice_history folder
+     */
+    public SmartVoiceAssistant(String deviceName, Path dataDirectory) {
+        this(deviceName, new CommandHistory(CommandHistory.DEFAULT_CAPACITY,
+                dataDirectory.resolve(HISTORY_DIRECTORY).resolve(historyFileName(deviceName))));
+    }
+
+    /**
+     * @param commandHistory where heard commands are kept, e.g. an in-memory history for simulations
+     */
+    public SmartVoiceAssistant(String deviceName, CommandHistory commandHistory) {
         super(deviceName);
         this.listeningMode = "passive";
         this.volume = 50;
         this.status = "idle";
-        this.supportedCommands = new ArrayList<>();
-        this.commandHistory = new LinkedHashMap<>();
+        this.supportedCommands = new ArrayList<>(DEFAULT_COMMANDS);
+        this.commandHistory = commandHistory;
         this.activeConversation = "";
-        this.isProcessingCommand = false;
-
-        // default supported commands
-        supportedCommands.add("lights");
-        supportedCommands.add("temperature");
-        supportedCommands.add("music");
-        supportedCommands.add("camera");
-        supportedCommands.add("security");
-        supportedCommands.add("weather");
-        supportedCommands.add("news");
-        supportedCommands.add("time");
-        supportedCommands.add("reminders");
-        supportedCommands.add("routines");
-        this.responseGenerator = new ResponseGenerator();
-    }
-
-    private class ResponseGenerator {
-        private class ResponseTemplate {
-            List<String> variations;
-
-            ResponseTemplate(String... templates) {
-                this.variations = Arrays.asList(templates);
+        this.requests = new VoiceRequestQueue(new VoiceRequestQueue.Handler() {
+            @Override
+            public void started(String command) {
+                commandStarted(command);
             }
 
-            String generate(Map<String, String> context) {
-                // Select a random variation
-                String template = variations.get(random.nextInt(variations.size()));
+            @Override
+            public void respond(String command) {
+                SmartVoiceAssistant.this.respond(command);
+            }
+        });
+    }
 
-                // Replace placeholders with context values
-                for (Map.Entry<String, String> entry : context.entrySet()) {
-                    template = template.replace("{{" + entry.getKey() + "}}", entry.getValue());
-                }
+    private static KeywordMatcher.Builder newRouter() {
+        return new KeywordMatcher.Builder(3)
+                .addAll(INTENT, INTENTS)
+                .addAll(INTENT, DEFAULT_COMMANDS)
+                .addAll(SECURITY_ACTION, SECURITY_ACTIONS)
+                .addAll(WEATHER_PERIOD, WEATHER_PERIODS);
+    }
 
-                return template;
+    /**
+     * The log file for a user-typed device name. Every byte of the name other than an ASCII letter, digit,
+     * '-' or '_' is percent-encoded, so different names get different files, none can leave the folder
+     * and none uses a character Windows rejects. Long names are cut and end with a hash of the whole name.
+     */
+    static String historyFileName(String deviceName) {
+        StringBuilder name = new StringBuilder();
+        for (byte b : deviceName.getBytes(StandardCharsets.UTF_8)) {
+            if ((b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || (b >= '0' && b <= '9') || b == '-' || b == '_') {
+                name.append((char) b);
+            } else {
+                name.append('%').append(HEX.toHexDigits(b));
             }
         }
-
-        private Map<String, ResponseTemplate> responseTemplates = new HashMap<>();
-
-        ResponseGenerator() {
-            // Temperature response templates with multiple variations
-            responseTemplates.put("temperature", new ResponseTemplate(
-                    "The temperature is currently {{temp}}°C. Would you like me to adjust it?",
-                    "I'm detecting a room temperature of {{temp}}°C. Shall I make any changes?",
-                    "Current reading shows {{temp}}°C. How are you feeling about the temperature?",
-                    "Checking the thermostat... we're sitting at {{temp}}°C right now."
-            ));
-
-            // Time response templates
-            responseTemplates.put("time", new ResponseTemplate(
-                    "The current time is {{time}}. It's {{dayOfWeek}} today.",
-                    "Right now, it's {{time}} on {{dayOfWeek}}, {{date}}.",
-                    "My internal clock says it's {{time}} on {{dayOfWeek}}, {{date}}.",
-                    "Synchronizing time... we're at {{time}}, {{dayOfWeek}} {{date}}."
-            ));
-
-            // Security response templates
-            responseTemplates.put("security", new ResponseTemplate(
-                    "{{action}} security system in progress...",
-                    "Executing {{action}} for home security.",
-                    "Processing security {{action}} request.",
-                    "Security protocol for {{action}} is now active."
-            ));
-
-            // Weather response templates
-            responseTemplates.put("weather", new ResponseTemplate(
-                    "Let me check the forecast for {{period}}...",
-                    "Weather update for {{period}} incoming.",
-                    "Retrieving meteorological data for {{period}}.",
-                    "Scanning atmospheric conditions for {{period}}."
-            ));
+        if (RESERVED_FILE_NAMES.contains(name.toString().toUpperCase(Locale.ROOT))) {
+            name.replace(0, 1, "%" + HEX.toHexDigits((byte) name.charAt(0)));
         }
+        if (name.length() > MAX_HISTORY_NAME_CHARS) {
+            // Longer than any name kept whole, so a cut name can't match one
+            int cut = MAX_HISTORY_NAME_CHARS;
+            int escape = name.lastIndexOf("%", cut - 1);
+            if (escape > cut - 3) {
+                cut = escape; // Don't split an escape
+            }
+            name.setLength(cut);
+            name.append('-').append(HEX.formatHex(sha256(deviceName), 0, 8));
+        }
+        return name.append(".log").toString();
+    }
 
-        // Generate a contextual response
-        String generateResponse(String type, Map<String, String> context) {
-            ResponseTemplate template = responseTemplates.get(type);
-            return template != null
-                    ? template.generate(context)
-                    : "I'm not sure how to respond to that right now.";
+    private static byte[] sha256(String text) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Every JVM has SHA-256", e);
         }
     }
 
     private String generateTimeResponse(String command) {
         LocalDateTime now = LocalDateTime.now();
-        Map<String, String> context = new HashMap<>();
+        ResponseContext context = ResponseContext.forThisThread()
+                .set(Placeholder.TIME, now.format(TIME_FORMAT))
+                .set(Placeholder.DAY_OF_WEEK, now.format(DAY_OF_WEEK_FORMAT))
+                .set(Placeholder.DATE, now.format(DATE_FORMAT));
+
+        return RESPONSES.render(ResponseTemplates.Type.TIME, context);
+    }
 
-        context.put("time", now.format(DateTimeFormatter.ofPattern("h:mm a")));
-        context.put("dayOfWeek", now.format(DateTimeFormatter.ofPattern("EEEE")));
-        context.put("date", now.format(DateTimeFormatter.ofPattern("MMMM d, yyyy")));
+    // Read from the controller's read model, so the answer doesn't depend on how many devices there are
+    private String generateTemperatureResponse() {
+        DeviceReadModel home = readModel;
+        OptionalDouble average = home != null ? home.getAverageTemperature() : OptionalDouble.empty();
+        if (average.isEmpty()) {
+            return RESPONSES.render(ResponseTemplates.Type.NO_THERMOSTATS, ResponseContext.forThisThread());
+        }
 
-        return responseGenerator.generateResponse("time", context);
+        int thermostats = home.getThermostatCount();
+        ResponseContext context = ResponseContext.forThisThread()
+                .set(Placeholder.TEMPERATURE, average.getAsDouble())
+                .set(Placeholder.COUNT, Integer.toString(thermostats));
+        return RESPONSES.render(thermostats == 1
+                ? ResponseTemplates.Type.TEMPERATURE
+                : ResponseTemplates.Type.AVERAGE_TEMPERATURE, context);
     }
 
-    private String generateTemperatureResponse(double temperature) {
-        Map<String, String> context = new HashMap<>();
-        context.put("temp", String.format("%.1f", temperature));
+    private String generateLightsResponse() {
+        DeviceReadModel home = readModel;
+        int on = home != null ? home.getLightsOnCount() : 0;
+        if (on == 0) {
+            return RESPONSES.render(ResponseTemplates.Type.NO_LIGHTS_ON, ResponseContext.forThisThread());
+        }
 
-        return responseGenerator.generateResponse("temperature", context);
+        List<String> names = home.getLightsOn(MAX_LIGHTS_NAMED);
+        String named = String.join(", ", names) + (on > names.size() ? " and " + (on - names.size()) + " more" : "");
+        ResponseContext context = ResponseContext.forThisThread()
+                .set(Placeholder.COUNT, Integer.toString(on))
+                .set(Placeholder.NAMES, named);
+        return RESPONSES.render(on == 1
+                ? ResponseTemplates.Type.LIGHT_ON
+                : ResponseTemplates.Type.LIGHTS_ON, context);
     }
 
     private String generateSecurityResponse(String action) {
-        Map<String, String> context = new HashMap<>();
-        context.put("action", action);
-
-        return responseGenerator.generateResponse("security", context);
+        ResponseContext context = ResponseContext.forThisThread().set(Placeholder.ACTION, action);
+        return RESPONSES.render(ResponseTemplates.Type.SECURITY, context);
     }
 
     private String generateWeatherResponse(String period) {
-        Map<String, String> context = new HashMap<>();
-        context.put("period", period);
-
-        return responseGenerator.generateResponse("weather", context);
+        ResponseContext context = ResponseContext.forThisThread().set(Placeholder.PERIOD, period);
+        return RESPONSES.render(ResponseTemplates.Type.WEATHER, context);
     }
 
         @Override
-        public void changeState(String newState) {
-            switch (newState.toLowerCase()) {
-                case "listening":
-                    listeningMode = "active";
-                    status = "listening";
-                    notifyObservers("Now actively listening for commands");
-                    break;
-                case "passive":
-                    listeningMode = "passive";
-                    status = "idle";
-                    notifyObservers("Switched to passive listening mode");
-                    break;
-                case "mute":
-                    listeningMode = "muted";
-                    status = "muted";
-                    notifyObservers("Voice assistant muted");
-                    break;
-                default:
-                    if (newState.startsWith("volume:")) {
-                        try {
-                            int newVolume = Integer.parseInt(newState.substring(7));
-                            if (newVolume >= 0 && newVolume <= 100) {
-                                volume = newVolume;
-                                notifyObservers("Volume set to " + volume + "%");
-                            } else {
-                                notifyObservers("Volume must be between 0 and 100");
+        public boolean execute(DeviceCommand command) {
+            switch (command) {
+                case DeviceCommand.Mode(String mode) -> {
+                    String message;
+                    synchronized (this) {
+                        switch (mode) {
+                            case "listening" -> {
+                                listeningMode = "active";
+                                status = "listening";
+                                message = "Now actively listening for commands";
+                            }
+                            case "passive" -> {
+                                listeningMode = "passive";
+                                status = "idle";
+                                message = "Switched to passive listening mode";
+                            }
+                            case "mute" -> {
+                                listeningMode = "muted";
+                                status = "muted";
+                                message = "Voice assistant muted";
+                            }
+                            default -> {
+                                return false;
                             }
-                        } catch (NumberFormatException e) {
-                            notifyObservers("Invalid volume format");
                         }
-                    } else if (newState.startsWith("command:")) {
-                        String command = newState.substring(8);
-                        processCommand(command);
+                    }
+                    notifyObservers(message);
+                }
+                case DeviceCommand.Volume(int newVolume) -> {
+                    if (newVolume >= 0 && newVolume <= 100) {
+                        volume = newVolume;
+                        notifyObservers("Volume set to " + volume + "%");
                     } else {
-                        notifyObservers("Unknown state: " + newState);
+                        notifyObservers("Volume must be between 0 and 100");
                     }
-                    break;
+                }
+                case DeviceCommand.Malformed(String field) when field.equals(DeviceCommand.VOLUME) ->
+                        notifyObservers("Invalid volume format");
+                case DeviceCommand.Voice(String text) -> processCommand(text);
+                default -> {
+                    return false;
+                }
             }
+            return true;
         }
 
+        @Override
+        protected void onUnsupportedState(String state) {
+            notifyObservers("Unknown state: " + state);
+        }
+
+        /**
+         * Queues the command; it is answered after the commands already waiting, a response delay after it starts
+         */
         public void processCommand(String command) {
             if (listeningMode.equals("muted")) {
                 notifyObservers("Cannot process command while muted");
                 return;
             }
 
-            isProcessingCommand = true;
-            status = "processing";
-            notifyObservers("Processing command: " + command);
+            commandHistory.add(command);
 
-            // Record in command history
-            String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
-            commandHistory.put(timestamp, command);
+            if (!requests.submit(command)) {
+                notifyObservers("Too many commands waiting, ignored: " + command);
+            }
+        }
+
+        private void commandStarted(String command) {
+            synchronized (this) {
+                status = "processing";
+            }
+            notifyObservers("Processing command: " + command);
+        }
 
-            // Process the command (simulation)
+        private void respond(String command) {
             String response = interpretCommand(command);
             activeConversation = command + "\n" + response;
-
-            // Simulate processing delay and then provide the response
-            new Timer().schedule(new TimerTask() {
-                @Override
-                public void run() {
-                    notifyObservers("Response: " + response);
-                    status = listeningMode.equals("active") ? "listening" : "idle";
-                    isProcessingCommand = false;
-                }
-            }, 800); // 800ms delay to simulate processing
+            notifyObservers("Response: " + response);
+            synchronized (this) {
+                status = switch (listeningMode) {
+                    case "active" -> "listening";
+                    case "muted" -> "muted";
+                    default -> "idle";
+                };
+            }
         }
 
-        private String interpretCommand(String command) {
-                command = command.toLowerCase();
-
-                // Dynamic context-aware command matching
-                Map<String, Function<String, String>> commandHandlers = new HashMap<>();
-
-                commandHandlers.put("temperature", cmd ->
-                        generateTemperatureResponse(22.0)
-                );
-
-                commandHandlers.put("time", cmd ->
-                        generateTimeResponse(cmd)
-                );
-
-                commandHandlers.put("security", cmd -> {
-                    List<String> securityActions = Arrays.asList("arm", "disarm", "check", "camera");
-
-                    // Find first matching security action
-                    Optional<String> matchedAction = securityActions.stream()
-                            .filter(cmd::contains)
-                            .findFirst();
-
-                    return matchedAction
-                            .map(this::generateSecurityResponse)
-                            .orElse("I can help with security. What specific action would you like?");
-                });
-
-                commandHandlers.put("weather", cmd -> {
-                    List<String> weatherPeriods = Arrays.asList("today", "tomorrow", "weekend", "week");
-
-                    // Find first matching weather period
-                    Optional<String> matchedPeriod = weatherPeriods.stream()
-                            .filter(cmd::contains)
-                            .findFirst();
-
-                    return matchedPeriod
-                            .map(this::generateWeatherResponse)
-                            .orElse("I can provide weather information. Which timeframe interests you?");
-                });
-
-                // Find matching command handler
-                String finalCommand1 = command;
-                Optional<Function<String, String>> handler = commandHandlers.entrySet().stream()
-                        .filter(entry -> finalCommand1.contains(entry.getKey()))
-                        .map(Map.Entry::getValue)
-                        .findFirst();
-
-                // Fallback responses with randomness
-                List<String> fallbackResponses = Arrays.asList(
-                        "I'm not quite sure I understood that.",
-                        "Could you rephrase that for me?",
-                        "I'm listening, but could you be more specific?",
-                        "Hmm, I didn't catch that completely."
-                );
-
-                // Generate conversational responses
-                if (command.contains("hello") || command.contains("hi")) {
-                    return "Hello! How can I assist you today?";
-                } else if (command.contains("thank")) {
-                    return "You're welcome! Is there anything else I can help with?";
-                }
-
-                // Execute matching handler or return random fallback
-                String finalCommand = command;
-                return handler
-                        .map(h -> h.apply(finalCommand))
-                        .orElse(fallbackResponses.get(random.nextInt(fallbackResponses.size())));
+        /**
+         * Works out the response to a command without recording it or notifying anyone
+         * @param command the spoken command
+         * @return the response text
+         */
+        public String interpretCommand(String command) {
+            long match = router.match(command);
+            String intent = router.keyword(match, INTENT);
+            if (intent == null) {
+                return FALLBACK_RESPONSES.get(random.nextInt(FALLBACK_RESPONSES.size()));
             }
 
-        public void addSupportedCommand(String command) {
+            return switch (intent) {
+                case "hello", "hi" -> "Hello! How can I assist you today?";
+                case "thank" -> "You're welcome! Is there anything else I can help with?";
+                case "temperature" -> generateTemperatureResponse();
+                case "lights" -> generateLightsResponse();
+                case "time" -> generateTimeResponse(command);
+                case "security" -> {
+                    String action = router.keyword(match, SECURITY_ACTION);
+                    yield action != null
+                            ? generateSecurityResponse(action)
+                            : "I can help with security. What specific action would you like?";
+                }
+                case "weather" -> {
+                    String period = router.keyword(match, WEATHER_PERIOD);
+                    yield period != null
+                            ? generateWeatherResponse(period)
+                            : "I can provide weather information. Which timeframe interests you?";
+                }
+                // Supported, but without an answer of its own yet
+                default -> FALLBACK_RESPONSES.get(random.nextInt(FALLBACK_RESPONSES.size()));
+            };
+        }
+
+        public synchronized void addSupportedCommand(String command) {
             supportedCommands.add(command);
+            if (routerBuilder == null) {
+                routerBuilder = newRouter();
+            }
+            router = routerBuilder.add(INTENT, command).build();
             notifyObservers("Added new supported command: " + command);
         }
 
-        public List<String> getSupportedCommands() {
+        /**
+         * @param readModel the home the assistant answers questions about, or null for none
+         */
+        public void setReadModel(DeviceReadModel readModel) {
+            this.readModel = readModel;
+        }
+
+        public synchronized List<String> getSupportedCommands() {
             return new ArrayList<>(supportedCommands);
         }
 
-        public Map<String, String> getCommandHistory() {
-            return new LinkedHashMap<>(commandHistory);
+        /**
+         * The most recent commands; query it by page or time range rather than copying it all
+         */
+        public CommandHistory getCommandHistory() {
+            return commandHistory;
         }
 
         public void clearCommandHistory() {
@@ -294,6 +354,23 @@ public class SmartVoiceAssistant extends SmartDevice {
             notifyObservers("Command history cleared");
         }
 
+        /**
+         * Puts back a saved listening mode ("active", "passive" or "muted") and volume without notifying
+         * observers, e.g. when devices are restored on startup
+         */
+        public void restoreState(String listeningMode, int volume) {
+            synchronized (this) {
+                this.listeningMode = listeningMode;
+                this.volume = volume;
+                status = switch (listeningMode) {
+                    case "active" -> "listening";
+                    case "muted" -> "muted";
+                    default -> "idle";
+                };
+            }
+            stateChanged();
+        }
+
         public String getListeningMode() {
             return listeningMode;
         }
@@ -307,6 +384,33 @@ public class SmartVoiceAssistant extends SmartDevice {
         }
 
         public boolean isProcessingCommand() {
-            return isProcessingCommand;
+            return requests.isBusy();
+        }
+
+        @Override
+        public synchronized String getStatus() {
+            return status;
+        }
+
+        /**
+         * @param millis how long each command takes to answer once it starts
+         */
+        public void setResponseDelay(long millis) {
+            requests.setResponseDelayMillis(millis);
+        }
+
+        public int getQueuedCommandCount() {
+            return requests.getQueued();
+        }
+
+        public long getRejectedCommandCount() {
+            return requests.getRejectedCount();
+        }
+
+        /**
+         * Time from processCommand to the response, for every command answered so far
+         */
+        public LatencyHistogram getCommandLatency() {
+            return requests.getLatency();
         }
 }
\ No newline at end of file
@@ -19,12 +19,12 @@ import javafx.scene.text.FontWeight;
 import javafx.scene.text.Text;
 import javafx.stage.Stage;
 import javafx.util.Duration;
+import org.example.smarthomeapplication.model.telemetry.ThermostatTelemetry;
+import org.example.smarthomeapplication.model.telemetry.ThermostatTelemetry.Channel;
 import org.example.smarthomeapplication.util.UIHelper;
 import org.example.smarthomeapplication.viewmodel.SmartHomeController;
 
 import java.text.DecimalFormat;
-import java.util.ArrayList;
-import java.util.List;
 
 public class ThermostatControlPanel {
     private final SmartHomeController controller;
@@ -50,8 +50,7 @@ public class ThermostatControlPanel {
     private XYChart.Series<Number, Number> temperatureSeries;
     private XYChart.Series<Number, Number> targetSeries;
     private int timeCounter = 0;
-    private final List<Double> temperatureHistory = new ArrayList<>();
-    private final List<Double> targetHistory = new ArrayList<>();
+    private ThermostatTelemetry telemetry;
 
     public ThermostatControlPanel(SmartHomeController controller) {
         this.controller = controller;
@@ -67,6 +66,7 @@ public class ThermostatControlPanel {
         }
 
         this.thermostat = (SmartThermostat) device;
+        this.telemetry = thermostat.enableTelemetry();
 
         // Create the stage
         Stage stage = new Stage();
@@ -326,21 +326,20 @@ public class ThermostatControlPanel {
 
     private void resetSimulation() {
         timeCounter = 0;
-        temperatureHistory.clear();
-        targetHistory.clear();
+        telemetry.clear();
         temperatureSeries.getData().clear();
         targetSeries.getData().clear();
         addDataPoint();
     }
 
     private void addDataPoint() {
-        // Get current values
+        // Get the latest recorded values, the thermostat itself until the first simulation step
         double currentTemp = thermostat.getCurrentTemperature();
         double targetTemp = thermostat.getTargetTemperature();
-
-        // Add to history
-        temperatureHistory.add(currentTemp);
-        targetHistory.add(targetTemp);
+        if (telemetry.size() > 0) {
+            currentTemp = telemetry.latest(Channel.CURRENT_TEMPERATURE);
+            targetTemp = telemetry.latest(Channel.TARGET_TEMPERATURE);
+        }
 
         // Add to chart
         temperatureSeries.getData().add(new XYChart.Data<>(timeCounter, currentTemp));
@@ -0,0 +1,196 @@
+package org.example.smarthomeapplication.model.telemetry;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.LongBuffer;
+
+/**
+ * Fixed-size history of thermostat readings stored as primitives.
+ * Samples go into a ring buffer: once full, each new sample overwrites the oldest one, so memory use
+ * never grows past the budget given at construction. The buffers can live on or off the Java heap.
+ * Timestamps never go backwards, which lets range queries binary search instead of scanning.
+ */
+public class ThermostatTelemetry {
+    public enum Channel {
+        CURRENT_TEMPERATURE, TARGET_TEMPERATURE, HUMIDITY, ENERGY
+    }
+
+    private static final int CHANNELS = Channel.values().length;
+    private static final int BYTES_PER_SAMPLE = Long.BYTES + CHANNELS * Double.BYTES;
+
+    // A week of samples at the control panel's 3 second cadence
+    public static final long DEFAULT_MEMORY_BUDGET = 8L * 1024 * 1024;
+
+    private final int capacity;
+    private final LongBuffer timestamps;
+    private final DoubleBuffer values; // CHANNELS values per sample, one sample after another
+    private int head; // slot the next sample is written to
+    private int size;
+
+    public ThermostatTelemetry() {
+        this(capacityFor(DEFAULT_MEMORY_BUDGET), false);
+    }
+
+    /**
+     * @param capacity number of samples kept
+     * @param offHeap  store samples in direct memory instead of on the heap
+     */
+    public ThermostatTelemetry(int capacity, boolean offHeap) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.capacity = capacity;
+        if (offHeap) {
+            this.timestamps = ByteBuffer.allocateDirect(capacity * Long.BYTES)
+                    .order(ByteOrder.nativeOrder()).asLongBuffer();
+            this.values = ByteBuffer.allocateDirect(capacity * CHANNELS * Double.BYTES)
+                    .order(ByteOrder.nativeOrder()).asDoubleBuffer();
+        } else {
+            this.timestamps = LongBuffer.allocate(capacity);
+            this.values = DoubleBuffer.allocate(capacity * CHANNELS);
+        }
+    }
+
+    /**
+     * @return how many samples fit in the given number of bytes
+     */
+    public static int capacityFor(long memoryBudgetBytes) {
+        long capacity = memoryBudgetBytes / BYTES_PER_SAMPLE;
+        if (capacity <= 0 || capacity > Integer.MAX_VALUE / CHANNELS) {
+            throw new IllegalArgumentException("Memory budget out of range: " + memoryBudgetBytes);
+        }
+        return (int) capacity;
+    }
+
+    public synchronized void record(long timestampMillis, double currentTemperature, double targetTemperature,
+                                    double humidity, double energy) {
+        // Keep timestamps ordered even if the clock steps back
+        if (size > 0) {
+            timestampMillis = Math.max(timestampMillis, timestamps.get(slot(size - 1)));
+        }
+
+        timestamps.put(head, timestampMillis);
+        int base = head * CHANNELS;
+        values.put(base, currentTemperature);
+        values.put(base + 1, targetTemperature);
+        values.put(base + 2, humidity);
+        values.put(base + 3, energy);
+
+        head = head + 1 == capacity ? 0 : head + 1;
+        if (size < capacity) {
+            size++;
+        }
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public synchronized void clear() {
+        head = 0;
+        size = 0;
+    }
+
+    /**
+     * @param index 0 is the oldest sample kept, size() - 1 the newest
+     */
+    public synchronized long timestampAt(int index) {
+        checkIndex(index);
+        return timestamps.get(slot(index));
+    }
+
+    public synchronized double valueAt(int index, Channel channel) {
+        checkIndex(index);
+        return values.get(slot(index) * CHANNELS + channel.ordinal());
+    }
+
+    public synchronized double latest(Channel channel) {
+        if (size == 0) return Double.NaN;
+        return values.get(slot(size - 1) * CHANNELS + channel.ordinal());
+    }
+
+    /**
+     * Copies the newest samples of one channel, oldest first
+     * @param count maximum number of samples to copy
+     */
+    public synchronized double[] lastValues(Channel channel, int count) {
+        int n = Math.min(count, size);
+        double[] result = new double[n];
+        for (int i = 0; i < n; i++) {
+            result[i] = values.get(slot(size - n + i) * CHANNELS + channel.ordinal());
+        }
+        return result;
+    }
+
+    /**
+     * Min, max and average of one channel over the samples taken in [fromMillis, toMillis)
+     */
+    public synchronized Summary summarize(Channel channel, long fromMillis, long toMillis) {
+        int from = firstIndexAtOrAfter(fromMillis);
+        int to = firstIndexAtOrAfter(toMillis);
+        if (from >= to) {
+            return new Summary(0, Double.NaN, Double.NaN, Double.NaN);
+        }
+
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        double sum = 0;
+        for (int i = from; i < to; i++) {
+            double value = values.get(slot(i) * CHANNELS + channel.ordinal());
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+            sum += value;
+        }
+        return new Summary(to - from, min, max, sum / (to - from));
+    }
+
+    /**
+     * Summary of one channel over everything taken in the last period before the newest sample
+     */
+    public synchronized Summary summarizeLast(Channel channel, long periodMillis) {
+        if (size == 0) {
+            return new Summary(0, Double.NaN, Double.NaN, Double.NaN);
+        }
+        long newest = timestamps.get(slot(size - 1));
+        return summarize(channel, newest - periodMillis, newest + 1);
+    }
+
+    // Binary search over the ordered timestamps; returns size if every sample is older
+    private int firstIndexAtOrAfter(long timestampMillis) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (timestamps.get(slot(middle)) < timestampMillis) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    // Maps a logical index (0 = oldest) to its slot in the buffers
+    private int slot(int index) {
+        int oldest = size < capacity ? 0 : head;
+        int slot = oldest + index;
+        return slot >= capacity ? slot - capacity : slot;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Sample " + index + " of " + size);
+        }
+    }
+
+    /**
+     * Aggregate of one channel; values are NaN when count is 0
+     */
+    public record Summary(int count, double min, double max, double average) {
+    }
+}
@@ -0,0 +1,433 @@
+package org.example.smarthomeapplication.model.voice;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32C;
+
+/**
+ * The most recent commands an assistant heard, in a fixed-size ring buffer.
+ * Every entry gets a nanosecond timestamp that is strictly later than the one before it, so entries
+ * never collide and stay sorted; time-range queries binary search the ring and pages copy only the
+ * entries asked for. When a log file is given, each entry is also appended to it, and the newest
+ * entries are read back from it when {@link #load()} is called or the history is first used. The log
+ * is rewritten with just the buffered entries once it holds several times the capacity, so it doesn't
+ * grow without bound.
+ * <p>
+ * Reading and writing the log happen on a background thread shared by all histories, so neither
+ * adding a command nor reading the history waits for the disk. Until loading completes the history
+ * holds only the commands added since, which stay after the loaded ones. Each line ends with a checksum and a line break; loading skips lines that fail their
+ * checksum and cuts off a last line a crash left without its line break before appending again.
+ */
+public class CommandHistory {
+    public static final int DEFAULT_CAPACITY = 1000;
+    private static final int COMPACT_AFTER_CAPACITIES = 4;
+    private static final int CHECKSUM_CHARS = 8;
+    private static final HexFormat HEX = HexFormat.of();
+    private static final ExecutorService LOG_WRITER = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "command-log");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    static {
+        // Write what is still queued before the application exits
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            LOG_WRITER.shutdown();
+            try {
+                LOG_WRITER.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "command-log-shutdown"));
+    }
+
+    private final int capacity;
+    private final Path logFile; // null keeps the history in memory only
+    private final long[] timestamps;
+    private final String[] commands;
+    private int start; // index of the oldest entry
+    private int size;
+    private long lastTimestamp;
+
+    private CompletableFuture<Void> loading; // null until loading starts
+    private boolean loaded;
+    private boolean clearedWhileLoading;
+    private boolean rewrittenWhileLoading;
+    private int loggedEntries;
+    private final StringBuilder pendingLog = new StringBuilder(); // lines not handed to the writer yet
+    private boolean replaceLog; // the pending lines replace the log instead of being appended
+    private boolean writeScheduled;
+
+    private final Object io = new Object(); // held while writing the log file, before this
+    private BufferedWriter log; // guarded by io
+
+    public CommandHistory(int capacity, Path logFile) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.logFile = logFile;
+        this.timestamps = new long[capacity];
+        this.commands = new String[capacity];
+        this.loaded = logFile == null;
+    }
+
+    /**
+     * In memory only
+     */
+    public CommandHistory(int capacity) {
+        this(capacity, null);
+    }
+
+    /**
+     * Records the command, overwriting the oldest entry once the buffer is full
+     */
+    public synchronized Entry add(String command) {
+        load();
+        Instant now = Instant.now();
+        long timestamp = Math.max(now.getEpochSecond() * 1_000_000_000L + now.getNano(), lastTimestamp + 1);
+        put(timestamp, command);
+        appendToLog(timestamp, command);
+        return new Entry(timestamp, command);
+    }
+
+    public synchronized int size() {
+        load();
+        return size;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @param offset entries to skip, counted from the newest
+     * @param limit  most entries to return
+     * @return newest first
+     */
+    public synchronized List<Entry> page(int offset, int limit) {
+        load();
+        int count = Math.max(0, Math.min(limit, size - offset));
+        List<Entry> page = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            page.add(entryAt(size - 1 - offset - i));
+        }
+        return page;
+    }
+
+    /**
+     * Entries recorded in [fromNanos, toNanos) since the epoch, oldest first
+     */
+    public synchronized List<Entry> between(long fromNanos, long toNanos) {
+        load();
+        int from = firstAtOrAfter(fromNanos);
+        int to = firstAtOrAfter(toNanos);
+        List<Entry> entries = new ArrayList<>(Math.max(0, to - from));
+        for (int i = from; i < to; i++) {
+            entries.add(entryAt(i));
+        }
+        return entries;
+    }
+
+    public synchronized void clear() {
+        load();
+        clearedWhileLoading = !loaded;
+        start = 0;
+        size = 0;
+        for (int i = 0; i < capacity; i++) {
+            commands[i] = null;
+        }
+        if (logFile != null) {
+            rewriteLog();
+        }
+    }
+
+    /**
+     * Starts reading the log back on the log thread, unless that has already started
+     *
+     * @return completes once the loaded entries are in the history
+     */
+    public synchronized CompletableFuture<Void> load() {
+        if (loading == null) {
+            try {
+                loading = loaded ? CompletableFuture.completedFuture(null)
+                        : CompletableFuture.runAsync(this::readLog, LOG_WRITER);
+            } catch (RejectedExecutionException e) {
+                loaded = true; // Shutting down
+                loading = CompletableFuture.completedFuture(null);
+            }
+        }
+        return loading;
+    }
+
+    /**
+     * Writes what is still pending and closes the log; it is reopened if anything is added later
+     */
+    public void close() {
+        CompletableFuture<Void> reading;
+        synchronized (this) {
+            reading = loading;
+        }
+        if (reading != null) {
+            reading.join(); // Otherwise it could read back lines written below
+        }
+        synchronized (io) {
+            writeLog();
+            closeLog();
+        }
+    }
+
+    private void put(long timestamp, String command) {
+        int index = (start + size) % capacity;
+        timestamps[index] = timestamp;
+        commands[index] = command;
+        if (size < capacity) {
+            size++;
+        } else {
+            start = (start + 1) % capacity;
+        }
+        lastTimestamp = timestamp;
+    }
+
+    // i counts from the oldest entry
+    private Entry entryAt(int i) {
+        int index = (start + i) % capacity;
+        return new Entry(timestamps[index], commands[index]);
+    }
+
+    private int firstAtOrAfter(long timestamp) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (timestamps[(start + middle) % capacity] < timestamp) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    // Runs on the log thread, ahead of any write scheduled after loading started
+    private void readLog() {
+        List<Entry> logged = new ArrayList<>();
+        synchronized (io) {
+            if (Files.exists(logFile)) {
+                try {
+                    byte[] bytes = Files.readAllBytes(logFile);
+                    int lineStart = 0;
+                    for (int i = 0; i < bytes.length; i++) {
+                        if (bytes[i] != '\n') continue;
+                        String line = new String(bytes, lineStart, i - lineStart, StandardCharsets.UTF_8);
+                        lineStart = i + 1;
+                        int tab = line.indexOf('\t');
+                        int checksumStart = line.length() - CHECKSUM_CHARS;
+                        if (tab < 0 || checksumStart - 1 <= tab || line.charAt(checksumStart - 1) != '\t'
+                                || !checksumMatches(line, checksumStart)) {
+                            continue; // Damaged line, keep the rest
+                        }
+                        try {
+                            logged.add(new Entry(Long.parseLong(line, 0, tab, 10),
+                                    unescape(line.substring(tab + 1, checksumStart - 1))));
+                        } catch (NumberFormatException e) {
+                            // Damaged line, keep the rest
+                        }
+                    }
+                    if (lineStart < bytes.length) {
+                        // Torn last line from a crash; new lines would otherwise be glued to it
+                        try (FileChannel channel = FileChannel.open(logFile, StandardOpenOption.WRITE)) {
+                            channel.truncate(lineStart);
+                        }
+                    }
+                } catch (IOException e) {
+                    System.err.println("Failed to read command log " + logFile + ": " + e.getMessage());
+                }
+            }
+        }
+        mergeLoaded(logged);
+    }
+
+    // Puts the loaded entries before the ones added while loading
+    private synchronized void mergeLoaded(List<Entry> logged) {
+        loaded = true;
+        if (!rewrittenWhileLoading) {
+            loggedEntries += logged.size();
+        }
+        if (clearedWhileLoading || logged.isEmpty()) return;
+
+        List<Entry> added = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            added.add(entryAt(i));
+        }
+        start = 0;
+        size = 0;
+        lastTimestamp = 0;
+        for (Entry entry : logged.subList(Math.max(0, logged.size() - capacity), logged.size())) {
+            put(Math.max(entry.timestampNanos(), lastTimestamp + 1), entry.command());
+        }
+        for (Entry entry : added) {
+            put(Math.max(entry.timestampNanos(), lastTimestamp + 1), entry.command());
+        }
+    }
+
+    private void appendToLog(long timestamp, String command) {
+        if (logFile == null) return;
+        if (loggedEntries >= capacity * COMPACT_AFTER_CAPACITIES) {
+            rewriteLog(); // The rewrite already holds the new entry
+        } else {
+            appendLine(pendingLog, timestamp, command);
+            loggedEntries++;
+            scheduleWrite();
+        }
+    }
+
+    // Replaces the log with the buffered entries
+    private void rewriteLog() {
+        rewrittenWhileLoading = !loaded;
+        pendingLog.setLength(0);
+        for (int i = 0; i < size; i++) {
+            int index = (start + i) % capacity;
+            appendLine(pendingLog, timestamps[index], commands[index]);
+        }
+        replaceLog = true;
+        loggedEntries = size;
+        scheduleWrite();
+    }
+
+    private void scheduleWrite() {
+        if (writeScheduled) return;
+        writeScheduled = true;
+        try {
+            LOG_WRITER.execute(this::flushLog);
+        } catch (RejectedExecutionException e) {
+            writeScheduled = false; // Shutting down; close() still writes what's pending
+        }
+    }
+
+    private void flushLog() {
+        synchronized (io) {
+            writeLog();
+        }
+    }
+
+    // Called holding io, which keeps the writes in the order their lines were taken
+    private void writeLog() {
+        String lines;
+        boolean replace;
+        synchronized (this) {
+            lines = pendingLog.toString();
+            replace = replaceLog;
+            pendingLog.setLength(0);
+            replaceLog = false;
+            writeScheduled = false;
+        }
+        if (lines.isEmpty() && !replace) return;
+
+        try {
+            Files.createDirectories(logFile.toAbsolutePath().getParent());
+            if (replace) {
+                // Through a temporary file, so a crash leaves either the old log or the new one
+                closeLog();
+                Path temporary = logFile.resolveSibling(logFile.getFileName() + ".tmp");
+                try (BufferedWriter writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+                    writer.write(lines);
+                }
+                Files.move(temporary, logFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                return;
+            }
+            if (log == null) {
+                log = Files.newBufferedWriter(logFile, StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            }
+            log.write(lines);
+            log.flush(); // Handed to the OS, so it survives the application crashing
+        } catch (IOException e) {
+            System.err.println("Failed to write command log " + logFile + ": " + e.getMessage());
+        }
+    }
+
+    private void closeLog() {
+        if (log != null) {
+            try {
+                log.close();
+            } catch (IOException e) {
+                System.err.println("Failed to close command log " + logFile + ": " + e.getMessage());
+            }
+            log = null;
+        }
+    }
+
+    // One entry per line: timestamp, tab, command, tab, CRC32C of what comes before it in hex.
+    // Backslashes and line breaks in the command are escaped; the first tab ends the timestamp.
+    private static void appendLine(StringBuilder lines, long timestamp, String command) {
+        int lineStart = lines.length();
+        lines.append(timestamp).append('\t').append(escape(command));
+        String body = lines.substring(lineStart);
+        lines.append('\t').append(HEX.toHexDigits(checksum(body))).append('\n');
+    }
+
+    private static boolean checksumMatches(String line, int checksumStart) {
+        try {
+            return HexFormat.fromHexDigits(line, checksumStart, line.length()) == checksum(line.substring(0, checksumStart - 1));
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static int checksum(String body) {
+        CRC32C checksum = new CRC32C();
+        checksum.update(body.getBytes(StandardCharsets.UTF_8));
+        return (int) checksum.getValue();
+    }
+
+    private static String escape(String command) {
+        if (command.indexOf('\\') < 0 && command.indexOf('\n') < 0 && command.indexOf('\r') < 0) {
+            return command;
+        }
+        return command.replace("\\", "\\\\").replace("\n", "\\n").replace("\r", "\\r");
+    }
+
+    private static String unescape(String text) {
+        if (text.indexOf('\\') < 0) return text;
+        StringBuilder command = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '\\' && i + 1 < text.length()) {
+                char next = text.charAt(++i);
+                command.append(switch (next) {
+                    case 'n' -> '\n';
+                    case 'r' -> '\r';
+                    default -> next;
+                });
+            } else {
+                command.append(c);
+            }
+        }
+        return command.toString();
+    }
+
+    /**
+     * @param timestampNanos nanoseconds since the epoch, unique within one history
+     */
+    public record Entry(long timestampNanos, String command) {
+        public Instant time() {
+            return Instant.ofEpochSecond(0, timestampNanos);
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package org.example.smarthomeapplication.model.voice;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Finds which of a fixed set of keywords occur in a text, in one pass and without allocating.
+ * Keywords are sorted into groups (for example intents and their arguments), and within a group the
+ * keyword added first wins when several occur. Matching is case-insensitive and, like String.contains,
+ * finds keywords anywhere in the text.
+ * <p>
+ * The keywords are compiled into an Aho-Corasick automaton whose failure links are folded into a
+ * transition table, so each character of the text costs one table lookup however many keywords there are.
+ * A matcher is immutable and can be shared between threads; add keywords through a {@link Builder}.
+ */
+public final class KeywordMatcher {
+    public static final int MAX_GROUPS = 4;
+
+    private static final int NONE = 0xFFFF; // lane value for "no keyword of this group"
+    private static final long NOTHING = -1L; // every lane NONE
+
+    private final List<List<String>> keywords; // by group, in priority order
+    private final int[] asciiClasses; // character class of each ASCII character, 0 if no keyword uses it
+    private final char[] otherChars; // sorted non-ASCII keyword characters; their class is otherClass + index
+    private final int otherClass;
+    private final int classes;
+    private final int[] next; // next[state * classes + class]
+    private final long[] found; // best keyword of each group ending at a state, 16 bits per group
+
+    private KeywordMatcher(List<List<String>> keywords, int[] asciiClasses, char[] otherChars, int otherClass,
+                           int classes, int[] next, long[] found) {
+        this.keywords = keywords;
+        this.asciiClasses = asciiClasses;
+        this.otherChars = otherChars;
+        this.otherClass = otherClass;
+        this.classes = classes;
+        this.next = next;
+        this.found = found;
+    }
+
+    /**
+     * @return the best keyword of every group found in the text, read with {@link #matched(long, int)}
+     */
+    public long match(CharSequence text) {
+        long result = NOTHING;
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            state = next[state * classes + classOf(text.charAt(i))];
+            long here = found[state];
+            if (here != NOTHING) {
+                result = lowestPerLane(result, here);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the index within the group of the best keyword found, or -1 if none was
+     */
+    public static int matched(long result, int group) {
+        int rank = (int) (result >>> (group * 16)) & NONE;
+        return rank == NONE ? -1 : rank;
+    }
+
+    /**
+     * @return the keyword found for the group, or null if none was
+     */
+    public String keyword(long result, int group) {
+        int rank = matched(result, group);
+        return rank < 0 ? null : keywords.get(group).get(rank);
+    }
+
+    public List<String> getKeywords(int group) {
+        return keywords.get(group);
+    }
+
+    private int classOf(char c) {
+        c = Character.toLowerCase(c);
+        if (c < 128) return asciiClasses[c];
+        int index = Arrays.binarySearch(otherChars, c);
+        return index < 0 ? 0 : otherClass + index;
+    }
+
+    private static long lowestPerLane(long a, long b) {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 16) {
+            long laneA = (a >>> shift) & NONE;
+            long laneB = (b >>> shift) & NONE;
+            result |= Math.min(laneA, laneB) << shift;
+        }
+        return result;
+    }
+
+    /**
+     * Collects keywords into a trie. Adding a keyword only extends the trie; {@link #build()} then
+     * recomputes the links and the transition table, so a matcher can be rebuilt cheaply after each addition.
+     */
+    public static final class Builder {
+        private final List<TreeMap<Character, Integer>> children = new ArrayList<>();
+        private final List<Long> ends = new ArrayList<>(); // per state, the keyword of each group ending there
+        private final List<List<String>> keywords = new ArrayList<>();
+
+        public Builder(int groups) {
+            if (groups < 1 || groups > MAX_GROUPS) {
+                throw new IllegalArgumentException("Between 1 and " + MAX_GROUPS + " groups are supported");
+            }
+            for (int group = 0; group < groups; group++) {
+                keywords.add(new ArrayList<>());
+            }
+            newState();
+        }
+
+        /**
+         * Adds a keyword with a lower priority than every keyword already in its group; repeats are ignored
+         */
+        public Builder add(int group, String keyword) {
+            String normalized = keyword.toLowerCase(Locale.ROOT);
+            List<String> groupKeywords = keywords.get(group);
+            if (normalized.isEmpty() || groupKeywords.contains(normalized)) return this;
+            if (groupKeywords.size() == NONE) {
+                throw new IllegalStateException("Too many keywords in group " + group);
+            }
+
+            int state = 0;
+            for (int i = 0; i < normalized.length(); i++) {
+                Integer child = children.get(state).get(normalized.charAt(i));
+                if (child == null) {
+                    child = newState();
+                    children.get(state).put(normalized.charAt(i), child);
+                }
+                state = child;
+            }
+            ends.set(state, withLane(ends.get(state), group, groupKeywords.size()));
+            groupKeywords.add(normalized);
+            return this;
+        }
+
+        public Builder addAll(int group, List<String> keywords) {
+            for (String keyword : keywords) {
+                add(group, keyword);
+            }
+            return this;
+        }
+
+        public KeywordMatcher build() {
+            // Every character that appears in a keyword gets a class; all others share class 0
+            TreeSet<Character> alphabet = new TreeSet<>();
+            for (TreeMap<Character, Integer> edges : children) {
+                alphabet.addAll(edges.keySet());
+            }
+            int classes = alphabet.size() + 1;
+            char[] classChars = new char[classes];
+            int[] asciiClasses = new int[128];
+            StringBuilder other = new StringBuilder();
+            int nextClass = 1;
+            for (char c : alphabet) {
+                classChars[nextClass] = c;
+                if (c < 128) {
+                    asciiClasses[c] = nextClass;
+                } else {
+                    other.append(c);
+                }
+                nextClass++;
+            }
+            // TreeSet order puts every non-ASCII character after the ASCII ones
+            char[] otherChars = other.toString().toCharArray();
+            int otherClass = classes - otherChars.length;
+
+            int states = children.size();
+            int[] next = new int[states * classes];
+            int[] fail = new int[states];
+            long[] found = new long[states];
+            for (int state = 0; state < states; state++) {
+                found[state] = ends.get(state);
+            }
+
+            // Breadth first, so a state's failure target is complete before the state itself
+            Queue<Integer> queue = new ArrayDeque<>();
+            queue.add(0);
+            while (!queue.isEmpty()) {
+                int state = queue.remove();
+                TreeMap<Character, Integer> edges = children.get(state);
+                for (int cls = 1; cls < classes; cls++) {
+                    Integer child = edges.get(classChars[cls]);
+                    if (child != null) {
+                        fail[child] = state == 0 ? 0 : next[fail[state] * classes + cls];
+                        found[child] = lowestPerLane(found[child], found[fail[child]]);
+                        next[state * classes + cls] = child;
+                        queue.add(child);
+                    } else {
+                        next[state * classes + cls] = state == 0 ? 0 : next[fail[state] * classes + cls];
+                    }
+                }
+            }
+
+            List<List<String>> frozen = new ArrayList<>();
+            for (List<String> groupKeywords : keywords) {
+                frozen.add(List.copyOf(groupKeywords));
+            }
+            return new KeywordMatcher(List.copyOf(frozen), asciiClasses, otherChars, otherClass, classes, next, found);
+        }
+
+        private int newState() {
+            children.add(new TreeMap<>());
+            ends.add(NOTHING);
+            return children.size() - 1;
+        }
+
+        private static long withLane(long value, int group, int rank) {
+            int shift = group * 16;
+            return (value & ~((long) NONE << shift)) | ((long) rank << shift);
+        }
+    }
+}
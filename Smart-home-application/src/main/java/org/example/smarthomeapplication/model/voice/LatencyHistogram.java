@@ -0,0 +1,146 @@
+package org.example.smarthomeapplication.model.voice;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts latencies in log-linear buckets, the way HdrHistogram does: every power of two is split into
+ * the same number of linear sub-buckets, so any recorded value is off by at most one sub-bucket width,
+ * a fixed fraction of the value. Recording is lock-free and allocation-free; percentiles are read by
+ * walking the buckets. Values above the highest trackable one are counted in the last bucket.
+ */
+public class LatencyHistogram {
+    private final int subBucketBits;
+    private final int subBuckets;
+    private final long highestTrackable;
+    private final AtomicLongArray counts;
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+    private final AtomicLong clamped = new AtomicLong();
+
+    /**
+     * About 1.5% precision up to a minute, small enough to keep one per assistant
+     */
+    public LatencyHistogram() {
+        this(TimeUnit.MINUTES.toNanos(1), 6);
+    }
+
+    /**
+     * @param highestTrackableNanos largest value kept apart from the others
+     * @param subBucketBits         log2 of the sub-buckets per power of two; precision is 1 / 2^subBucketBits
+     */
+    public LatencyHistogram(long highestTrackableNanos, int subBucketBits) {
+        if (highestTrackableNanos <= 0 || subBucketBits < 1 || subBucketBits > 16) {
+            throw new IllegalArgumentException("Highest value must be positive and sub-bucket bits between 1 and 16");
+        }
+        this.subBucketBits = subBucketBits;
+        this.subBuckets = 1 << subBucketBits;
+        this.highestTrackable = highestTrackableNanos;
+        this.counts = new AtomicLongArray(indexOf(highestTrackableNanos) + 1);
+    }
+
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        if (value > highestTrackable) {
+            clamped.incrementAndGet();
+            value = highestTrackable;
+        }
+        counts.incrementAndGet(indexOf(value));
+        count.incrementAndGet();
+        sum.addAndGet(value);
+        max.accumulateAndGet(value, Math::max);
+    }
+
+    /**
+     * Adds every value recorded in the other histogram, which must have the same layout
+     */
+    public void add(LatencyHistogram other) {
+        if (other.subBucketBits != subBucketBits || other.highestTrackable != highestTrackable) {
+            throw new IllegalArgumentException("Histograms have different bucket layouts");
+        }
+        for (int i = 0; i < other.counts.length(); i++) {
+            long bucketCount = other.counts.get(i);
+            if (bucketCount != 0) {
+                counts.addAndGet(i, bucketCount);
+            }
+        }
+        count.addAndGet(other.count.get());
+        sum.addAndGet(other.sum.get());
+        max.accumulateAndGet(other.max.get(), Math::max);
+        clamped.addAndGet(other.clamped.get());
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     * @return the largest value that falls in the same bucket as the value at that percentile, 0 if empty
+     */
+    public long valueAtPercentile(double percentile) {
+        long total = count.get();
+        if (total == 0) return 0;
+
+        long rank = Math.max(1, (long) Math.ceil(Math.min(percentile, 100) / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(highestValueIn(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public double getMean() {
+        long total = count.get();
+        return total == 0 ? 0 : (double) sum.get() / total;
+    }
+
+    /**
+     * @return values that were above the highest trackable value
+     */
+    public long getClampedCount() {
+        return clamped.get();
+    }
+
+    public void reset() {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0);
+        }
+        count.set(0);
+        sum.set(0);
+        max.set(0);
+        clamped.set(0);
+    }
+
+    /**
+     * p50, p99, p99.9 and max in milliseconds, for status output
+     */
+    public String summary() {
+        return String.format("n=%d p50=%.2fms p99=%.2fms p99.9=%.2fms max=%.2fms", getCount(),
+                valueAtPercentile(50) / 1e6, valueAtPercentile(99) / 1e6, valueAtPercentile(99.9) / 1e6,
+                getMax() / 1e6);
+    }
+
+    // Values below subBuckets get a bucket each; above that, each power of two gets subBuckets buckets
+    private int indexOf(long value) {
+        if (value < subBuckets) return (int) value;
+        int shift = (63 - Long.numberOfLeadingZeros(value)) - subBucketBits;
+        return (shift + 1) * subBuckets + (int) ((value >>> shift) - subBuckets);
+    }
+
+    private long highestValueIn(int index) {
+        if (index < subBuckets) return index;
+        int shift = index / subBuckets - 1;
+        long lowest = (long) (subBuckets + index % subBuckets) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,38 @@
+package org.example.smarthomeapplication.model.voice;
+
+/**
+ * The values a response template can refer to, written {{name}} in the template text
+ */
+public enum Placeholder {
+    TEMPERATURE("temp"),
+    TIME("time"),
+    DAY_OF_WEEK("dayOfWeek"),
+    DATE("date"),
+    ACTION("action"),
+    PERIOD("period"),
+    COUNT("count"),
+    NAMES("names");
+
+    private final String templateName;
+
+    Placeholder(String templateName) {
+        this.templateName = templateName;
+    }
+
+    public String getTemplateName() {
+        return templateName;
+    }
+
+    /**
+     * @return the placeholder written {{name}} in a template
+     * @throws IllegalArgumentException if there is no such placeholder
+     */
+    public static Placeholder fromTemplateName(String name) {
+        for (Placeholder placeholder : values()) {
+            if (placeholder.templateName.equals(name)) {
+                return placeholder;
+            }
+        }
+        throw new IllegalArgumentException("Unknown placeholder {{" + name + "}}");
+    }
+}
@@ -0,0 +1,125 @@
+package org.example.smarthomeapplication.model.voice;
+
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
+
+/**
+ * Values for the placeholders of a response, set by type instead of being formatted into strings up front.
+ * A context is meant to be reused: {@link #forThisThread()} hands out one cleared instance per thread,
+ * which is only valid until the next call on that thread.
+ */
+public final class ResponseContext {
+    private static final ThreadLocal<ResponseContext> PER_THREAD = ThreadLocal.withInitial(ResponseContext::new);
+    private static final Placeholder[] PLACEHOLDERS = Placeholder.values();
+    // Below this a double is precise to well under a hundredth, so the double closest to a halfway point
+    // like 2.35 has that point as its shortest decimal form
+    private static final double MAX_FAST_FORMAT = 1e12;
+    private static volatile NumberSymbols numberSymbols; // of the last default format locale used
+
+    private final CharSequence[] text = new CharSequence[PLACEHOLDERS.length];
+    private final double[] numbers = new double[PLACEHOLDERS.length];
+    private final boolean[] isNumber = new boolean[PLACEHOLDERS.length];
+
+    public static ResponseContext forThisThread() {
+        return PER_THREAD.get().clear();
+    }
+
+    public ResponseContext clear() {
+        for (int i = 0; i < PLACEHOLDERS.length; i++) {
+            text[i] = null;
+            isNumber[i] = false;
+        }
+        return this;
+    }
+
+    public ResponseContext set(Placeholder placeholder, CharSequence value) {
+        text[placeholder.ordinal()] = value;
+        isNumber[placeholder.ordinal()] = false;
+        return this;
+    }
+
+    /**
+     * Sets a number, shown with one decimal
+     */
+    public ResponseContext set(Placeholder placeholder, double value) {
+        text[placeholder.ordinal()] = null;
+        numbers[placeholder.ordinal()] = value;
+        isNumber[placeholder.ordinal()] = true;
+        return this;
+    }
+
+    public boolean isSet(Placeholder placeholder) {
+        return isNumber[placeholder.ordinal()] || text[placeholder.ordinal()] != null;
+    }
+
+    /**
+     * Appends the value, or the placeholder itself if it has none, like the template text would show it
+     */
+    void appendTo(Placeholder placeholder, StringBuilder out) {
+        int index = placeholder.ordinal();
+        if (isNumber[index]) {
+            appendOneDecimal(numbers[index], out);
+        } else if (text[index] != null) {
+            out.append(text[index]);
+        } else {
+            out.append("{{").append(placeholder.getTemplateName()).append("}}");
+        }
+    }
+
+    // Same text as String.format("%.1f", value) without going through a Formatter: the shortest decimal form
+    // of the value rounded half up, a minus sign for every negative value including -0.0, and the digits
+    // and decimal separator of the default format locale
+    private static void appendOneDecimal(double value, StringBuilder out) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            out.append(value);
+            return;
+        }
+        double magnitude = Math.abs(value);
+        if (magnitude >= MAX_FAST_FORMAT) {
+            out.append(String.format("%.1f", value));
+            return;
+        }
+
+        // magnitude * 10 can itself round across a halfway point, so check against the halfway values.
+        // A value rounds up exactly when it is at least the double closest to the decimal halfway point.
+        long tenths = Math.round(magnitude * 10);
+        if (magnitude < (2 * tenths - 1) / 20.0) {
+            tenths--;
+        } else if (magnitude >= (2 * tenths + 1) / 20.0) {
+            tenths++;
+        }
+
+        NumberSymbols symbols = numberSymbols();
+        if (Double.compare(value, 0.0) < 0) {
+            out.append('-');
+        }
+        appendDigits(tenths / 10, symbols.zero(), out);
+        out.append(symbols.decimalSeparator()).append((char) (symbols.zero() + tenths % 10));
+    }
+
+    private static void appendDigits(long number, char zero, StringBuilder out) {
+        if (zero == '0') {
+            out.append(number);
+            return;
+        }
+        int start = out.length();
+        out.append(number);
+        for (int i = start; i < out.length(); i++) {
+            out.setCharAt(i, (char) (zero + out.charAt(i) - '0'));
+        }
+    }
+
+    private static NumberSymbols numberSymbols() {
+        Locale locale = Locale.getDefault(Locale.Category.FORMAT);
+        NumberSymbols symbols = numberSymbols;
+        if (symbols == null || !symbols.locale().equals(locale)) {
+            DecimalFormatSymbols formatSymbols = DecimalFormatSymbols.getInstance(locale);
+            symbols = new NumberSymbols(locale, formatSymbols.getZeroDigit(), formatSymbols.getDecimalSeparator());
+            numberSymbols = symbols;
+        }
+        return symbols;
+    }
+
+    private record NumberSymbols(Locale locale, char zero, char decimalSeparator) {
+    }
+}
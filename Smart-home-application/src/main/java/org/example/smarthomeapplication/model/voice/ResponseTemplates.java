@@ -0,0 +1,141 @@
+package org.example.smarthomeapplication.model.voice;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The voice assistant's response templates, parsed once into literal text and placeholders.
+ * Rendering walks the parts and appends them to a StringBuilder, so a response costs one pass and
+ * one String however many placeholders it has. The set is immutable and shared by every assistant.
+ */
+public final class ResponseTemplates {
+    public enum Type {
+        TEMPERATURE, AVERAGE_TEMPERATURE, NO_THERMOSTATS, LIGHT_ON, LIGHTS_ON, NO_LIGHTS_ON, TIME, SECURITY, WEATHER
+    }
+
+    private static final ResponseTemplates DEFAULT = new Builder()
+            .add(Type.TEMPERATURE,
+                    "The temperature is currently {{temp}}°C. Would you like me to adjust it?",
+                    "I'm detecting a room temperature of {{temp}}°C. Shall I make any changes?",
+                    "Current reading shows {{temp}}°C. How are you feeling about the temperature?",
+                    "Checking the thermostat... we're sitting at {{temp}}°C right now.")
+            .add(Type.AVERAGE_TEMPERATURE,
+                    "The average temperature across {{count}} thermostats is {{temp}}°C.",
+                    "Your {{count}} thermostats are reading {{temp}}°C on average.",
+                    "Across the house it's {{temp}}°C on average, from {{count}} thermostats.")
+            .add(Type.NO_THERMOSTATS,
+                    "I can't find a thermostat to read the temperature from.",
+                    "There's no thermostat connected, so I can't tell the temperature.")
+            .add(Type.LIGHT_ON,
+                    "One light is on: {{names}}.",
+                    "You have one light on: {{names}}.")
+            .add(Type.LIGHTS_ON,
+                    "{{count}} lights are on: {{names}}.",
+                    "You have {{count}} lights on: {{names}}.")
+            .add(Type.NO_LIGHTS_ON,
+                    "All the lights are off.",
+                    "None of the lights are on right now.")
+            .add(Type.TIME,
+                    "The current time is {{time}}. It's {{dayOfWeek}} today.",
+                    "Right now, it's {{time}} on {{dayOfWeek}}, {{date}}.",
+                    "My internal clock says it's {{time}} on {{dayOfWeek}}, {{date}}.",
+                    "Synchronizing time... we're at {{time}}, {{dayOfWeek}} {{date}}.")
+            .add(Type.SECURITY,
+                    "{{action}} security system in progress...",
+                    "Executing {{action}} for home security.",
+                    "Processing security {{action}} request.",
+                    "Security protocol for {{action}} is now active.")
+            .add(Type.WEATHER,
+                    "Let me check the forecast for {{period}}...",
+                    "Weather update for {{period}} incoming.",
+                    "Retrieving meteorological data for {{period}}.",
+                    "Scanning atmospheric conditions for {{period}}.")
+            .build();
+
+    private static final String NO_TEMPLATE = "I'm not sure how to respond to that right now.";
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(128));
+
+    private final Map<Type, Template[]> templates;
+
+    private ResponseTemplates(Map<Type, Template[]> templates) {
+        this.templates = templates;
+    }
+
+    public static ResponseTemplates shared() {
+        return DEFAULT;
+    }
+
+    /**
+     * Renders a random variation of the response with this thread's reusable buffer
+     */
+    public String render(Type type, ResponseContext context) {
+        StringBuilder out = BUFFER.get();
+        out.setLength(0);
+        render(type, context, out);
+        return out.toString();
+    }
+
+    /**
+     * Appends a random variation of the response to the buffer
+     */
+    public void render(Type type, ResponseContext context, StringBuilder out) {
+        Template[] variations = templates.get(type);
+        if (variations == null) {
+            out.append(NO_TEMPLATE);
+            return;
+        }
+        variations[ThreadLocalRandom.current().nextInt(variations.length)].render(context, out);
+    }
+
+    // One variation: literals[0], placeholders[0], literals[1], ..., literals[n]
+    private record Template(String[] literals, Placeholder[] placeholders) {
+        static Template parse(String text) {
+            List<String> literals = new ArrayList<>();
+            List<Placeholder> placeholders = new ArrayList<>();
+            int position = 0;
+            while (true) {
+                int open = text.indexOf("{{", position);
+                int close = open < 0 ? -1 : text.indexOf("}}", open + 2);
+                if (close < 0) {
+                    literals.add(text.substring(position));
+                    break;
+                }
+                literals.add(text.substring(position, open));
+                placeholders.add(Placeholder.fromTemplateName(text.substring(open + 2, close)));
+                position = close + 2;
+            }
+            return new Template(literals.toArray(String[]::new), placeholders.toArray(Placeholder[]::new));
+        }
+
+        void render(ResponseContext context, StringBuilder out) {
+            for (int i = 0; i < placeholders.length; i++) {
+                out.append(literals[i]);
+                context.appendTo(placeholders[i], out);
+            }
+            out.append(literals[placeholders.length]);
+        }
+    }
+
+    /**
+     * Parses templates into a new set; unknown placeholders are rejected here rather than when rendering
+     */
+    public static final class Builder {
+        private final Map<Type, Template[]> templates = new EnumMap<>(Type.class);
+
+        public Builder add(Type type, String... variations) {
+            Template[] parsed = new Template[variations.length];
+            for (int i = 0; i < variations.length; i++) {
+                parsed[i] = Template.parse(variations[i]);
+            }
+            templates.put(type, parsed);
+            return this;
+        }
+
+        public ResponseTemplates build() {
+            return new ResponseTemplates(new EnumMap<>(templates));
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package org.example.smarthomeapplication.model.voice;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Commands waiting for one voice assistant, answered one at a time on a scheduler shared by every assistant.
+ * Each command is answered a response delay after it starts, without holding a thread while it waits,
+ * so the number of threads stays fixed however many assistants there are. The queue is bounded:
+ * when it is full, new commands are turned away instead of piling up.
+ */
+public class VoiceRequestQueue {
+    public static final int DEFAULT_CAPACITY = 32;
+    public static final long DEFAULT_RESPONSE_DELAY_MILLIS = 800;
+
+    private static volatile ScheduledExecutorService sharedScheduler;
+
+    private final ScheduledExecutorService scheduler;
+    private final ArrayBlockingQueue<Request> pending;
+    private final Handler handler;
+    private final AtomicBoolean busy = new AtomicBoolean();
+    private volatile long responseDelayNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_RESPONSE_DELAY_MILLIS);
+
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    public VoiceRequestQueue(Handler handler) {
+        this(DEFAULT_CAPACITY, sharedScheduler(), handler);
+    }
+
+    public VoiceRequestQueue(int capacity, ScheduledExecutorService scheduler, Handler handler) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.pending = new ArrayBlockingQueue<>(capacity);
+        this.scheduler = scheduler;
+        this.handler = handler;
+    }
+
+    /**
+     * One thread per core, shared by every assistant
+     */
+    public static ScheduledExecutorService sharedScheduler() {
+        ScheduledExecutorService scheduler = sharedScheduler;
+        if (scheduler == null) {
+            synchronized (VoiceRequestQueue.class) {
+                scheduler = sharedScheduler;
+                if (scheduler == null) {
+                    AtomicInteger threadCount = new AtomicInteger();
+                    scheduler = Executors.newScheduledThreadPool(Runtime.getRuntime().availableProcessors(), runnable -> {
+                        Thread thread = new Thread(runnable, "voice-assistant-" + threadCount.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                    sharedScheduler = scheduler;
+                }
+            }
+        }
+        return scheduler;
+    }
+
+    /**
+     * Queues the command behind the ones already waiting
+     * @return false if the queue is full and the command was turned away
+     */
+    public boolean submit(String command) {
+        if (!pending.offer(new Request(command, System.nanoTime()))) {
+            rejected.incrementAndGet();
+            return false;
+        }
+        accepted.incrementAndGet();
+        startNext();
+        return true;
+    }
+
+    public void setResponseDelayMillis(long millis) {
+        if (millis < 0) {
+            throw new IllegalArgumentException("Response delay can't be negative");
+        }
+        this.responseDelayNanos = TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    public long getResponseDelayMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(responseDelayNanos);
+    }
+
+    /**
+     * @return true while a command is being answered
+     */
+    public boolean isBusy() {
+        return busy.get();
+    }
+
+    public int getQueued() {
+        return pending.size();
+    }
+
+    public long getAcceptedCount() {
+        return accepted.get();
+    }
+
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    /**
+     * Time from submitting each command to its response having been delivered
+     */
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    // Only one command of this queue is in progress at a time; whoever flips busy starts the next one
+    private void startNext() {
+        while (busy.compareAndSet(false, true)) {
+            Request request = pending.poll();
+            if (request == null) {
+                busy.set(false);
+                // A command may have arrived between the poll and releasing busy
+                if (pending.isEmpty()) return;
+                continue;
+            }
+            try {
+                scheduler.execute(() -> start(request));
+            } catch (RejectedExecutionException e) {
+                // Scheduler has been shut down; nothing will answer what is left
+                busy.set(false);
+            }
+            return;
+        }
+    }
+
+    private void start(Request request) {
+        try {
+            handler.started(request.command());
+        } catch (RuntimeException e) {
+            System.err.println("Voice command failed to start: " + e.getMessage());
+        }
+        scheduler.schedule(() -> finish(request), responseDelayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private void finish(Request request) {
+        try {
+            handler.respond(request.command());
+        } catch (RuntimeException e) {
+            System.err.println("Voice command failed: " + e.getMessage());
+        } finally {
+            latency.record(System.nanoTime() - request.submittedAt());
+            busy.set(false);
+            startNext();
+        }
+    }
+
+    private record Request(String command, long submittedAt) {
+    }
+
+    /**
+     * What the assistant does with each command; both methods run on the scheduler
+     */
+    public interface Handler {
+        /**
+         * Called when the command reaches the front of the queue
+         */
+        void started(String command);
+
+        /**
+         * Called a response delay after started
+         */
+        void respond(String command);
+    }
+}
@@ -0,0 +1,229 @@
+package org.example.smarthomeapplication.simulation;
+
+import org.example.smarthomeapplication.model.device.SmartDevice;
+import org.example.smarthomeapplication.model.device.SmartThermostat;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Headless simulation of a whole thermostat fleet, no JavaFX involved.
+ * One scheduler thread starts a tick every interval; the tick splits the fleet into slices
+ * that run in parallel on a fork-join pool. A tick that runs past its time budget stops early,
+ * and each slice resumes with the thermostats it skipped on the next tick.
+ */
+public class ThermostatSimulationEngine {
+    private static final int SLICES_PER_THREAD = 4;
+    private static final int DEADLINE_CHECK_INTERVAL = 1024;
+
+    private final long tickIntervalMillis;
+    private final long tickBudgetNanos;
+    private final ForkJoinPool workers;
+    private final ScheduledExecutorService scheduler;
+
+    private final List<SmartThermostat> fleet = new ArrayList<>();
+    private SmartThermostat[] snapshot = new SmartThermostat[0];
+    private boolean fleetChanged;
+
+    private ScheduledFuture<?> ticking;
+    private int[] sliceProgress = new int[0]; // where each slice resumes, so skipped thermostats go first
+    private volatile TickStats lastTick = new TickStats(0, 0, 0, 0, false);
+    private long tickCount;
+    private long overrunCount;
+
+    /**
+     * Same cadence as the control panel: a tick every 3 seconds with a one second budget
+     */
+    public ThermostatSimulationEngine() {
+        this(3000, 1000, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param tickIntervalMillis time between the start of two ticks
+     * @param tickBudgetMillis   time a tick may spend before it stops early
+     * @param parallelism        worker threads the fleet is split across
+     */
+    public ThermostatSimulationEngine(long tickIntervalMillis, long tickBudgetMillis, int parallelism) {
+        if (tickIntervalMillis <= 0 || tickBudgetMillis <= 0 || parallelism <= 0) {
+            throw new IllegalArgumentException("Interval, budget and parallelism must be positive");
+        }
+        this.tickIntervalMillis = tickIntervalMillis;
+        this.tickBudgetNanos = TimeUnit.MILLISECONDS.toNanos(tickBudgetMillis);
+        this.workers = new ForkJoinPool(parallelism);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "thermostat-simulation");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public synchronized void register(SmartThermostat thermostat) {
+        fleet.add(thermostat);
+        fleetChanged = true;
+    }
+
+    /**
+     * Registers every thermostat among the devices; other device types are ignored
+     * @return number of thermostats registered
+     */
+    public synchronized int registerAll(Collection<? extends SmartDevice> devices) {
+        int added = 0;
+        for (SmartDevice device : devices) {
+            if (device instanceof SmartThermostat thermostat) {
+                fleet.add(thermostat);
+                added++;
+            }
+        }
+        fleetChanged = true;
+        return added;
+    }
+
+    public synchronized void unregister(SmartThermostat thermostat) {
+        fleetChanged |= fleet.remove(thermostat);
+    }
+
+    public synchronized int getFleetSize() {
+        return fleet.size();
+    }
+
+    public synchronized void start() {
+        if (ticking != null) return;
+        ticking = scheduler.scheduleAtFixedRate(this::tickSafely, tickIntervalMillis, tickIntervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop() {
+        if (ticking != null) {
+            ticking.cancel(false);
+            ticking = null;
+        }
+    }
+
+    /**
+     * Stops ticking and releases the worker threads
+     */
+    public void shutdown() {
+        stop();
+        scheduler.shutdown();
+        workers.shutdown();
+    }
+
+    /**
+     * Runs one tick and waits for it to finish
+     */
+    public TickStats tick() {
+        SmartThermostat[] thermostats = currentFleet();
+        int size = thermostats.length;
+        long start = System.nanoTime();
+        long deadline = start + tickBudgetNanos;
+        if (size == 0) {
+            return record(new TickStats(0, 0, 0, 0, false));
+        }
+
+        int sliceCount = Math.min(size, workers.getParallelism() * SLICES_PER_THREAD);
+        int sliceSize = (size + sliceCount - 1) / sliceCount;
+        int[] progress = progressFor(sliceCount);
+        List<Callable<Integer>> slices = new ArrayList<>(sliceCount);
+        for (int slice = 0; slice * sliceSize < size; slice++) {
+            int sliceIndex = slice;
+            int from = slice * sliceSize;
+            int to = Math.min(from + sliceSize, size);
+            slices.add(() -> simulate(thermostats, from, to, progress, sliceIndex, deadline));
+        }
+
+        int simulated = 0;
+        for (Future<Integer> slice : workers.invokeAll(slices)) {
+            try {
+                simulated += slice.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException e) {
+                System.err.println("Thermostat simulation slice failed: " + e.getCause());
+            }
+        }
+
+        long elapsed = System.nanoTime() - start;
+        return record(new TickStats(size, simulated, size - simulated, elapsed, elapsed > tickBudgetNanos));
+    }
+
+    // Simulates one slice starting where it stopped last time, until done or out of time
+    private static int simulate(SmartThermostat[] thermostats, int from, int to, int[] progress, int slice,
+                                long deadline) {
+        int length = to - from;
+        int position = progress[slice] % length;
+        int simulated = 0;
+        while (simulated < length) {
+            if ((simulated % DEADLINE_CHECK_INTERVAL) == 0 && System.nanoTime() > deadline) {
+                break;
+            }
+            thermostats[from + position].simulateTemperatureChanges();
+            simulated++;
+            position = position + 1 == length ? 0 : position + 1;
+        }
+        progress[slice] = position;
+        return simulated;
+    }
+
+    private void tickSafely() {
+        try {
+            tick();
+        } catch (RuntimeException e) {
+            // An exception would cancel the scheduled task, keep the simulation going instead
+            System.err.println("Thermostat simulation tick failed: " + e.getMessage());
+        }
+    }
+
+    private synchronized SmartThermostat[] currentFleet() {
+        if (fleetChanged) {
+            snapshot = fleet.toArray(new SmartThermostat[0]);
+            sliceProgress = new int[0];
+            fleetChanged = false;
+        }
+        return snapshot;
+    }
+
+    private synchronized int[] progressFor(int sliceCount) {
+        if (sliceProgress.length != sliceCount) {
+            sliceProgress = new int[sliceCount];
+        }
+        return sliceProgress;
+    }
+
+    private synchronized TickStats record(TickStats stats) {
+        tickCount++;
+        if (stats.overBudget()) {
+            overrunCount++;
+        }
+        lastTick = stats;
+        return stats;
+    }
+
+    public TickStats getLastTick() {
+        return lastTick;
+    }
+
+    public synchronized long getTickCount() {
+        return tickCount;
+    }
+
+    public synchronized long getOverrunCount() {
+        return overrunCount;
+    }
+
+    /**
+     * What one tick did
+     * @param overBudget true if the tick took longer than its budget
+     */
+    public record TickStats(int fleetSize, int simulated, int skipped, long elapsedNanos, boolean overBudget) {
+    }
+}
@@ -1,5 +1,14 @@
 package org.example.smarthomeapplication.user;
 
+import java.util.List;
+
 public interface Observer {
     void update(String message);
+
+    // Called by the async event bus with every message drained in one go, oldest first
+    default void updateBatch(List<String> messages) {
+        for (String message : messages) {
+            update(message);
+        }
+    }
 }
@@ -0,0 +1,101 @@
+package org.example.smarthomeapplication.view;
+
+import javafx.collections.ObservableListBase;
+import org.example.smarthomeapplication.viewmodel.EventLogEntry;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Observable list of log entries kept in a fixed-size ring buffer.
+ * Appending past the capacity drops the oldest entries, and listeners such as a ListView or
+ * FilteredList only see the entries that were added and dropped, never a full rebuild.
+ * Must be used on the JavaFX thread.
+ */
+public class EventLogList extends ObservableListBase<EventLogEntry> {
+    private final EventLogEntry[] ring;
+    private int start; // slot of the oldest entry
+    private int size;
+
+    public EventLogList(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.ring = new EventLogEntry[capacity];
+    }
+
+    @Override
+    public EventLogEntry get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Entry " + index + " of " + size);
+        }
+        return ring[slot(index)];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return ring.length;
+    }
+
+    /**
+     * Appends the entries in order, dropping the oldest ones that no longer fit
+     */
+    public void append(List<EventLogEntry> entries) {
+        if (entries.isEmpty()) return;
+
+        // Only the newest entries can survive a batch bigger than the whole buffer
+        int skip = Math.max(0, entries.size() - ring.length);
+        int incoming = entries.size() - skip;
+
+        int overflow = size + incoming - ring.length;
+        if (overflow > 0) {
+            List<EventLogEntry> removed = new ArrayList<>(overflow);
+            for (int i = 0; i < overflow; i++) {
+                int slot = slot(i);
+                removed.add(ring[slot]);
+                ring[slot] = null;
+            }
+            start = (start + overflow) % ring.length;
+            size -= overflow;
+
+            beginChange();
+            nextRemove(0, removed);
+            endChange();
+        }
+
+        int from = size;
+        for (int i = skip; i < entries.size(); i++) {
+            ring[slot(size)] = entries.get(i);
+            size++;
+        }
+
+        beginChange();
+        nextAdd(from, size);
+        endChange();
+    }
+
+    @Override
+    public void clear() {
+        if (size == 0) return;
+
+        List<EventLogEntry> removed = new ArrayList<>(this);
+        for (int i = 0; i < ring.length; i++) {
+            ring[i] = null;
+        }
+        start = 0;
+        size = 0;
+
+        beginChange();
+        nextRemove(0, removed);
+        endChange();
+    }
+
+    private int slot(int index) {
+        int slot = start + index;
+        return slot >= ring.length ? slot - ring.length : slot;
+    }
+}
@@ -0,0 +1,138 @@
+package org.example.smarthomeapplication.view;
+
+import javafx.collections.transformation.FilteredList;
+import javafx.geometry.Pos;
+import javafx.scene.control.Button;
+import javafx.scene.control.ComboBox;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.VBox;
+import org.example.smarthomeapplication.viewmodel.EventLogEntry;
+import org.example.smarthomeapplication.viewmodel.EventLogEntry.Severity;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Bounded device event log with filters by device and minimum severity.
+ * Entries live in an EventLogList ring buffer and are shown in a ListView, which only
+ * creates cells for the rows on screen, so the log stays fast however many events arrive.
+ */
+public class EventLogView extends VBox {
+    public static final int DEFAULT_CAPACITY = 10_000;
+
+    private static final String ALL_DEVICES = "All devices";
+    private static final String SYSTEM = "System";
+    private static final DateTimeFormatter TIME_FORMAT =
+            DateTimeFormatter.ofPattern("HH:mm:ss").withZone(ZoneId.systemDefault());
+
+    private final EventLogList entries;
+    private final FilteredList<EventLogEntry> visibleEntries;
+    private final ListView<EventLogEntry> listView;
+    private final ComboBox<String> deviceFilter = new ComboBox<>();
+    private final ComboBox<Severity> severityFilter = new ComboBox<>();
+    private final Set<String> knownDevices = new HashSet<>();
+
+    public EventLogView() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public EventLogView(int capacity) {
+        super(5);
+        entries = new EventLogList(capacity);
+        visibleEntries = new FilteredList<>(entries);
+        listView = new ListView<>(visibleEntries);
+        listView.setCellFactory(view -> new EntryCell());
+        VBox.setVgrow(listView, Priority.ALWAYS);
+
+        deviceFilter.getItems().addAll(ALL_DEVICES, SYSTEM);
+        deviceFilter.setValue(ALL_DEVICES);
+        deviceFilter.setOnAction(event -> applyFilter());
+
+        severityFilter.getItems().addAll(Severity.values());
+        severityFilter.setValue(Severity.INFO);
+        severityFilter.setOnAction(event -> applyFilter());
+
+        Button clearButton = new Button("Clear Log");
+        clearButton.setOnAction(event -> clear());
+
+        HBox filterBar = new HBox(10, new Label("Device:"), deviceFilter,
+                new Label("Minimum severity:"), severityFilter, clearButton);
+        filterBar.setAlignment(Pos.CENTER_LEFT);
+
+        getChildren().addAll(filterBar, listView);
+    }
+
+    /**
+     * Adds entries and keeps the newest one in view if the log was already scrolled to the end.
+     * Must be called on the JavaFX thread.
+     */
+    public void append(List<EventLogEntry> newEntries) {
+        boolean followTail = isFollowingTail();
+
+        for (EventLogEntry entry : newEntries) {
+            if (entry.device() != null && knownDevices.add(entry.device())) {
+                deviceFilter.getItems().add(entry.device());
+            }
+        }
+        entries.append(newEntries);
+
+        if (followTail && !visibleEntries.isEmpty()) {
+            listView.scrollTo(visibleEntries.size() - 1);
+        }
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    // Follow new entries unless the user has picked an older row to look at
+    private boolean isFollowingTail() {
+        int selected = listView.getSelectionModel().getSelectedIndex();
+        return selected < 0 || selected == visibleEntries.size() - 1;
+    }
+
+    private void applyFilter() {
+        String device = deviceFilter.getValue();
+        Severity minimum = severityFilter.getValue() != null ? severityFilter.getValue() : Severity.INFO;
+        boolean anyDevice = device == null || device.equals(ALL_DEVICES);
+        boolean systemOnly = SYSTEM.equals(device);
+
+        visibleEntries.setPredicate(entry -> {
+            if (entry.severity().compareTo(minimum) < 0) return false;
+            if (anyDevice) return true;
+            return systemOnly ? entry.device() == null : device.equals(entry.device());
+        });
+    }
+
+    private static class EntryCell extends ListCell<EventLogEntry> {
+        @Override
+        protected void updateItem(EventLogEntry entry, boolean empty) {
+            super.updateItem(entry, empty);
+            if (empty || entry == null) {
+                setText(null);
+                setStyle("");
+                return;
+            }
+
+            String source = entry.device() != null ? entry.device() : SYSTEM;
+            setText(TIME_FORMAT.format(Instant.ofEpochMilli(entry.timestamp())) + "  [" + source + "]  " + entry.message());
+            switch (entry.severity()) {
+                case ERROR -> setStyle("-fx-text-fill: #c0392b;");
+                case WARNING -> setStyle("-fx-text-fill: #d35400;");
+                default -> setStyle("");
+            }
+        }
+    }
+}
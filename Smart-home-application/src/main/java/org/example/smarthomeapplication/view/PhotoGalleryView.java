@@ -0,0 +1,218 @@
+package org.example.smarthomeapplication.view;
+
+import javafx.application.Platform;
+import javafx.collections.FXCollections;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+import javafx.scene.image.ImageView;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.VBox;
+import org.example.smarthomeapplication.model.camera.ThumbnailStore;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * Photo grid that only builds nodes for the rows on screen.
+ * Each ListView row shows up to COLUMNS photos, and the ListView reuses row cells while scrolling, so the number
+ * of nodes stays the same for ten photos or fifty thousand. Thumbnails are made and decoded in the background;
+ * rows a little ahead of and behind the viewport are warmed up, and work for rows the user scrolled away from
+ * is cancelled. Must be used on the JavaFX thread.
+ */
+public class PhotoGalleryView extends ListView<Integer> {
+    public static final int COLUMNS = 3;
+    private static final int PREFETCH_ROWS = 4;
+    private static final double ROW_HEIGHT = ThumbnailStore.HEIGHT + 40;
+
+    private final List<String> photos;
+    private final ThumbnailStore thumbnails;
+    private final ThumbnailCache cache;
+    private final Consumer<String> onOpen;
+    private final Consumer<String> onError;
+    private final Map<Integer, List<CompletableFuture<Path>>> prefetching = new HashMap<>();
+    private final List<PhotoTile> allTiles = new ArrayList<>(); // every tile of every row cell
+    private boolean disposed;
+
+    /**
+     * @param photos     photo file names, in display order
+     * @param thumbnails where the camera's thumbnails live
+     * @param cache      decoded thumbnails, shared with other galleries
+     * @param onOpen     called with the photo name when a thumbnail is clicked
+     * @param onError    called with a message when a thumbnail can't be shown
+     */
+    public PhotoGalleryView(List<String> photos, ThumbnailStore thumbnails, ThumbnailCache cache,
+                            Consumer<String> onOpen, Consumer<String> onError) {
+        this.photos = List.copyOf(photos);
+        this.thumbnails = thumbnails;
+        this.cache = cache;
+        this.onOpen = onOpen;
+        this.onError = onError;
+
+        int rows = (this.photos.size() + COLUMNS - 1) / COLUMNS;
+        List<Integer> rowIndices = new ArrayList<>(rows);
+        for (int row = 0; row < rows; row++) {
+            rowIndices.add(row);
+        }
+        setItems(FXCollections.observableList(rowIndices));
+        setFixedCellSize(ROW_HEIGHT);
+        setCellFactory(view -> new RowCell());
+    }
+
+    /**
+     * Cancels all outstanding thumbnail work, e.g. when the gallery window closes
+     */
+    public void dispose() {
+        disposed = true;
+        for (List<CompletableFuture<Path>> futures : prefetching.values()) {
+            futures.forEach(this::cancelPrefetch);
+        }
+        prefetching.clear();
+        for (PhotoTile tile : allTiles) {
+            tile.stopLoading();
+        }
+    }
+
+    // Warms the rows around the one just shown and drops prefetches that are now far off screen
+    private void prefetchAround(int row) {
+        Iterator<Map.Entry<Integer, List<CompletableFuture<Path>>>> entries = prefetching.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<Integer, List<CompletableFuture<Path>>> entry = entries.next();
+            if (Math.abs(entry.getKey() - row) > 2 * PREFETCH_ROWS) {
+                entry.getValue().forEach(future -> future.cancel(false));
+                entries.remove();
+            }
+        }
+
+        prefetch(row - PREFETCH_ROWS);
+        prefetch(row + PREFETCH_ROWS);
+    }
+
+    private void prefetch(int row) {
+        if (row < 0 || row >= getItems().size() || prefetching.containsKey(row)) return;
+
+        List<CompletableFuture<Path>> futures = new ArrayList<>(COLUMNS);
+        for (String photo : photosInRow(row)) {
+            CompletableFuture<Path> thumbnail = thumbnails.thumbnailFor(photo);
+            futures.add(thumbnail);
+            thumbnail.thenAccept(path -> Platform.runLater(() -> {
+                if (!disposed) cache.get(path);
+            }));
+        }
+        prefetching.put(row, futures);
+    }
+
+    // Stops a thumbnail that is still being made, or the image of a finished one that is still loading
+    private void cancelPrefetch(CompletableFuture<Path> future) {
+        if (future.isDone() && !future.isCompletedExceptionally()) {
+            cache.cancelLoading(future.join());
+        } else {
+            future.cancel(false);
+        }
+    }
+
+    private List<String> photosInRow(int row) {
+        int from = row * COLUMNS;
+        return photos.subList(from, Math.min(from + COLUMNS, photos.size()));
+    }
+
+    private class RowCell extends ListCell<Integer> {
+        private final HBox content = new HBox(10);
+        private final PhotoTile[] tiles = new PhotoTile[COLUMNS];
+
+        RowCell() {
+            content.setPadding(new Insets(5));
+            for (int i = 0; i < COLUMNS; i++) {
+                tiles[i] = new PhotoTile();
+                content.getChildren().add(tiles[i]);
+                allTiles.add(tiles[i]);
+            }
+        }
+
+        @Override
+        protected void updateItem(Integer row, boolean empty) {
+            super.updateItem(row, empty);
+            if (empty || row == null) {
+                for (PhotoTile tile : tiles) {
+                    tile.show(null);
+                }
+                setGraphic(null);
+                return;
+            }
+
+            List<String> rowPhotos = photosInRow(row);
+            for (int i = 0; i < COLUMNS; i++) {
+                tiles[i].show(i < rowPhotos.size() ? rowPhotos.get(i) : null);
+            }
+            setGraphic(content);
+            prefetchAround(row);
+        }
+    }
+
+    private class PhotoTile extends VBox {
+        private final ImageView imageView = new ImageView();
+        private final Label label = new Label();
+        private String photo;
+        private CompletableFuture<Path> loading;
+        private Path shownThumbnail;
+
+        PhotoTile() {
+            super(5);
+            setAlignment(Pos.CENTER);
+            setPrefWidth(ThumbnailStore.WIDTH);
+            imageView.setFitWidth(ThumbnailStore.WIDTH);
+            imageView.setFitHeight(ThumbnailStore.HEIGHT);
+            imageView.setPreserveRatio(true);
+            imageView.setStyle("-fx-effect: dropshadow(three-pass-box, rgba(0,0,0,0.8), 10, 0, 0, 0);");
+            imageView.setOnMouseClicked(event -> {
+                if (photo != null) onOpen.accept(photo);
+            });
+            getChildren().addAll(imageView, label);
+        }
+
+        void show(String newPhoto) {
+            if (newPhoto != null && newPhoto.equals(photo)) return;
+
+            // The tile is being reused for another photo: stop whatever it was still waiting for
+            stopLoading();
+
+            photo = newPhoto;
+            imageView.setImage(null);
+            label.setText(newPhoto != null ? newPhoto : "");
+            setVisible(newPhoto != null);
+            if (newPhoto == null) return;
+
+            CompletableFuture<Path> request = thumbnails.thumbnailFor(newPhoto);
+            loading = request;
+            request.whenComplete((thumbnail, error) -> Platform.runLater(() -> {
+                if (loading != request) return; // scrolled away meanwhile
+                loading = null;
+                if (error != null) {
+                    onError.accept("Failed to show thumbnail for " + newPhoto + ": " + error.getMessage());
+                    return;
+                }
+                shownThumbnail = thumbnail;
+                imageView.setImage(cache.get(thumbnail));
+            }));
+        }
+
+        void stopLoading() {
+            if (loading != null) {
+                loading.cancel(false);
+                loading = null;
+            }
+            if (shownThumbnail != null) {
+                cache.cancelLoading(shownThumbnail);
+                shownThumbnail = null;
+            }
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package org.example.smarthomeapplication.view;
 
+import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
 import javafx.scene.image.Image;
@@ -17,24 +18,42 @@ import javafx.animation.KeyValue;
 import javafx.scene.paint.Color;
 import javafx.scene.effect.ColorAdjust;
 import javafx.scene.effect.Glow;
-import javafx.application.Platform;
 import javafx.scene.shape.Circle;
 
+import org.example.smarthomeapplication.Factory.SmartDeviceFactory;
+import org.example.smarthomeapplication.model.camera.PhotoDeletionService;
+import org.example.smarthomeapplication.model.camera.PhotoIndex;
 import org.example.smarthomeapplication.model.device.*;
+import org.example.smarthomeapplication.model.voice.CommandHistory;
 import org.example.smarthomeapplication.util.UIHelper;
+import org.example.smarthomeapplication.viewmodel.DevicePersistence;
+import org.example.smarthomeapplication.viewmodel.EventLogEntry;
 import org.example.smarthomeapplication.viewmodel.SmartHomeController;
 import org.example.smarthomeapplication.user.User;
 import org.example.smarthomeapplication.user.Observer;
 
 import java.io.File;
-import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.TimeUnit;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 
 public class SmartHomeControllerUI implements Observer {
+    private static final int RETENTION_DAYS = 7;
+    private static final int HISTORY_PAGE_SIZE = 50;
+    // Saved devices and voice assistant histories go here; run with -Dsmarthome.dataDir=<folder> to move them
+    private static final Path DATA_DIRECTORY = Paths.get(System.getProperty("smarthome.dataDir", ""));
+    private static final String DEVICE_STATE_DIRECTORY = "device_state";
+    private static final DateTimeFormatter HISTORY_TIME_FORMAT =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS").withZone(ZoneId.systemDefault());
+
     @FXML
     private ComboBox<String> deviceTypeBox;
     @FXML
@@ -44,7 +63,7 @@ public class SmartHomeControllerUI implements Observer {
     @FXML
     private ComboBox<String> deviceStateBox;
     @FXML
-    private TextArea statusOutput;
+    private EventLogView statusOutput;
 
     @FXML
     private Button addDeviceButton;
@@ -101,9 +120,13 @@ public class SmartHomeControllerUI implements Observer {
     private ColorAdjust colorEffect = new ColorAdjust();
     private Glow glowEffect = new Glow();
 
-    private final SmartHomeController controller = new SmartHomeController();
+    private final SmartDeviceFactory deviceFactory = new SmartDeviceFactory(DATA_DIRECTORY);
+    private final SmartHomeController controller = new SmartHomeController(deviceFactory);
     private final User currentUser = new User("Default User");
-    private String lastPhotoTaken = null;
+    private volatile String lastPhotoTaken = null;
+    private final UiUpdatePipeline<EventLogEntry> uiUpdates = new UiUpdatePipeline<>(this::appendStatusLines,
+            message -> new EventLogEntry(System.currentTimeMillis(), null, EventLogEntry.Severity.ERROR, message));
+    private final ThumbnailCache thumbnailCache = new ThumbnailCache();
     private SmartVoiceAssistant currentAssistant;
     private Timeline waveformAnimation;
     private Timeline pulseAnimation;
@@ -122,6 +145,8 @@ public class SmartHomeControllerUI implements Observer {
 
     @FXML
     private void initialize() {
+        uiUpdates.start();
+
         deviceTypeBox.getItems().addAll(deviceStates.keySet());
         deviceTypeBox.setOnAction(event -> updateStateOptions());
 
@@ -187,6 +212,35 @@ public class SmartHomeControllerUI implements Observer {
         initializeVoiceAssistantControls();
         setupWaveformBars();
         setupAnimations();
+
+        restoreDevices();
+    }
+
+    // Brings back the devices from the last run and keeps saving their changes
+    private void restoreDevices() {
+        DevicePersistence persistence;
+        try {
+            persistence = DevicePersistence.open(DATA_DIRECTORY.resolve(DEVICE_STATE_DIRECTORY),
+                    DevicePersistence.DEFAULT_SNAPSHOT_INTERVAL_MILLIS, deviceFactory);
+        } catch (IOException e) {
+            System.err.println("Failed to restore devices, changes won't be saved: " + e.getMessage());
+            return;
+        }
+        controller.enablePersistence(persistence);
+        // Changes are written a moment after they are made; write the last ones before the app exits
+        Runtime.getRuntime().addShutdownHook(new Thread(persistence::close, "device-persistence-close"));
+
+        List<String> names = new ArrayList<>();
+        for (SmartDevice device : controller.getDevices()) {
+            device.addObserver(currentUser);
+            device.addObserver(this);
+            names.add(device.getDeviceName());
+        }
+        names.sort(String::compareToIgnoreCase);
+        deviceListBox.getItems().addAll(names);
+        if (!names.isEmpty()) {
+            updateStatus("💾 Restored " + names.size() + " devices");
+        }
     }
 
     private void updateDeviceSpecificControls() {
@@ -279,6 +333,7 @@ public class SmartHomeControllerUI implements Observer {
         // Update the current assistant and controls
         if (isVoiceAssistant) {
             currentAssistant = (SmartVoiceAssistant) device;
+            currentAssistant.getCommandHistory().load(); // Read in the background, ready before it's shown
             updateAssistantDisplay();
         } else {
             currentAssistant = null;
@@ -290,7 +345,7 @@ public class SmartHomeControllerUI implements Observer {
         // Volume slider action
         volumeSlider.valueProperty().addListener((obs, oldVal, newVal) -> {
             if (currentAssistant != null) {
-                currentAssistant.changeState("volume:" + newVal.intValue());
+                changeAssistantState("volume:" + newVal.intValue());
             }
         });
 
@@ -298,11 +353,11 @@ public class SmartHomeControllerUI implements Observer {
         listeningToggle.setOnAction(event -> {
             if (currentAssistant != null) {
                 if (listeningToggle.isSelected()) {
-                    currentAssistant.changeState("listening");
+                    changeAssistantState("listening");
                     muteToggle.setSelected(false);
                     startAnimations();
                 } else {
-                    currentAssistant.changeState("passive");
+                    changeAssistantState("passive");
                     stopAnimations();
                 }
             } else {
@@ -315,11 +370,11 @@ public class SmartHomeControllerUI implements Observer {
         muteToggle.setOnAction(event -> {
             if (currentAssistant != null) {
                 if (muteToggle.isSelected()) {
-                    currentAssistant.changeState("mute");
+                    changeAssistantState("mute");
                     listeningToggle.setSelected(false);
                     stopAnimations();
                 } else {
-                    currentAssistant.changeState("passive");
+                    changeAssistantState("passive");
                 }
             } else {
                 updateStatus("No voice assistant selected.");
@@ -341,6 +396,11 @@ public class SmartHomeControllerUI implements Observer {
         commandInput.setOnAction(event -> sendCommand());
     }
 
+    // Through the controller, so the change is journaled like those made with the other device panels
+    private void changeAssistantState(String state) {
+        controller.changeDeviceState(currentAssistant.getDeviceName(), state);
+    }
+
     private void setupWaveformBars() {
         barContainer.getChildren().clear();
 
@@ -412,7 +472,7 @@ public class SmartHomeControllerUI implements Observer {
         if (command.isEmpty()) return;
 
         if (currentAssistant != null) {
-            currentAssistant.changeState("command:" + command);
+            changeAssistantState("command:" + command);
             commandInput.clear();
 
             Timeline processingAnimation = new Timeline(
@@ -438,24 +498,55 @@ public class SmartHomeControllerUI implements Observer {
     private void displayCommandHistory() {
         if (currentAssistant == null) return;
 
-        Map<String, String> history = currentAssistant.getCommandHistory();
-        StringBuilder historyText = new StringBuilder("Command History:\n\n");
+        // Only one page of entries is copied out of the history at a time
+        CommandHistory history = currentAssistant.getCommandHistory();
+        TextArea textArea = new TextArea();
+        textArea.setEditable(false);
+        textArea.setWrapText(true);
+        textArea.setPrefWidth(400);
+        textArea.setPrefHeight(300);
+
+        Label pageLabel = new Label();
+        Button newerButton = new Button("Newer");
+        Button olderButton = new Button("Older");
+        int[] offset = {0};
+        Runnable showPage = () -> {
+            List<CommandHistory.Entry> page = history.page(offset[0], HISTORY_PAGE_SIZE);
+            StringBuilder historyText = new StringBuilder("Command History:\n\n");
+            for (CommandHistory.Entry entry : page) {
+                historyText.append(HISTORY_TIME_FORMAT.format(entry.time())).append(": ")
+                        .append(entry.command()).append("\n");
+            }
+            textArea.setText(historyText.toString());
+
+            int total = history.size();
+            pageLabel.setText(total == 0 ? "No commands yet"
+                    : (offset[0] + 1) + "-" + (offset[0] + page.size()) + " of " + total + ", newest first");
+            newerButton.setDisable(offset[0] == 0);
+            olderButton.setDisable(offset[0] + HISTORY_PAGE_SIZE >= total);
+        };
+        newerButton.setOnAction(event -> {
+            offset[0] = Math.max(0, offset[0] - HISTORY_PAGE_SIZE);
+            showPage.run();
+        });
+        olderButton.setOnAction(event -> {
+            offset[0] += HISTORY_PAGE_SIZE;
+            showPage.run();
+        });
+        // The log is read on a background thread; the first page is shown once it has been
+        pageLabel.setText("Loading...");
+        newerButton.setDisable(true);
+        olderButton.setDisable(true);
+        history.load().whenComplete((ignored, error) -> Platform.runLater(showPage));
 
-        for (Map.Entry<String, String> entry : history.entrySet()) {
-            historyText.append(entry.getKey()).append(": ").append(entry.getValue()).append("\n");
-        }
+        HBox pageBox = new HBox(10, newerButton, pageLabel, olderButton);
+        pageBox.setAlignment(Pos.CENTER);
 
         Dialog<String> dialog = new Dialog<>();
         dialog.setTitle("Command History");
         dialog.setHeaderText("Command history for " + currentAssistant.getDeviceName());
 
-        TextArea textArea = new TextArea(historyText.toString());
-        textArea.setEditable(false);
-        textArea.setWrapText(true);
-        textArea.setPrefWidth(400);
-        textArea.setPrefHeight(300);
-
-        dialog.getDialogPane().setContent(textArea);
+        dialog.getDialogPane().setContent(new VBox(10, textArea, pageBox));
         dialog.getDialogPane().getButtonTypes().add(ButtonType.CLOSE);
         dialog.showAndWait();
     }
@@ -617,8 +708,8 @@ public class SmartHomeControllerUI implements Observer {
 
     @Override
     public void update(String message) {
-        // This method will be called when the device sends a notification
-        updateStatus("📱 NOTIFICATION: " + message);
+        // This method will be called when the device sends a notification, possibly from a background thread
+        uiUpdates.postStatus(EventLogEntry.fromNotification(message));
 
         // If the notification is about a photo being taken, show a popup
         if (message.contains("Photo taken")) {
@@ -630,22 +721,17 @@ public class SmartHomeControllerUI implements Observer {
                 lastPhotoTaken = message.substring(startIndex + 13, endIndex);
             }
 
-            // Show a notification popup on the JavaFX thread
-            javafx.application.Platform.runLater(() -> {
-                showPhotoNotification();
-            });
+            uiUpdates.requestRefresh("photoNotification", this::showPhotoNotification);
         }
 
         // If the notification is about a light change, update the preview
         if (message.contains("Light is") || message.contains("Brightness changed") ||
                 message.contains("Color changed")) {
-            javafx.application.Platform.runLater(() -> {
-                updateDeviceSpecificControls();
-            });
+            uiUpdates.requestRefresh("deviceControls", this::updateDeviceSpecificControls);
         }
 
-        Platform.runLater(() -> {
-            // Update assistant display if the current assistant sent the update
+        // Update assistant display if the current assistant sent the update
+        uiUpdates.requestRefresh("assistantDisplay", () -> {
             if (currentAssistant != null) {
                 updateAssistantDisplay();
             }
@@ -790,8 +876,21 @@ public class SmartHomeControllerUI implements Observer {
             updateStatus("📷 Recording: " + camera.isRecording() +
                     "\n🌙 Night Mode: " + camera.isNightMode());
 
-            String[] photos = camera.getPhotosList();
-            updateStatus("🖼️ Photos taken: " + photos.length);
+            PhotoIndex photos = camera.getPhotoIndex();
+            updateStatus("🖼️ Photos taken: " + photos.size() + " (" + photos.getTotalBytes() / 1024 + " KB)");
+            if (camera.isFrameStorageEnabled()) {
+                updateStatus("🎞️ Recorded frames: " + camera.getRecordedFrameCount());
+            }
+            if (camera.isMotionGatingEnabled()) {
+                updateStatus("🏃 Unchanged frames skipped: " + camera.getMotionDetector().getSkippedCount());
+            }
+        }
+
+        // Additional info for voice assistants
+        if (device instanceof SmartVoiceAssistant assistant) {
+            updateStatus("🗣️ Commands waiting: " + assistant.getQueuedCommandCount() +
+                    " (" + assistant.getRejectedCommandCount() + " turned away)" +
+                    "\n⏱️ Response latency: " + assistant.getCommandLatency().summary());
         }
 
         // Additional info for lights
@@ -815,11 +914,14 @@ public class SmartHomeControllerUI implements Observer {
             return;
         }
 
-        if (camera.takePhoto()) {
-            updateStatus("📸 Photo taken with " + name);
-        } else {
-            updateStatus("❌ Failed to take photo. Make sure camera is in recording mode.");
-        }
+        // The photo is saved in the background; updateStatus is safe to call from the pipeline's threads
+        camera.takePhotoAsync().whenComplete((photo, error) -> {
+            if (error == null) {
+                updateStatus("📸 Photo taken with " + name);
+            } else {
+                updateStatus("❌ Failed to take photo. Make sure camera is in recording mode.");
+            }
+        });
     }
 
     @FXML
@@ -837,7 +939,7 @@ public class SmartHomeControllerUI implements Observer {
         }
 
         String[] photos = camera.getPhotosList();
-        if (photos.length == 0) {
+        if (photos.length == 0 && camera.getRecordedFrameCount() == 0) {
             UIHelper.showInfoAlert("Empty Gallery", "No photos found for " + name);
             return;
         }
@@ -846,90 +948,31 @@ public class SmartHomeControllerUI implements Observer {
         Stage galleryStage = new Stage();
         galleryStage.setTitle("Photo Gallery - " + name);
 
-        // Create a grid for photos
-        GridPane photoGrid = new GridPane();
-        photoGrid.setPadding(new Insets(10));
-        photoGrid.setHgap(10);
-        photoGrid.setVgap(10);
-
-        // Add photos to the grid
-        int col = 0;
-        int row = 0;
-        final int MAX_COLS = 3;
-
-        try {
-            for (String photoName : photos) {
-                String photoPath = camera.getPhotoPath(photoName);
-                File photoFile = new File(photoPath);
-
-                if (photoFile.exists()) {
-                    // Create thumbnail
-                    Image image = new Image(new FileInputStream(photoFile), 200, 150, true, true);
-                    ImageView imageView = new ImageView(image);
-
-                    // Add some styling
-                    imageView.setStyle("-fx-effect: dropshadow(three-pass-box, rgba(0,0,0,0.8), 10, 0, 0, 0);");
-
-                    // Create a label with the photo name
-                    Label photoLabel = new Label(photoName);
-
-                    // Create a container for the image and label
-                    VBox photoBox = new VBox(10, imageView, photoLabel);
-                    photoBox.setAlignment(Pos.CENTER);
-
-                    // Add photo to grid
-                    photoGrid.add(photoBox, col, row);
-
-                    // Move to next position
-                    col++;
-                    if (col >= MAX_COLS) {
-                        col = 0;
-                        row++;
-                    }
-
-                    // Set up click event to open full-size image
-                    imageView.setOnMouseClicked(event -> {
-                        try {
-                            Stage fullImageStage = new Stage();
-                            Image fullImage = new Image(new FileInputStream(photoFile));
-                            ImageView fullImageView = new ImageView(fullImage);
-
-                            // Fit to screen while maintaining aspect ratio
-                            fullImageView.setPreserveRatio(true);
-                            fullImageView.setFitWidth(800);
-                            fullImageView.setFitHeight(600);
-
-                            VBox fullImageBox = new VBox(fullImageView);
-                            fullImageBox.setAlignment(Pos.CENTER);
-
-                            Scene fullImageScene = new Scene(fullImageBox);
-                            fullImageStage.setScene(fullImageScene);
-                            fullImageStage.setTitle(photoName);
-                            fullImageStage.show();
-                        } catch (Exception e) {
-                            UIHelper.showErrorAlert("Error", "Could not open image: " + e.getMessage());
-                        }
-                    });
-                }
-            }
-        } catch (Exception e) {
-            UIHelper.showErrorAlert("Gallery Error", "Error loading photos: " + e.getMessage());
-        }
-
-        // Create scroll pane for the grid
-        ScrollPane scrollPane = new ScrollPane(photoGrid);
-        scrollPane.setFitToWidth(true);
+        // Only the visible rows get nodes and thumbnails, however many photos there are
+        PhotoGalleryView photoGrid = new PhotoGalleryView(List.of(photos), camera.getThumbnails(),
+                thumbnailCache, photoName -> openFullImage(new File(camera.getPhotoPath(photoName)), photoName),
+                this::updateStatus);
+        galleryStage.setOnHidden(event -> photoGrid.dispose());
 
-        // Create delete all button
+        // Deleting runs in the background; the progress bar follows it and the button turns into a cancel button
+        ProgressBar deletionProgress = new ProgressBar(0);
+        deletionProgress.setVisible(false);
         Button deleteAllButton = new Button("Delete All Photos");
+        Button deleteOldButton = new Button("Delete Older Than " + RETENTION_DAYS + " Days");
         deleteAllButton.setOnAction(event -> {
             if (UIHelper.showConfirmationAlert("Confirm Deletion", "Are you sure you want to delete all photos?")) {
-                if (camera.clearAllPhotos()) {
-                    UIHelper.showInfoAlert("Success", "All photos deleted successfully.");
-                    galleryStage.close();
-                } else {
-                    UIHelper.showErrorAlert("Error", "Failed to delete some photos.");
-                }
+                startDeletion(galleryStage, deleteAllButton, deleteOldButton, deletionProgress,
+                        camera.clearAllPhotosAsync(progress -> Platform.runLater(
+                                () -> deletionProgress.setProgress(progress.fraction()))));
+            }
+        });
+        deleteOldButton.setOnAction(event -> {
+            long cutoff = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(RETENTION_DAYS);
+            if (UIHelper.showConfirmationAlert("Confirm Deletion",
+                    "Delete all photos older than " + RETENTION_DAYS + " days?")) {
+                startDeletion(galleryStage, deleteAllButton, deleteOldButton, deletionProgress,
+                        camera.deletePhotosAsync(0, cutoff, progress -> Platform.runLater(
+                                () -> deletionProgress.setProgress(progress.fraction()))));
             }
         });
 
@@ -938,12 +981,28 @@ public class SmartHomeControllerUI implements Observer {
         closeButton.setOnAction(event -> galleryStage.close());
 
         // Create button container
-        HBox buttonBox = new HBox(10, deleteAllButton, closeButton);
+        HBox buttonBox = new HBox(10, deleteAllButton, deleteOldButton, closeButton, deletionProgress);
+
+        // Recorded frames are only turned into a PNG when someone looks at one
+        int recordedFrames = camera.getRecordedFrameCount();
+        if (recordedFrames > 0) {
+            Button latestFrameButton = new Button("View Latest Frame");
+            latestFrameButton.setOnAction(event -> camera.exportFrame(recordedFrames - 1)
+                    .whenComplete((frame, error) -> Platform.runLater(() -> {
+                        if (error != null) {
+                            UIHelper.showErrorAlert("Error", "Could not export frame: " + error.getMessage());
+                        } else {
+                            openFullImage(frame.toFile(), "Frame " + (recordedFrames - 1));
+                        }
+                    })));
+            buttonBox.getChildren().add(0, latestFrameButton);
+        }
         buttonBox.setAlignment(Pos.CENTER);
         buttonBox.setPadding(new Insets(10));
 
         // Add everything to the main layout
-        VBox mainLayout = new VBox(10, scrollPane, buttonBox);
+        VBox.setVgrow(photoGrid, Priority.ALWAYS);
+        VBox mainLayout = new VBox(10, photoGrid, buttonBox);
 
         // Set the scene and show the stage
         Scene galleryScene = new Scene(mainLayout, 700, 500);
@@ -951,6 +1010,57 @@ public class SmartHomeControllerUI implements Observer {
         galleryStage.show();
     }
 
+    private void startDeletion(Stage galleryStage, Button deleteAllButton, Button deleteOldButton,
+                               ProgressBar deletionProgress, PhotoDeletionService.Deletion deletion) {
+        deletionProgress.setProgress(0);
+        deletionProgress.setVisible(true);
+        deleteOldButton.setDisable(true);
+        deleteAllButton.setText("Cancel Deletion");
+        deleteAllButton.setOnAction(event -> {
+            deletion.cancel();
+            deleteAllButton.setDisable(true);
+        });
+
+        deletion.result().whenComplete((result, error) -> Platform.runLater(() -> {
+            // The listing is out of date now, and the cache may hold thumbnails of deleted photos
+            thumbnailCache.clear();
+            galleryStage.close();
+            if (error != null) {
+                UIHelper.showErrorAlert("Error", "Failed to delete photos: " + error.getMessage());
+            } else if (result.isComplete()) {
+                UIHelper.showInfoAlert("Success", result.deleted() + " photos deleted successfully.");
+            } else if (result.cancelled()) {
+                UIHelper.showInfoAlert("Cancelled", "Deletion cancelled after " + result.deleted() + " photos.");
+            } else {
+                UIHelper.showErrorAlert("Error", "Failed to delete " + result.failed() + " photos.");
+            }
+        }));
+    }
+
+    private void openFullImage(File photoFile, String title) {
+        if (!photoFile.exists()) {
+            UIHelper.showErrorAlert("Error", "Could not open image: " + title + " no longer exists");
+            return;
+        }
+
+        Stage fullImageStage = new Stage();
+        Image fullImage = new Image(photoFile.toURI().toString(), true);
+        ImageView fullImageView = new ImageView(fullImage);
+
+        // Fit to screen while maintaining aspect ratio
+        fullImageView.setPreserveRatio(true);
+        fullImageView.setFitWidth(800);
+        fullImageView.setFitHeight(600);
+
+        VBox fullImageBox = new VBox(fullImageView);
+        fullImageBox.setAlignment(Pos.CENTER);
+
+        Scene fullImageScene = new Scene(fullImageBox);
+        fullImageStage.setScene(fullImageScene);
+        fullImageStage.setTitle(title);
+        fullImageStage.show();
+    }
+
     @FXML
     private void clearAllDevices() {
         if (UIHelper.showConfirmationAlert("Confirm", "Are you sure you want to remove all devices?")) {
@@ -977,7 +1087,16 @@ public class SmartHomeControllerUI implements Observer {
         panel.showThermostatControlPanel(deviceName);
     }
 
+    // Safe from any thread: the line is shown on the next JavaFX pulse
     private void updateStatus(String message) {
-        statusOutput.appendText(message + "\n");
+        uiUpdates.postStatus(EventLogEntry.of(null, message));
+    }
+
+    private void appendStatusLines(List<EventLogEntry> entries) {
+        statusOutput.append(entries);
+    }
+
+    public UiUpdatePipeline<EventLogEntry> getUiUpdates() {
+        return uiUpdates;
     }
 }
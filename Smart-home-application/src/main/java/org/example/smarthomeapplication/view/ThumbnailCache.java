@@ -0,0 +1,106 @@
+package org.example.smarthomeapplication.view;
+
+import javafx.scene.image.Image;
+import org.example.smarthomeapplication.model.camera.ThumbnailStore;
+
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * In-memory tier in front of the thumbnail files: decoded thumbnails kept in least-recently-used order
+ * until their total size reaches a byte budget. Images load in the background, so a miss never blocks
+ * the caller. Must be used on the JavaFX thread.
+ */
+public class ThumbnailCache {
+    public static final long DEFAULT_BUDGET_BYTES = 64L * 1024 * 1024;
+
+    // Decoded size of a full thumbnail, 4 bytes per pixel
+    private static final long THUMBNAIL_BYTES = (long) ThumbnailStore.WIDTH * ThumbnailStore.HEIGHT * 4;
+
+    private final long budgetBytes;
+    private final LinkedHashMap<Path, Image> images = new LinkedHashMap<>(64, 0.75f, true);
+    private long usedBytes;
+    private long hits;
+    private long misses;
+
+    public ThumbnailCache() {
+        this(DEFAULT_BUDGET_BYTES);
+    }
+
+    public ThumbnailCache(long budgetBytes) {
+        if (budgetBytes < THUMBNAIL_BYTES) {
+            throw new IllegalArgumentException("Budget must fit at least one thumbnail");
+        }
+        this.budgetBytes = budgetBytes;
+    }
+
+    /**
+     * @param thumbnail a file made by ThumbnailStore
+     * @return the cached image, or one that starts loading in the background
+     */
+    public Image get(Path thumbnail) {
+        Image image = images.get(thumbnail);
+        if (image != null && !image.isError()) {
+            hits++;
+            return image;
+        }
+
+        misses++;
+        image = new Image(thumbnail.toUri().toString(), ThumbnailStore.WIDTH, ThumbnailStore.HEIGHT,
+                true, true, true);
+        if (images.put(thumbnail, image) == null) {
+            usedBytes += THUMBNAIL_BYTES;
+        }
+        evict();
+        return image;
+    }
+
+    public void invalidate(Path thumbnail) {
+        if (images.remove(thumbnail) != null) {
+            usedBytes -= THUMBNAIL_BYTES;
+        }
+    }
+
+    /**
+     * Stops loading the image if it hasn't finished, and forgets it so the next get starts over
+     */
+    public void cancelLoading(Path thumbnail) {
+        Image image = images.get(thumbnail);
+        if (image != null && image.getProgress() < 1) {
+            image.cancel();
+            invalidate(thumbnail);
+        }
+    }
+
+    public void clear() {
+        images.clear();
+        usedBytes = 0;
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<Path, Image>> oldest = images.entrySet().iterator();
+        while (usedBytes > budgetBytes && oldest.hasNext()) {
+            oldest.next();
+            oldest.remove();
+            usedBytes -= THUMBNAIL_BYTES;
+        }
+    }
+
+    public int size() {
+        return images.size();
+    }
+
+    public long getUsedBytes() {
+        return usedBytes;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+}
@@ -0,0 +1,141 @@
+package org.example.smarthomeapplication.view;
+
+import javafx.animation.AnimationTimer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Collects UI work posted from any thread and applies it once per JavaFX pulse.
+ * Status entries are handed to the sink in one batch per pulse; refreshes are keyed, so asking for
+ * the same refresh many times before the next pulse runs it only once. A refresh that fails is
+ * reported as a status entry on the next pulse.
+ */
+public class UiUpdatePipeline<T> {
+    private final Consumer<List<T>> statusSink;
+    private final Function<String, T> errorEntry;
+    private final Queue<T> statusLines = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queuedStatusLines = new AtomicInteger();
+    private final Map<String, Runnable> pendingRefreshes = new ConcurrentHashMap<>();
+    private final Queue<String> refreshOrder = new ConcurrentLinkedQueue<>();
+
+    private final AtomicLong postedRefreshes = new AtomicLong();
+    private final AtomicLong mergedRefreshes = new AtomicLong();
+    private volatile long drainCount;
+    private volatile long lastDrainNanos;
+    private volatile long maxDrainNanos;
+
+    private final AnimationTimer pulse = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            drain();
+        }
+    };
+
+    /**
+     * @param statusSink receives the status entries posted since the previous pulse, on the FX thread
+     * @param errorEntry turns the message of a failed refresh into a status entry
+     */
+    public UiUpdatePipeline(Consumer<List<T>> statusSink, Function<String, T> errorEntry) {
+        this.statusSink = statusSink;
+        this.errorEntry = errorEntry;
+    }
+
+    public void start() {
+        pulse.start();
+    }
+
+    public void stop() {
+        pulse.stop();
+    }
+
+    // Safe from any thread
+    public void postStatus(T line) {
+        statusLines.add(line);
+        queuedStatusLines.incrementAndGet();
+    }
+
+    /**
+     * Schedules the action for the next pulse unless one with the same key is already waiting.
+     * Safe from any thread; the action runs on the FX thread.
+     */
+    public void requestRefresh(String key, Runnable action) {
+        postedRefreshes.incrementAndGet();
+        if (pendingRefreshes.putIfAbsent(key, action) == null) {
+            refreshOrder.add(key);
+        } else {
+            mergedRefreshes.incrementAndGet();
+        }
+    }
+
+    private void drain() {
+        if (statusLines.isEmpty() && refreshOrder.isEmpty()) return;
+
+        long start = System.nanoTime();
+
+        List<T> lines = new ArrayList<>();
+        T line;
+        while ((line = statusLines.poll()) != null) {
+            lines.add(line);
+        }
+        queuedStatusLines.addAndGet(-lines.size());
+        if (!lines.isEmpty()) {
+            statusSink.accept(lines);
+        }
+
+        // Only the refreshes queued so far; anything they request waits for the next pulse
+        int refreshes = refreshOrder.size();
+        for (int i = 0; i < refreshes; i++) {
+            String key = refreshOrder.poll();
+            if (key == null) break;
+            Runnable action = pendingRefreshes.remove(key);
+            if (action != null) {
+                try {
+                    action.run();
+                } catch (RuntimeException e) {
+                    postStatus(errorEntry.apply("UI refresh '" + key + "' failed: " + e.getMessage()));
+                }
+            }
+        }
+
+        long elapsed = System.nanoTime() - start;
+        lastDrainNanos = elapsed;
+        if (elapsed > maxDrainNanos) {
+            maxDrainNanos = elapsed;
+        }
+        drainCount++;
+    }
+
+    public int getQueueDepth() {
+        return queuedStatusLines.get() + pendingRefreshes.size();
+    }
+
+    public long getDrainCount() {
+        return drainCount;
+    }
+
+    public long getLastDrainNanos() {
+        return lastDrainNanos;
+    }
+
+    public long getMaxDrainNanos() {
+        return maxDrainNanos;
+    }
+
+    public long getPostedRefreshes() {
+        return postedRefreshes.get();
+    }
+
+    // Refresh requests that were folded into one already waiting
+    public long getMergedRefreshes() {
+        return mergedRefreshes.get();
+    }
+}
@@ -0,0 +1,26 @@
+package org.example.smarthomeapplication.viewmodel;
+
+/**
+ * Outcome of the commands a batch sent to one device
+ * @param found       false if no device with that name is registered
+ * @param executed    commands the device supported and applied
+ * @param unsupported commands the device didn't understand
+ * @param skipped     commands that didn't run, because the device is disconnected or the one at their
+ *                    place or before it failed
+ * @param error       why the device's commands stopped, or null
+ */
+public record BatchResult(String deviceName, boolean found, int executed, int unsupported, int skipped,
+                          String error) {
+
+    static BatchResult notFound(String deviceName, int commandCount) {
+        return new BatchResult(deviceName, false, 0, commandCount, 0, null);
+    }
+
+    static BatchResult disconnected(String deviceName, int commandCount) {
+        return new BatchResult(deviceName, true, 0, 0, commandCount, "Device is disconnected");
+    }
+
+    public boolean isSuccess() {
+        return found && unsupported == 0 && error == null;
+    }
+}
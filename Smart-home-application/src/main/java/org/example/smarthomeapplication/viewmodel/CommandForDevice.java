@@ -0,0 +1,13 @@
+package org.example.smarthomeapplication.viewmodel;
+
+import org.example.smarthomeapplication.model.command.DeviceCommand;
+
+/**
+ * One entry of a batch passed to SmartHomeController.changeDeviceStates
+ */
+public record CommandForDevice(String deviceName, DeviceCommand command) {
+
+    public static CommandForDevice of(String deviceName, String state) {
+        return new CommandForDevice(deviceName, DeviceCommand.parse(state));
+    }
+}
@@ -0,0 +1,327 @@
+package org.example.smarthomeapplication.viewmodel;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * Write-ahead log of device changes, split into segment files named after the first record they hold.
+ * Appending only copies the record into memory; a single writer thread writes everything appended since
+ * its last pass and forces it to disk once, so changes made at the same time share one disk flush
+ * (group commit). Callers that need their change on disk wait for it with {@link #sync()}.
+ * <p>
+ * Each record is [length][CRC32C][sequence number][type][payload]; reading stops at the first record
+ * that is cut short or fails its checksum, which is how a crash in the middle of a write shows up.
+ */
+class DeviceJournal implements AutoCloseable {
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".wal";
+    private static final int HEADER_BYTES = Integer.BYTES * 2; // length and checksum
+    private static final int INITIAL_BUFFER_BYTES = 64 * 1024;
+    private static final int MAX_RETAINED_BUFFER_BYTES = 4 * 1024 * 1024;
+
+    private final Path directory;
+    private final Object io = new Object(); // held while writing to or switching the segment
+    private final Thread writer;
+    private final CRC32C checksum = new CRC32C(); // guarded by this
+    private FileChannel segment;
+
+    private ByteBuffer pending = ByteBuffer.allocate(INITIAL_BUFFER_BYTES); // appended, not written yet
+    private ByteBuffer spare = ByteBuffer.allocate(INITIAL_BUFFER_BYTES);
+    private long lastAppended;
+    private long durable;
+    private boolean closed;
+    private boolean failed;
+    private boolean stopped; // the writer has exited
+
+    /**
+     * Starts a new segment; records get sequence numbers from nextSequence on
+     */
+    DeviceJournal(Path directory, long nextSequence) throws IOException {
+        this.directory = directory;
+        this.lastAppended = nextSequence - 1;
+        this.durable = nextSequence - 1;
+        this.segment = openSegment(nextSequence);
+        this.writer = new Thread(this::writeLoop, "device-journal");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Copies the record into the next group to be written
+     * @return its sequence number, or -1 if the journal has failed or is closed
+     */
+    synchronized long append(byte type, byte[] payload) {
+        if (closed || failed) return -1;
+
+        int length = Long.BYTES + 1 + payload.length;
+        if (pending.remaining() < HEADER_BYTES + length) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + HEADER_BYTES + length));
+            pending.flip();
+            larger.put(pending);
+            pending = larger;
+        }
+
+        long sequence = ++lastAppended;
+        int start = pending.position();
+        pending.putInt(length);
+        pending.putInt(0); // checksum, filled in below
+        pending.putLong(sequence);
+        pending.put(type);
+        pending.put(payload);
+
+        checksum.reset();
+        checksum.update(pending.array(), start + HEADER_BYTES, length);
+        pending.putInt(start + Integer.BYTES, (int) checksum.getValue());
+        notifyAll();
+        return sequence;
+    }
+
+    /**
+     * @return sequence number of the newest record appended, written or not
+     */
+    synchronized long lastAppended() {
+        return lastAppended;
+    }
+
+    /**
+     * Waits until every record appended so far is on disk
+     * @return false if the journal failed or was closed before that happened
+     */
+    boolean sync() {
+        long target;
+        synchronized (this) {
+            target = lastAppended;
+        }
+        return awaitDurable(target);
+    }
+
+    synchronized boolean awaitDurable(long sequence) {
+        boolean interrupted = false;
+        try {
+            while (durable < sequence && !failed && !stopped) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            return durable >= sequence;
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Moves writing to a new segment so the older ones can be deleted once a snapshot covers them
+     */
+    void roll() throws IOException {
+        synchronized (io) {
+            long next;
+            synchronized (this) {
+                if (closed || failed) return;
+                next = durable + 1; // Anything later hasn't been written yet, so it goes to the new segment
+            }
+            FileChannel previous = segment;
+            segment = openSegment(next);
+            previous.close();
+        }
+    }
+
+    /**
+     * Deletes the segments whose records all have sequence numbers up to the given one
+     */
+    void deleteSegmentsUpTo(long sequence) {
+        try {
+            List<Segment> segments = segments(directory);
+            for (int i = 0; i + 1 < segments.size(); i++) {
+                // A segment ends where the next one starts, and the newest one is still being written
+                if (segments.get(i + 1).firstSequence() > sequence + 1) break;
+                Files.deleteIfExists(segments.get(i).path());
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to delete old journal segments in " + directory + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writes what is still pending and closes the segment
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) return;
+            closed = true;
+            notifyAll();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (io) {
+            try {
+                segment.close();
+            } catch (IOException e) {
+                System.err.println("Failed to close journal segment: " + e.getMessage());
+            }
+        }
+    }
+
+    private void writeLoop() {
+        while (true) {
+            ByteBuffer group;
+            long last;
+            synchronized (this) {
+                while (pending.position() == 0 && !closed) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        // Only close stops the writer
+                    }
+                }
+                if (pending.position() == 0) {
+                    stopped = true;
+                    notifyAll();
+                    return;
+                }
+                group = pending;
+                pending = spare;
+                spare = null;
+                last = lastAppended;
+            }
+
+            group.flip();
+            try {
+                synchronized (io) {
+                    while (group.hasRemaining()) {
+                        segment.write(group);
+                    }
+                    segment.force(false);
+                    synchronized (this) {
+                        durable = last;
+                    }
+                }
+            } catch (IOException e) {
+                System.err.println("Failed to write device journal in " + directory + ": " + e.getMessage());
+                synchronized (this) {
+                    failed = true;
+                    notifyAll();
+                }
+                return;
+            }
+
+            synchronized (this) {
+                group.clear();
+                spare = group.capacity() > MAX_RETAINED_BUFFER_BYTES ? ByteBuffer.allocate(INITIAL_BUFFER_BYTES) : group;
+                notifyAll();
+            }
+        }
+    }
+
+    private FileChannel openSegment(long firstSequence) throws IOException {
+        // A segment left without a single valid record by a crash may have the same name; it holds nothing worth keeping
+        return FileChannel.open(directory.resolve(segmentName(firstSequence)),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    /**
+     * Reads the records after the given sequence number from every segment, oldest first
+     * @return sequence number of the last record read, or afterSequence if there were none
+     */
+    static long replay(Path directory, long afterSequence, RecordHandler handler) throws IOException {
+        List<Segment> segments = segments(directory);
+        long last = afterSequence;
+        CRC32C checksum = new CRC32C();
+        for (int i = 0; i < segments.size(); i++) {
+            if (i + 1 < segments.size() && segments.get(i + 1).firstSequence() <= afterSequence + 1) {
+                continue; // Entirely covered by the snapshot
+            }
+            Path path = segments.get(i).path();
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                if (channel.size() == 0) continue;
+                if (channel.size() > Integer.MAX_VALUE) {
+                    throw new IOException("Journal " + path.getFileName() + " is too large");
+                }
+                // Not mapped, so the segment can be deleted once a snapshot covers it, also on Windows
+                ByteBuffer records = readFully(channel, (int) channel.size());
+                while (records.remaining() >= HEADER_BYTES) {
+                    int start = records.position();
+                    int length = records.getInt();
+                    int expected = records.getInt();
+                    if (length < Long.BYTES + 1 || length > records.remaining()) {
+                        System.err.println("Journal " + path.getFileName() + " ends with a partial record at byte " + start);
+                        break;
+                    }
+                    checksum.reset();
+                    checksum.update(records.slice(records.position(), length));
+                    if ((int) checksum.getValue() != expected) {
+                        System.err.println("Journal " + path.getFileName() + " has a damaged record at byte " + start);
+                        break;
+                    }
+
+                    long sequence = records.getLong();
+                    byte type = records.get();
+                    ByteBuffer payload = records.slice(records.position(), length - Long.BYTES - 1);
+                    records.position(records.position() + payload.remaining());
+                    if (sequence > last) {
+                        handler.record(type, payload);
+                        last = sequence;
+                    }
+                }
+            }
+        }
+        return last;
+    }
+
+    /**
+     * Reads the first bytes of the file into a heap buffer
+     */
+    static ByteBuffer readFully(FileChannel channel, int bytes) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(bytes);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, buffer.position()) < 0) {
+                throw new IOException("File ended after " + buffer.position() + " of " + bytes + " bytes");
+            }
+        }
+        return buffer.flip();
+    }
+
+    private static List<Segment> segments(Path directory) throws IOException {
+        List<Segment> segments = new ArrayList<>();
+        if (!Files.isDirectory(directory)) return segments;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    long first = Long.parseLong(name, SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length(), 10);
+                    segments.add(new Segment(first, file));
+                } catch (NumberFormatException e) {
+                    // Not one of ours
+                }
+            }
+        }
+        segments.sort((a, b) -> Long.compare(a.firstSequence(), b.firstSequence()));
+        return segments;
+    }
+
+    private static String segmentName(long firstSequence) {
+        return SEGMENT_PREFIX + String.format("%019d", firstSequence) + SEGMENT_SUFFIX;
+    }
+
+    private record Segment(long firstSequence, Path path) {
+    }
+
+    interface RecordHandler {
+        void record(byte type, ByteBuffer payload) throws IOException;
+    }
+}
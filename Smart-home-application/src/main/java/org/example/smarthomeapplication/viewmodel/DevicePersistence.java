@@ -0,0 +1,462 @@
+package org.example.smarthomeapplication.viewmodel;
+
+import org.example.smarthomeapplication.Factory.SmartDeviceFactory;
+import org.example.smarthomeapplication.model.device.SmartCamera;
+import org.example.smarthomeapplication.model.device.SmartDevice;
+import org.example.smarthomeapplication.model.device.SmartLight;
+import org.example.smarthomeapplication.model.device.SmartThermostat;
+import org.example.smarthomeapplication.model.device.SmartVoiceAssistant;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.zip.CRC32C;
+
+/**
+ * Keeps a controller's devices across restarts as a compact binary snapshot of every device plus a
+ * journal of the changes made since (see {@link DeviceJournal}). Opening it reads the snapshot with one
+ * bulk read, decodes it in one pass and replays the journal records written after it. New snapshots are
+ * written in the background every so often, after which the journal segments they cover are deleted.
+ * <p>
+ * Journal records hold a device's whole state after a change rather than the command that caused it,
+ * so replaying them has no side effects like taking photos, and a thermostat comes back with the readings
+ * it had instead of running another simulation step. Changes the controller doesn't see, like simulation
+ * ticks, are saved by the next snapshot.
+ * <p>
+ * By default a change returns as soon as its record is appended, and reaches the disk with the next
+ * group a moment later, so the UI thread never waits for a disk flush. Callers that must not lose an
+ * acknowledged change turn on {@link #setSynchronous(boolean)} or call {@link #sync()}.
+ */
+public class DevicePersistence implements AutoCloseable {
+    public static final long DEFAULT_SNAPSHOT_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(1);
+    private static final String SNAPSHOT_FILE = "devices.snapshot";
+    private static final String SNAPSHOT_TEMPORARY_FILE = "devices.snapshot.tmp";
+    private static final int SNAPSHOT_MAGIC = 0x53484453; // "SHDS"
+    private static final short SNAPSHOT_VERSION = 1;
+    private static final int SNAPSHOT_COUNT_OFFSET = Integer.BYTES + Short.BYTES + Long.BYTES;
+    private static final int SNAPSHOT_HEADER_BYTES = SNAPSHOT_COUNT_OFFSET + Integer.BYTES;
+    private static final int MAX_STRING_BYTES = 0xFFFF;
+
+    // Journal record types
+    private static final byte ADDED = 1;
+    private static final byte CHANGED = 2;
+    private static final byte REMOVED = 3;
+    private static final byte CLEARED = 4;
+
+    // Device types, as stored in snapshots and journal records
+    private static final byte LIGHT = 1;
+    private static final byte THERMOSTAT = 2;
+    private static final byte CAMERA = 3;
+    private static final byte VOICE_ASSISTANT = 4;
+
+    private final Path directory;
+    private final long snapshotIntervalMillis;
+    private final DeviceJournal journal;
+    private final List<SmartDevice> restoredDevices;
+    // Changes hold the read lock while they apply and journal; a snapshot takes the write lock to pick its starting point
+    private final ReentrantReadWriteLock changes = new ReentrantReadWriteLock();
+    private final Object snapshotLock = new Object();
+    private volatile boolean synchronous;
+    private ScheduledExecutorService snapshots;
+
+    private DevicePersistence(Path directory, long snapshotIntervalMillis, DeviceJournal journal,
+                              List<SmartDevice> restoredDevices) {
+        this.directory = directory;
+        this.snapshotIntervalMillis = snapshotIntervalMillis;
+        this.journal = journal;
+        this.restoredDevices = restoredDevices;
+    }
+
+    public static DevicePersistence open(Path directory) throws IOException {
+        return open(directory, DEFAULT_SNAPSHOT_INTERVAL_MILLIS);
+    }
+
+    /**
+     * Restores the devices saved in the directory, creating it if needed, and starts a new journal segment
+     * @param snapshotIntervalMillis time between background snapshots once a controller uses this
+     */
+    public static DevicePersistence open(Path directory, long snapshotIntervalMillis) throws IOException {
+        return open(directory, snapshotIntervalMillis, new SmartDeviceFactory());
+    }
+
+    /**
+     * @param factory creates the restored devices, e.g. one that keeps their files in a data directory
+     */
+    public static DevicePersistence open(Path directory, long snapshotIntervalMillis, SmartDeviceFactory factory)
+            throws IOException {
+        if (snapshotIntervalMillis <= 0) {
+            throw new IllegalArgumentException("Snapshot interval must be positive");
+        }
+        Files.createDirectories(directory);
+
+        Map<String, SmartDevice> devices = new HashMap<>();
+        long snapshotSequence = readSnapshot(directory.resolve(SNAPSHOT_FILE), devices, factory);
+        long lastSequence = DeviceJournal.replay(directory, snapshotSequence, (type, payload) -> {
+            switch (type) {
+                case ADDED -> {
+                    SmartDevice device = readDevice(payload, devices::get, true, factory);
+                    devices.put(device.getDeviceName(), device);
+                }
+                case CHANGED -> {
+                    // A device removed later in the journal may not be there any more
+                    SmartDevice device = readDevice(payload, devices::get, false, factory);
+                    if (device != null) {
+                        devices.put(device.getDeviceName(), device);
+                    }
+                }
+                case REMOVED -> devices.remove(readString(payload));
+                case CLEARED -> devices.clear();
+                default -> throw new IOException("Unknown journal record type " + type);
+            }
+        });
+
+        DeviceJournal journal = new DeviceJournal(directory, lastSequence + 1);
+        return new DevicePersistence(directory, snapshotIntervalMillis, journal, new ArrayList<>(devices.values()));
+    }
+
+    /**
+     * Devices as they were when the journal was last written, in no particular order; none of them has observers yet
+     */
+    public List<SmartDevice> getRestoredDevices() {
+        return restoredDevices;
+    }
+
+    /**
+     * @param synchronous true to make every change wait until its record is on disk before returning
+     */
+    public void setSynchronous(boolean synchronous) {
+        this.synchronous = synchronous;
+    }
+
+    public boolean isSynchronous() {
+        return synchronous;
+    }
+
+    /**
+     * Waits until every change journaled so far is on disk
+     * @return false if the journal failed or was closed first
+     */
+    public boolean sync() {
+        return journal.sync();
+    }
+
+    /**
+     * Runs a change to the devices, waiting for its records to reach the disk only when synchronous.
+     * No snapshot can start in the middle of the change, so a snapshot includes every change journaled before it.
+     */
+    <T> T apply(Supplier<T> change) {
+        T result;
+        changes.readLock().lock();
+        try {
+            result = change.get();
+        } finally {
+            changes.readLock().unlock();
+        }
+        if (synchronous) {
+            journal.sync();
+        }
+        return result;
+    }
+
+    void logAdded(SmartDevice device) {
+        byte[] record = encode(device);
+        if (record != null) {
+            journal.append(ADDED, record);
+        }
+    }
+
+    void logChanged(SmartDevice device) {
+        byte[] record = encode(device);
+        if (record != null) {
+            journal.append(CHANGED, record);
+        }
+    }
+
+    void logRemoved(String name) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(name.length() + 2);
+        try {
+            writeString(new DataOutputStream(bytes), name);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        journal.append(REMOVED, bytes.toByteArray());
+    }
+
+    void logCleared() {
+        journal.append(CLEARED, new byte[0]);
+    }
+
+    /**
+     * Snapshots the devices every snapshot interval on a background thread
+     */
+    synchronized void startSnapshots(Supplier<? extends Collection<SmartDevice>> devices) {
+        if (snapshots != null) return;
+        snapshots = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "device-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        snapshots.scheduleWithFixedDelay(() -> snapshot(devices.get()),
+                snapshotIntervalMillis, snapshotIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Writes all the devices to a new snapshot, replacing the old one only once the new one is complete,
+     * and deletes the journal segments it makes redundant. Devices may keep changing meanwhile.
+     * @return false if the snapshot couldn't be written
+     */
+    public boolean snapshot(Collection<SmartDevice> devices) {
+        synchronized (snapshotLock) {
+            long sequence;
+            changes.writeLock().lock();
+            try {
+                // Every change journaled up to here is already applied to the devices
+                sequence = journal.lastAppended();
+            } finally {
+                changes.writeLock().unlock();
+            }
+
+            try {
+                journal.roll();
+                writeSnapshot(devices, sequence);
+            } catch (IOException e) {
+                System.err.println("Failed to write device snapshot in " + directory + ": " + e.getMessage());
+                return false;
+            }
+            journal.deleteSegmentsUpTo(sequence);
+            return true;
+        }
+    }
+
+    /**
+     * Stops taking snapshots and closes the journal once everything appended to it is written
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (snapshots != null) {
+                snapshots.shutdown();
+            }
+        }
+        journal.close();
+    }
+
+    private void writeSnapshot(Collection<SmartDevice> devices, long sequence) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(SNAPSHOT_HEADER_BYTES + devices.size() * 48);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(SNAPSHOT_MAGIC);
+        out.writeShort(SNAPSHOT_VERSION);
+        out.writeLong(sequence);
+        out.writeInt(0); // device count, filled in below
+        int count = 0;
+        for (SmartDevice device : devices) {
+            if (writeDevice(out, device)) {
+                count++;
+            }
+        }
+
+        ByteBuffer snapshot = ByteBuffer.wrap(bytes.toByteArray());
+        snapshot.putInt(SNAPSHOT_COUNT_OFFSET, count);
+        CRC32C checksum = new CRC32C();
+        checksum.update(snapshot.array());
+        ByteBuffer trailer = ByteBuffer.allocate(Integer.BYTES).putInt((int) checksum.getValue()).flip();
+
+        Path temporary = directory.resolve(SNAPSHOT_TEMPORARY_FILE);
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (snapshot.hasRemaining()) {
+                channel.write(snapshot);
+            }
+            while (trailer.hasRemaining()) {
+                channel.write(trailer);
+            }
+            channel.force(true);
+        }
+        Files.move(temporary, directory.resolve(SNAPSHOT_FILE),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @return sequence number of the last journal record the snapshot includes, 0 if there is no snapshot
+     */
+    private static long readSnapshot(Path file, Map<String, SmartDevice> devices, SmartDeviceFactory factory)
+            throws IOException {
+        if (!Files.exists(file)) return 0;
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < SNAPSHOT_HEADER_BYTES + Integer.BYTES || size > Integer.MAX_VALUE) {
+                throw new IOException(file + " is not a device snapshot");
+            }
+            // Read onto the heap rather than mapped: Windows can't replace a file while a mapping of it is alive,
+            // and nothing unmaps a MappedByteBuffer until it is garbage collected
+            ByteBuffer snapshot = DeviceJournal.readFully(channel, (int) size);
+            int bodyBytes = (int) size - Integer.BYTES;
+            CRC32C checksum = new CRC32C();
+            checksum.update(snapshot.slice(0, bodyBytes));
+            if (snapshot.getInt() != SNAPSHOT_MAGIC || snapshot.getShort() != SNAPSHOT_VERSION) {
+                throw new IOException(file + " is not a device snapshot");
+            }
+            if ((int) checksum.getValue() != snapshot.getInt(bodyBytes)) {
+                throw new IOException("Device snapshot " + file + " is damaged");
+            }
+
+            long sequence = snapshot.getLong();
+            int count = snapshot.getInt();
+            for (int i = 0; i < count; i++) {
+                SmartDevice device = readDevice(snapshot, name -> null, true, factory);
+                devices.put(device.getDeviceName(), device);
+            }
+            return sequence;
+        }
+    }
+
+    // Null for device types that aren't saved
+    private static byte[] encode(SmartDevice device) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try {
+            return writeDevice(new DataOutputStream(bytes), device) ? bytes.toByteArray() : null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes [type][name][active] followed by the state of that type of device
+     * @return false if this type of device isn't saved
+     */
+    private static boolean writeDevice(DataOutputStream out, SmartDevice device) throws IOException {
+        byte type = typeOf(device);
+        if (type == 0) return false;
+
+        synchronized (device) {
+            out.writeByte(type);
+            writeString(out, device.getDeviceName());
+            out.writeBoolean(device.isActive());
+            switch (device) {
+                case SmartLight light -> {
+                    out.writeBoolean(light.isOn());
+                    out.writeByte(light.getBrightness());
+                    writeString(out, light.getColor());
+                }
+                case SmartThermostat thermostat -> {
+                    out.writeDouble(thermostat.getCurrentTemperature());
+                    out.writeDouble(thermostat.getTargetTemperature());
+                    writeString(out, thermostat.getMode());
+                    out.writeDouble(thermostat.getEnergyUsage());
+                    out.writeDouble(thermostat.getHumidityLevel());
+                }
+                case SmartCamera camera -> writeString(out, camera.getStatus());
+                case SmartVoiceAssistant assistant -> {
+                    writeString(out, assistant.getListeningMode());
+                    out.writeByte(assistant.getVolume());
+                }
+                default -> throw new IllegalStateException("Unexpected device " + device.getDeviceName());
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads a device written by writeDevice, restoring the state onto the existing device of that name
+     * when it is of the same type, and onto a new device otherwise
+     * @param create whether to create the device when none has that name; if not, null is returned
+     */
+    private static SmartDevice readDevice(ByteBuffer in, Function<String, SmartDevice> existing, boolean create,
+                                          SmartDeviceFactory factory) throws IOException {
+        byte type = in.get();
+        String name = readString(in);
+        boolean active = in.get() != 0;
+
+        SmartDevice device = existing.apply(name);
+        if (device == null && !create) return null;
+        if (device == null || typeOf(device) != type) {
+            // Constructors don't touch the disk: cameras create their photo folder and assistants their
+            // history log the first time they are used, so restoring leaves no files behind
+            device = factory.createDevice(switch (type) {
+                case LIGHT -> "light";
+                case THERMOSTAT -> "thermostat";
+                case CAMERA -> "camera";
+                case VOICE_ASSISTANT -> "voice assistant";
+                default -> throw new IOException("Unknown device type " + type + " for " + name);
+            }, name);
+        }
+
+        switch (device) {
+            case SmartLight light -> {
+                boolean on = in.get() != 0;
+                int brightness = in.get();
+                light.restoreState(on, brightness, readString(in));
+            }
+            case SmartThermostat thermostat -> {
+                double current = in.getDouble();
+                double target = in.getDouble();
+                String mode = readString(in);
+                double energy = in.getDouble();
+                thermostat.restoreState(current, target, mode, energy, in.getDouble());
+            }
+            case SmartCamera camera -> camera.restoreState(readString(in));
+            case SmartVoiceAssistant assistant -> {
+                String listeningMode = readString(in);
+                assistant.restoreState(listeningMode, in.get());
+            }
+            default -> throw new IOException("Unexpected device type for " + name);
+        }
+        if (device.isActive() != active) {
+            device.setActive(active);
+        }
+        return device;
+    }
+
+    // 0 for device types that aren't saved
+    private static byte typeOf(SmartDevice device) {
+        return switch (device) {
+            case SmartLight light -> LIGHT;
+            case SmartThermostat thermostat -> THERMOSTAT;
+            case SmartCamera camera -> CAMERA;
+            case SmartVoiceAssistant assistant -> VOICE_ASSISTANT;
+            default -> 0;
+        };
+    }
+
+    // UTF-8 with an unsigned 16-bit length
+    private static void writeString(DataOutputStream out, String text) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_STRING_BYTES) {
+            throw new IllegalArgumentException("Too long to save: " + text.substring(0, 32) + "...");
+        }
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = Short.toUnsignedInt(in.getShort());
+        if (in.hasArray()) {
+            String text = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+            in.position(in.position() + length);
+            return text;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,146 @@
+package org.example.smarthomeapplication.viewmodel;
+
+import org.example.smarthomeapplication.model.device.SmartDevice;
+import org.example.smarthomeapplication.model.device.SmartLight;
+import org.example.smarthomeapplication.model.device.SmartThermostat;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.OptionalDouble;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Answers questions about the whole home, like the average temperature or which lights are on,
+ * without visiting every device. Each tracked device reports its state changes, and only that
+ * device's share of the totals is updated, so a question costs the same with ten devices or
+ * a hundred thousand. Updates run on the thread that changed the device.
+ */
+public class DeviceReadModel implements SmartDevice.StateListener {
+    private static final double MILLIDEGREES = 1000.0;
+
+    // Temperatures are summed in thousandths of a degree, so adding and removing readings never drifts
+    private final ConcurrentHashMap<SmartThermostat, Long> temperatures = new ConcurrentHashMap<>();
+    private final LongAdder temperatureSum = new LongAdder();
+    private final ConcurrentHashMap<SmartLight, Boolean> lights = new ConcurrentHashMap<>();
+    private final Set<String> lightsOn = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Starts following the device; devices other than thermostats and lights are ignored
+     */
+    public void track(SmartDevice device) {
+        switch (device) {
+            case SmartThermostat thermostat -> {
+                synchronized (thermostat) {
+                    long reading = millidegrees(thermostat);
+                    if (temperatures.putIfAbsent(thermostat, reading) != null) return;
+                    temperatureSum.add(reading);
+                }
+            }
+            case SmartLight light -> {
+                synchronized (light) {
+                    boolean on = light.isOn();
+                    if (lights.putIfAbsent(light, on) != null) return;
+                    if (on) {
+                        lightsOn.add(light.getDeviceName());
+                    }
+                }
+            }
+            default -> {
+                return;
+            }
+        }
+        device.addStateListener(this);
+    }
+
+    public void untrack(SmartDevice device) {
+        device.removeStateListener(this);
+        synchronized (device) {
+            if (device instanceof SmartThermostat thermostat) {
+                Long reading = temperatures.remove(thermostat);
+                if (reading != null) {
+                    temperatureSum.add(-reading);
+                }
+            } else if (device instanceof SmartLight light) {
+                if (lights.remove(light) != null) {
+                    lightsOn.remove(light.getDeviceName());
+                }
+            }
+        }
+    }
+
+    @Override
+    public void stateChanged(SmartDevice device) {
+        // Same lock as untrack, so a late change can't bring back a device that was just removed
+        synchronized (device) {
+            if (device instanceof SmartThermostat thermostat) {
+                long reading = millidegrees(thermostat);
+                Long previous = temperatures.replace(thermostat, reading);
+                if (previous != null && previous != reading) {
+                    temperatureSum.add(reading - previous);
+                }
+            } else if (device instanceof SmartLight light) {
+                boolean on = light.isOn();
+                Boolean previous = lights.replace(light, on);
+                if (previous != null && previous != on) {
+                    if (on) {
+                        lightsOn.add(light.getDeviceName());
+                    } else {
+                        lightsOn.remove(light.getDeviceName());
+                    }
+                }
+            }
+        }
+    }
+
+    public int getThermostatCount() {
+        return temperatures.size();
+    }
+
+    /**
+     * @return mean current temperature of the tracked thermostats, empty if there are none
+     */
+    public OptionalDouble getAverageTemperature() {
+        int count = temperatures.size();
+        if (count == 0) return OptionalDouble.empty();
+        return OptionalDouble.of(temperatureSum.sum() / MILLIDEGREES / count);
+    }
+
+    public int getLightCount() {
+        return lights.size();
+    }
+
+    public int getLightsOnCount() {
+        return lightsOn.size();
+    }
+
+    /**
+     * @return names of up to limit lights that are on, in no particular order
+     */
+    public List<String> getLightsOn(int limit) {
+        List<String> names = new ArrayList<>(Math.min(limit, lightsOn.size()));
+        Iterator<String> iterator = lightsOn.iterator();
+        while (names.size() < limit && iterator.hasNext()) {
+            names.add(iterator.next());
+        }
+        return names;
+    }
+
+    /**
+     * Stops following every device
+     */
+    public void clear() {
+        for (SmartThermostat thermostat : temperatures.keySet()) {
+            untrack(thermostat);
+        }
+        for (SmartLight light : lights.keySet()) {
+            untrack(light);
+        }
+    }
+
+    private static long millidegrees(SmartThermostat thermostat) {
+        return Math.round(thermostat.getCurrentTemperature() * MILLIDEGREES);
+    }
+}
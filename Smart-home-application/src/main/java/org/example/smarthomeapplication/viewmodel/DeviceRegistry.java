@@ -0,0 +1,110 @@
+package org.example.smarthomeapplication.viewmodel;
+
+import org.example.smarthomeapplication.model.device.SmartDevice;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Thread-safe store of devices keyed by name.
+ * Reads never lock, writes only lock the bin of the key they touch,
+ * so device events raised from timer threads can't corrupt the map.
+ */
+public class DeviceRegistry {
+    private static final int DEFAULT_CAPACITY = 64;
+
+    private final ConcurrentHashMap<String, SmartDevice> devices;
+
+    public DeviceRegistry() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param expectedDevices number of devices the registry is sized for up front,
+     *                        avoids rehashing while a large installation is loaded
+     */
+    public DeviceRegistry(int expectedDevices) {
+        this.devices = new ConcurrentHashMap<>(Math.max(expectedDevices, DEFAULT_CAPACITY));
+    }
+
+    public SmartDevice get(String name) {
+        return devices.get(name);
+    }
+
+    public boolean contains(String name) {
+        return devices.containsKey(name);
+    }
+
+    /**
+     * Atomically returns the device registered under the name, or creates and registers one.
+     * The creator runs at most once per name, even when several threads race on it.
+     */
+    public SmartDevice computeIfAbsent(String name, Function<String, SmartDevice> creator) {
+        return devices.computeIfAbsent(name, creator);
+    }
+
+    /**
+     * Registers the device unless one with the same name exists
+     * @return the device that was already registered, or null if this one was added
+     */
+    public SmartDevice addIfAbsent(SmartDevice device) {
+        return devices.putIfAbsent(device.getDeviceName(), device);
+    }
+
+    /**
+     * Registers every device whose name isn't taken yet
+     * @return number of devices that were added
+     */
+    public int addDevices(Collection<? extends SmartDevice> newDevices) {
+        int added = 0;
+        for (SmartDevice device : newDevices) {
+            if (devices.putIfAbsent(device.getDeviceName(), device) == null) {
+                added++;
+            }
+        }
+        return added;
+    }
+
+    public SmartDevice remove(String name) {
+        return devices.remove(name);
+    }
+
+    /**
+     * Removes all the named devices
+     * @return the devices that were actually removed
+     */
+    public List<SmartDevice> removeDevices(Collection<String> names) {
+        List<SmartDevice> removed = new ArrayList<>(names.size());
+        for (String name : names) {
+            SmartDevice device = devices.remove(name);
+            if (device != null) {
+                removed.add(device);
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Live, weakly consistent view of the registered devices; iterating it never throws
+     * ConcurrentModificationException and never blocks writers.
+     */
+    public Collection<SmartDevice> devices() {
+        return Collections.unmodifiableCollection(devices.values());
+    }
+
+    public Collection<String> names() {
+        return Collections.unmodifiableSet(devices.keySet());
+    }
+
+    public int size() {
+        return devices.size();
+    }
+
+    public void clear() {
+        devices.clear();
+    }
+}
@@ -0,0 +1,46 @@
+package org.example.smarthomeapplication.viewmodel;
+
+/**
+ * One line of the device event log
+ * @param timestamp epoch milliseconds
+ * @param device    device the event came from, or null for messages from the application itself
+ */
+public record EventLogEntry(long timestamp, String device, Severity severity, String message) {
+
+    public enum Severity {
+        INFO, WARNING, ERROR
+    }
+
+    private static final String[] ERROR_MARKERS = {"Failed", "failed", "❌", "Error", "error"};
+    private static final String[] WARNING_MARKERS = {
+            "Invalid", "Unknown", "Unrecognized", "Unsupported", "Cannot", "disconnected", "must be"
+    };
+
+    /**
+     * Builds an entry for the message, guessing its severity from the wording
+     */
+    public static EventLogEntry of(String device, String message) {
+        return new EventLogEntry(System.currentTimeMillis(), device, severityOf(message), message);
+    }
+
+    /**
+     * Builds an entry from a device notification of the form "device name: message"
+     */
+    public static EventLogEntry fromNotification(String notification) {
+        int separator = notification.indexOf(": ");
+        if (separator <= 0) {
+            return of(null, notification);
+        }
+        return of(notification.substring(0, separator), notification.substring(separator + 2));
+    }
+
+    private static Severity severityOf(String message) {
+        for (String marker : ERROR_MARKERS) {
+            if (message.contains(marker)) return Severity.ERROR;
+        }
+        for (String marker : WARNING_MARKERS) {
+            if (message.contains(marker)) return Severity.WARNING;
+        }
+        return Severity.INFO;
+    }
+}
@@ -1,36 +1,339 @@
 package org.example.smarthomeapplication.viewmodel;
 
+import org.example.smarthomeapplication.model.device.PartialBatchException;
 import org.example.smarthomeapplication.model.device.SmartDevice;
+import org.example.smarthomeapplication.model.device.SmartVoiceAssistant;
 import org.example.smarthomeapplication.Factory.SmartDeviceFactory;
+import org.example.smarthomeapplication.event.AsyncEventBus;
+import org.example.smarthomeapplication.model.command.DeviceCommand;
 
-import java.util.HashMap;
+import java.io.Serial;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Supplier;
 
 public class SmartHomeController {
-    private final Map<String, SmartDevice> devices = new HashMap<>();
-    private final SmartDeviceFactory factory = new SmartDeviceFactory();
+    private static final int NAME_LOCK_STRIPES = 64;
 
+    private final DeviceRegistry devices;
+    private final SmartDeviceFactory factory;
+    private volatile AsyncEventBus eventBus;
+    private final DeviceReadModel readModel = new DeviceReadModel();
+    private volatile DevicePersistence persistence; // null keeps devices in memory only
+    // Adding and removing a name journals under its stripe, so the journal sees them in the order they happened
+    private final Object[] nameLocks = newNameLocks();
+
+    public SmartHomeController() {
+        this(new SmartDeviceFactory());
+    }
+
+    public SmartHomeController(int expectedDevices) {
+        this.devices = new DeviceRegistry(expectedDevices);
+        this.factory = new SmartDeviceFactory();
+    }
+
+    /**
+     * @param factory creates the devices added by type, e.g. one that keeps their files in a data directory
+     */
+    public SmartHomeController(SmartDeviceFactory factory) {
+        this.devices = new DeviceRegistry();
+        this.factory = factory;
+    }
+
+    /**
+     * Creates and registers a device, unless one with that name exists
+     * @return the registered device, which is the existing one if the name was taken
+     */
     public SmartDevice addDevice(String type, String name) {
-        if (devices.containsKey(name)) return devices.get(name);
+        SmartDevice existing = devices.get(name);
+        if (existing != null) return existing;
+
+        // Built outside the registry's locks; if another thread registers the name first, this one is dropped
         SmartDevice device = factory.createDevice(type, name);
-        devices.put(name, device);
-        return device;
+        return change(() -> {
+            SmartDevice winner = register(device);
+            return winner != null ? winner : device;
+        });
+    }
+
+    /**
+     * Registers every device whose name isn't taken yet
+     * @return number of devices that were added
+     */
+    public int addDevices(Collection<? extends SmartDevice> newDevices) {
+        return change(() -> {
+            int added = 0;
+            for (SmartDevice device : newDevices) {
+                if (register(device) == null) {
+                    added++;
+                }
+            }
+            return added;
+        });
     }
 
     public void removeDevice(String name) {
-        devices.remove(name);
+        change(() -> remove(name));
+    }
+
+    public List<SmartDevice> removeDevices(Collection<String> names) {
+        return change(() -> {
+            List<SmartDevice> removed = new ArrayList<>(names.size());
+            for (String name : names) {
+                SmartDevice device = remove(name);
+                if (device != null) {
+                    removed.add(device);
+                }
+            }
+            return removed;
+        });
+    }
+
+    // Registers and attaches the device if its name is free.
+    // Returns the device already registered under the name, or null if this one was added.
+    private SmartDevice register(SmartDevice device) {
+        String name = device.getDeviceName();
+        synchronized (lockFor(name)) {
+            SmartDevice existing = devices.addIfAbsent(device);
+            if (existing != null) return existing;
+            logAdded(device);
+        }
+        attach(device);
+        return null;
+    }
+
+    private SmartDevice remove(String name) {
+        SmartDevice removed;
+        synchronized (lockFor(name)) {
+            removed = devices.remove(name);
+            if (removed != null) {
+                logRemoved(name);
+            }
+        }
+        if (removed != null) {
+            readModel.untrack(removed);
+            removed.setEventBus(null); // Lets the bus release queues only this device's observers used
+        }
+        return removed;
+    }
+
+    private Object lockFor(String name) {
+        return nameLocks[(name.hashCode() & 0x7fffffff) % nameLocks.length];
+    }
+
+    private static Object[] newNameLocks() {
+        Object[] locks = new Object[NAME_LOCK_STRIPES];
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+        return locks;
+    }
+
+    // Hooks a newly registered device up to the bus and the read model
+    private void attach(SmartDevice device) {
+        device.setEventBus(eventBus);
+        readModel.track(device);
+        if (device instanceof SmartVoiceAssistant assistant) {
+            assistant.setReadModel(readModel);
+        }
     }
 
     public void changeDeviceState(String name, String state) {
         SmartDevice device = devices.get(name);
-        if (device != null) device.changeState(state);
+        if (device != null) {
+            change(() -> changeDevice(device, () -> {
+                device.changeState(state);
+                return null;
+            }));
+        }
+    }
+
+    /**
+     * Applies many commands at once. Commands are grouped by device and keep their order per device;
+     * different devices run in parallel on the common fork-join pool. Each device sends its observers
+     * one batch of notifications instead of one per command.
+     * @return result per device, in the order devices first appear in the batch
+     */
+    public Map<String, BatchResult> changeDeviceStates(Collection<CommandForDevice> commands) {
+        Map<String, List<DeviceCommand>> byDevice = new LinkedHashMap<>();
+        for (CommandForDevice entry : commands) {
+            byDevice.computeIfAbsent(entry.deviceName(), name -> new ArrayList<>()).add(entry.command());
+        }
+
+        List<Map.Entry<String, List<DeviceCommand>>> groups = new ArrayList<>(byDevice.entrySet());
+        BatchResult[] results = new BatchResult[groups.size()];
+        change(() -> ForkJoinPool.commonPool().invoke(new BatchTask(groups, results, 0, groups.size())));
+
+        Map<String, BatchResult> resultsByDevice = new LinkedHashMap<>();
+        for (BatchResult result : results) {
+            resultsByDevice.put(result.deviceName(), result);
+        }
+        return resultsByDevice;
+    }
+
+    private BatchResult runBatch(String name, List<DeviceCommand> deviceCommands) {
+        SmartDevice device = devices.get(name);
+        if (device == null) {
+            return BatchResult.notFound(name, deviceCommands.size());
+        }
+        if (!device.isActive()) {
+            // Its execute accepts commands without applying them, which would count them as executed
+            return BatchResult.disconnected(name, deviceCommands.size());
+        }
+        try {
+            int executed = changeDevice(device, () -> device.executeAll(deviceCommands));
+            return new BatchResult(name, true, executed, deviceCommands.size() - executed, 0, null);
+        } catch (PartialBatchException e) {
+            int ran = e.getFailedIndex();
+            return new BatchResult(name, true, e.getExecuted(), ran - e.getExecuted(), deviceCommands.size() - ran,
+                    e.getMessage());
+        } catch (RuntimeException e) {
+            return new BatchResult(name, true, 0, 0, deviceCommands.size(), e.getMessage());
+        }
+    }
+
+    // Splits the device groups in halves until a slice is small enough to run on one thread
+    private class BatchTask extends RecursiveAction {
+        @Serial
+        private static final long serialVersionUID = 1L;
+        private static final int DEVICES_PER_TASK = 64;
+
+        private final transient List<Map.Entry<String, List<DeviceCommand>>> groups;
+        private final transient BatchResult[] results;
+        private final int from;
+        private final int to;
+
+        BatchTask(List<Map.Entry<String, List<DeviceCommand>>> groups, BatchResult[] results, int from, int to) {
+            this.groups = groups;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= DEVICES_PER_TASK) {
+                for (int i = from; i < to; i++) {
+                    Map.Entry<String, List<DeviceCommand>> group = groups.get(i);
+                    results[i] = runBatch(group.getKey(), group.getValue());
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new BatchTask(groups, results, from, middle), new BatchTask(groups, results, middle, to));
+        }
+    }
+
+    /**
+     * Executes a pre-parsed command, skipping the text parsing done by changeDeviceState
+     * @return false if the device doesn't exist or doesn't support the command
+     */
+    public boolean executeCommand(String name, DeviceCommand command) {
+        SmartDevice device = devices.get(name);
+        return device != null && change(() -> changeDevice(device, () -> device.execute(command)));
+    }
+
+    // Runs a change; with persistence on, no snapshot starts in the middle of it,
+    // and a synchronous persistence has it on disk before this returns
+    private <T> T change(Supplier<T> change) {
+        DevicePersistence store = persistence;
+        return store == null ? change.get() : store.apply(change);
+    }
+
+    // Applies a change to one device and journals the state it leaves the device in.
+    // The device's lock keeps its records in the order its changes were applied.
+    private <T> T changeDevice(SmartDevice device, Supplier<T> change) {
+        DevicePersistence store = persistence;
+        if (store == null) return change.get();
+        synchronized (device) {
+            try {
+                return change.get();
+            } finally {
+                // A change that failed partway may still have changed the device
+                store.logChanged(device);
+            }
+        }
+    }
+
+    private void logAdded(SmartDevice device) {
+        DevicePersistence store = persistence;
+        if (store != null) store.logAdded(device);
+    }
+
+    private void logRemoved(String name) {
+        DevicePersistence store = persistence;
+        if (store != null) store.logRemoved(name);
     }
 
     public SmartDevice getDevice(String name) {
         return devices.get(name);
     }
 
+    public Collection<SmartDevice> getDevices() {
+        return devices.devices();
+    }
+
+    public int getDeviceCount() {
+        return devices.size();
+    }
+
+    /**
+     * Home-wide totals kept current as devices change, for questions about all devices at once
+     */
+    public DeviceReadModel getReadModel() {
+        return readModel;
+    }
+
+    /**
+     * Routes notifications of every device, current and future, through the bus
+     * @param eventBus bus to use, or null to go back to synchronous notification
+     */
+    public void setEventBus(AsyncEventBus eventBus) {
+        this.eventBus = eventBus;
+        for (SmartDevice device : devices.devices()) {
+            device.setEventBus(eventBus);
+        }
+    }
+
+    public AsyncEventBus getEventBus() {
+        return eventBus;
+    }
+
+    /**
+     * Adds the devices the persistence restored, then journals every change made through this controller
+     * and snapshots all devices in the background. Call it before adding devices; ones added earlier are
+     * only saved from the first snapshot on.
+     * @return number of devices restored
+     */
+    public int enablePersistence(DevicePersistence persistence) {
+        int restored = addDevices(persistence.getRestoredDevices());
+        this.persistence = persistence;
+        persistence.startSnapshots(devices::devices);
+        return restored;
+    }
+
+    /**
+     * @return where devices are saved, or null if they are kept in memory only
+     */
+    public DevicePersistence getPersistence() {
+        return persistence;
+    }
+
     public void clearAllDevices() {
-        devices.clear();
+        change(() -> {
+            readModel.clear();
+            for (SmartDevice device : devices.devices()) {
+                device.setEventBus(null);
+            }
+            devices.clear();
+            DevicePersistence store = persistence;
+            if (store != null) store.logCleared();
+            return null;
+        });
     }
 }
\ No newline at end of file
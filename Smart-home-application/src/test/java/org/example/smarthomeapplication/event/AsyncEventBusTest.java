@@ -0,0 +1,124 @@
+package org.example.smarthomeapplication.event;
+
+import org.example.smarthomeapplication.model.device.SmartLight;
+import org.example.smarthomeapplication.user.Observer;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AsyncEventBusTest {
+
+    @Test
+    void removedObserverIsReleased() throws InterruptedException {
+        AsyncEventBus bus = new AsyncEventBus(16, 4, OverflowPolicy.DROP_OLDEST, 1);
+        try {
+            SmartLight light = new SmartLight("Lamp");
+            light.setEventBus(bus);
+            RecordingObserver observer = new RecordingObserver();
+            light.addObserver(observer);
+            light.changeState("on");
+            assertNotNull(observer.messages.poll(5, TimeUnit.SECONDS));
+
+            light.removeObserver(observer);
+            assertFalse(bus.getAllStats().containsKey(observer));
+            light.changeState("off");
+            assertFalse(bus.getAllStats().containsKey(observer));
+        } finally {
+            bus.shutdown();
+        }
+    }
+
+    @Test
+    void observerOfAnotherDeviceKeepsItsQueue() throws InterruptedException {
+        AsyncEventBus bus = new AsyncEventBus(16, 4, OverflowPolicy.DROP_OLDEST, 1);
+        try {
+            SmartLight kitchen = new SmartLight("Kitchen");
+            SmartLight hall = new SmartLight("Hall");
+            kitchen.setEventBus(bus);
+            hall.setEventBus(bus);
+            RecordingObserver observer = new RecordingObserver();
+            kitchen.addObserver(observer);
+            hall.addObserver(observer);
+
+            kitchen.removeObserver(observer);
+            hall.changeState("on");
+            String message = observer.messages.poll(5, TimeUnit.SECONDS);
+            assertNotNull(message);
+            assertTrue(message.startsWith("Hall: "), message);
+            assertTrue(bus.getAllStats().containsKey(observer));
+        } finally {
+            bus.shutdown();
+        }
+    }
+
+    @Test
+    void eventsQueuedBeforeRemovalAreNotDelivered() throws InterruptedException {
+        AsyncEventBus bus = new AsyncEventBus(16, 4, OverflowPolicy.DROP_OLDEST, 1);
+        try {
+            // Holds the only worker, so the light's event waits in the observer's queue
+            CountDownLatch release = new CountDownLatch(1);
+            Observer gate = message -> {
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            };
+            bus.subscribe(gate);
+            bus.publish(gate, "hold");
+
+            SmartLight light = new SmartLight("Lamp");
+            light.setEventBus(bus);
+            RecordingObserver observer = new RecordingObserver();
+            light.addObserver(observer);
+            light.changeState("on");
+            light.removeObserver(observer);
+
+            RecordingObserver last = new RecordingObserver();
+            bus.subscribe(last);
+            release.countDown();
+            bus.publish(last, "done");
+            assertEquals("done", last.messages.poll(5, TimeUnit.SECONDS));
+            assertTrue(observer.messages.isEmpty());
+        } finally {
+            bus.shutdown();
+        }
+    }
+
+    @Test
+    void deliveryFailuresGoToTheErrorHandler() throws InterruptedException {
+        BlockingQueue<String> errors = new LinkedBlockingQueue<>();
+        AsyncEventBus bus = new AsyncEventBus(16, 4, OverflowPolicy.DROP_OLDEST, 1, errors::add);
+        try {
+            Observer failing = message -> {
+                throw new IllegalStateException("Display is gone");
+            };
+            bus.subscribe(failing);
+            bus.publishBatch(failing, List.of("a", "b"));
+
+            String error = errors.poll(5, TimeUnit.SECONDS);
+            assertNotNull(error);
+            assertTrue(error.contains("Display is gone"), error);
+        } finally {
+            bus.shutdown();
+        }
+    }
+
+    private static class RecordingObserver implements Observer {
+        final BlockingQueue<String> messages = new LinkedBlockingQueue<>();
+
+        @Override
+        public void update(String message) {
+            messages.add(message);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package org.example.smarthomeapplication.model.camera;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CapturePipelineTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void errorWhileCapturingFailsThePhoto() {
+        CapturePipeline pipeline = new CapturePipeline(CapturePipeline.DEFAULT_QUEUE_CAPACITY, 1, () -> {
+            throw new OutOfMemoryError("No room for the frame");
+        });
+        Path target = directory.resolve("photo.png");
+        CompletableFuture<Path> photo = pipeline.capture(target, false);
+
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> photo.get(10, TimeUnit.SECONDS));
+        assertInstanceOf(OutOfMemoryError.class, failure.getCause());
+        assertEquals(1, pipeline.getFailedCount());
+        assertFalse(Files.exists(target));
+        pipeline.shutdown();
+    }
+}
@@ -0,0 +1,125 @@
+package org.example.smarthomeapplication.model.camera;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FrameContainerTest {
+    private static final int SIZE = 8;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void reopenKeepsFramesAndTrimsUnusedMapping() throws IOException {
+        long[] offsets;
+        try (FrameContainer container = new FrameContainer(directory)) {
+            offsets = append(container, 3, 1000);
+        }
+        long segmentEnd = Files.size(segment()); // Still as long as the mapped region
+
+        try (FrameContainer container = new FrameContainer(directory)) {
+            assertEquals(3, container.size());
+            assertEquals(1002, container.timestampAt(2));
+            assertEquals(2, blue(container.read(2)));
+            assertEquals(offsets[2], frameOffset(2));
+        }
+        long trimmed = Files.size(segment());
+        assertTrue(trimmed < segmentEnd);
+        try (FrameContainer container = new FrameContainer(directory)) {
+            assertEquals(3, container.size());
+            assertEquals(trimmed, Files.size(segment()));
+        }
+    }
+
+    @Test
+    void openStopsAtFrameThatNeverReachedDisk() throws IOException {
+        FrameContainer crashed = new FrameContainer(directory);
+        long[] offsets = append(crashed, 3, 2000);
+        // Index entry written but the frame's pages weren't: they read back as zeros
+        zero(segment(), offsets[2], 64);
+
+        try (FrameContainer container = new FrameContainer(directory)) {
+            assertEquals(2, container.size());
+            assertEquals(offsets[2], Files.size(segment()));
+            assertEquals(2, container.append(container.encode(frame(9, 3000))));
+            assertEquals(9, blue(container.read(2)));
+        }
+    }
+
+    @Test
+    void openStopsAtFrameWithDamagedPixels() throws IOException {
+        FrameContainer crashed = new FrameContainer(directory);
+        long[] offsets = append(crashed, 4, 4000);
+        // Header made it to disk, part of the payload didn't
+        zero(segment(), offsets[2] + 32, 4);
+
+        try (FrameContainer container = new FrameContainer(directory)) {
+            assertEquals(2, container.size());
+            assertEquals(1, blue(container.read(1)));
+        }
+    }
+
+    @Test
+    void openStopsAtIndexEntryThatDoesNotFollowPreviousFrame() throws IOException {
+        FrameContainer crashed = new FrameContainer(directory);
+        append(crashed, 3, 5000);
+        // Entry for the second frame lost; the third one is then unreachable too
+        zero(directory.resolve(FrameContainer.INDEX_FILE), 2 * Long.BYTES + 16, 16);
+
+        try (FrameContainer container = new FrameContainer(directory)) {
+            assertEquals(1, container.size());
+        }
+    }
+
+    private long[] append(FrameContainer container, int frames, long firstTimestamp) throws IOException {
+        long[] offsets = new long[frames];
+        for (int i = 0; i < frames; i++) {
+            container.append(container.encode(frame(i, firstTimestamp + i)));
+            offsets[i] = frameOffset(i);
+        }
+        return offsets;
+    }
+
+    private long frameOffset(int frame) throws IOException {
+        ByteBuffer entry = ByteBuffer.allocate(Long.BYTES);
+        try (FileChannel index = FileChannel.open(directory.resolve(FrameContainer.INDEX_FILE), StandardOpenOption.READ)) {
+            index.read(entry, 2 * Long.BYTES + 16L * frame);
+        }
+        return entry.getLong(0);
+    }
+
+    private Path segment() {
+        return directory.resolve(FrameContainer.SEGMENT_FILE);
+    }
+
+    private static void zero(Path file, long position, int bytes) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(bytes), position);
+        }
+    }
+
+    private static CapturePipeline.Frame frame(int value, long timestamp) {
+        BufferedImage image = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < SIZE; y++) {
+            for (int x = 0; x < SIZE; x++) {
+                image.setRGB(x, y, (x * 31 + y * 17) << 8 | value);
+            }
+        }
+        return new CapturePipeline.Frame(image, timestamp);
+    }
+
+    private static int blue(BufferedImage image) {
+        return image.getRGB(SIZE - 1, SIZE - 1) & 0xFF;
+    }
+}
@@ -0,0 +1,74 @@
+package org.example.smarthomeapplication.model.camera;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PhotoIndexTest {
+    private static final long WATCH_TIMEOUT_MILLIS = 10_000;
+
+    @TempDir
+    Path root;
+
+    @Test
+    void watchesDirectoryCreatedAfterFirstUse() throws Exception {
+        Path directory = root.resolve("Porch");
+        List<String> errors = new ArrayList<>();
+        PhotoIndex index = new PhotoIndex(directory, errors::add);
+        try {
+            assertEquals(0, index.size()); // Loaded before the camera made its directory
+
+            Files.createDirectories(directory);
+            index.add(Files.write(directory.resolve("first.png"), new byte[10]));
+            assertEquals(1, index.size());
+
+            Files.write(directory.resolve("external.png"), new byte[20]);
+            assertTrue(eventually(() -> index.contains("external.png")));
+
+            Files.delete(directory.resolve("first.png"));
+            assertTrue(eventually(() -> !index.contains("first.png")));
+            assertEquals(20, index.getTotalBytes());
+            assertTrue(errors.isEmpty());
+        } finally {
+            index.close();
+        }
+    }
+
+    @Test
+    void firstAddPicksUpPhotosWrittenBeforeTheDirectoryWasWatched() throws IOException {
+        Path directory = root.resolve("Garden");
+        PhotoIndex index = new PhotoIndex(directory, message -> {
+        });
+        try {
+            assertEquals(0, index.size());
+            Files.createDirectories(directory);
+            Files.write(directory.resolve("copied.png"), new byte[5]);
+            index.add(Files.write(directory.resolve("taken.png"), new byte[5]));
+
+            assertTrue(index.contains("copied.png"));
+            assertTrue(index.contains("taken.png"));
+            assertFalse(index.contains("missing.png"));
+        } finally {
+            index.close();
+        }
+    }
+
+    private static boolean eventually(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + WATCH_TIMEOUT_MILLIS;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) return false;
+            Thread.sleep(20);
+        }
+        return true;
+    }
+}
@@ -0,0 +1,37 @@
+package org.example.smarthomeapplication.model.command;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class DeviceCommandParserTest {
+
+    @Test
+    void bareNumberIsTargetTemperature() {
+        assertEquals(new DeviceCommand.Target(22.5), DeviceCommand.parse("22.5°C"));
+        assertEquals(new DeviceCommand.Target(-3), DeviceCommand.parse(" -3 "));
+        assertEquals(new DeviceCommand.Target(18), DeviceCommand.parse("+18°C"));
+    }
+
+    @Test
+    void textThatIsNotPlainDecimalIsUnknown() {
+        for (String text : new String[]{"dance", "NaN", "Infinity", "-Infinity", "1e3", "0x1p3", "21d", "°C", "", "-", ".", "1-2", "2..5"}) {
+            assertEquals(new DeviceCommand.Unknown(text), DeviceCommand.parse(text), text);
+        }
+    }
+
+    @Test
+    void prefixedValuesStillParse() {
+        assertEquals(new DeviceCommand.Target(21.5), DeviceCommand.parse("target:21.5"));
+        assertEquals(new DeviceCommand.Brightness(80), DeviceCommand.parse("brightness:80"));
+        assertEquals(new DeviceCommand.Malformed(DeviceCommand.BRIGHTNESS), DeviceCommand.parse("brightness:lots"));
+    }
+
+    @Test
+    void targetThatIsNotPlainDecimalIsMalformed() {
+        for (String text : new String[]{"target:NaN", "target:Infinity", "target:-Infinity", "target:0x1p3", "target:21d", "target:"}) {
+            assertEquals(new DeviceCommand.Malformed(DeviceCommand.TARGET), DeviceCommand.parse(text), text);
+        }
+        assertEquals(new DeviceCommand.Target(-2), DeviceCommand.parse("target:-2"));
+    }
+}
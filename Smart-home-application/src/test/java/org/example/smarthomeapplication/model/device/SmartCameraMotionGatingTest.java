@@ -0,0 +1,106 @@
+package org.example.smarthomeapplication.model.device;
+
+import org.example.smarthomeapplication.model.camera.BurstCapture;
+import org.example.smarthomeapplication.model.camera.CapturePipeline;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SmartCameraMotionGatingTest {
+    private static final BufferedImage DARK = filled(Color.BLACK);
+    private static final BufferedImage BRIGHT = filled(Color.WHITE);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void gatingIsOnByDefault() {
+        assertTrue(new SmartCamera("Porch", directory, pipeline(() -> DARK)).isMotionGatingEnabled());
+    }
+
+    @Test
+    void unchangedRecordedFramesAreNeverWritten() {
+        SmartCamera camera = new SmartCamera("Porch", directory, pipeline(() -> DARK));
+        assertTrue(camera.setFrameStorage(true));
+        camera.changeState("recording"); // Keeps the first frame
+
+        for (int i = 0; i < 3; i++) {
+            assertNull(camera.recordFrameAsync().join());
+        }
+        assertEquals(1, camera.getRecordedFrameCount());
+        assertEquals(3, camera.getMotionDetector().getSkippedCount());
+        camera.setFrameStorage(false);
+    }
+
+    @Test
+    void changedRecordedFramesAreWritten() {
+        AtomicInteger frames = new AtomicInteger();
+        SmartCamera camera = new SmartCamera("Porch", directory,
+                pipeline(() -> frames.getAndIncrement() % 2 == 0 ? DARK : BRIGHT));
+        assertTrue(camera.setFrameStorage(true));
+        camera.changeState("recording");
+
+        assertNotNull(camera.recordFrameAsync().join());
+        assertNotNull(camera.recordFrameAsync().join());
+        assertEquals(3, camera.getRecordedFrameCount());
+        camera.setFrameStorage(false);
+    }
+
+    @Test
+    void burstWritesNoFileForUnchangedFrames() throws IOException {
+        SmartCamera camera = new SmartCamera("Porch", directory, pipeline(() -> DARK));
+        camera.changeState("recording"); // Takes one explicit photo
+
+        BurstCapture.BurstResult result = camera.takeBurstAsync(5, 30).join();
+        assertEquals(1, result.saved());
+        assertEquals(4, result.skipped());
+        assertEquals(2, photoFiles());
+    }
+
+    @Test
+    void everyFrameIsWrittenWithGatingOff() {
+        SmartCamera camera = new SmartCamera("Porch", directory, pipeline(() -> DARK));
+        camera.setMotionGating(false);
+        assertTrue(camera.setFrameStorage(true));
+        camera.changeState("recording");
+
+        for (int i = 0; i < 3; i++) {
+            assertNotNull(camera.recordFrameAsync().join());
+        }
+        assertEquals(4, camera.getRecordedFrameCount());
+        camera.setFrameStorage(false);
+    }
+
+    private long photoFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(Files::isRegularFile).count();
+        }
+    }
+
+    private static CapturePipeline pipeline(Supplier<BufferedImage> screen) {
+        return new CapturePipeline(CapturePipeline.DEFAULT_QUEUE_CAPACITY, 1, screen);
+    }
+
+    private static BufferedImage filled(Color color) {
+        BufferedImage image = new BufferedImage(128, 72, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2d = image.createGraphics();
+        g2d.setColor(color);
+        g2d.fillRect(0, 0, image.getWidth(), image.getHeight());
+        g2d.dispose();
+        return image;
+    }
+}
@@ -0,0 +1,64 @@
+package org.example.smarthomeapplication.model.device;
+
+import org.example.smarthomeapplication.model.voice.CommandHistory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SmartVoiceAssistantHistoryFileTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void plainNamesAreKept() {
+        assertEquals("Kitchen_speaker-2.log", SmartVoiceAssistant.historyFileName("Kitchen_speaker-2"));
+    }
+
+    @Test
+    void namesCannotLeaveTheFolderOrUseWindowsReservedCharacters() {
+        for (String name : List.of("../../etc/passwd", "..", "a/b\\c", "C:\\Users", "what?*", "<>|\"", "Living Room", "")) {
+            String fileName = SmartVoiceAssistant.historyFileName(name);
+            assertTrue(fileName.matches("[A-Za-z0-9_%-]*\\.log"), fileName);
+        }
+        assertEquals("%2E%2E%2F%2E%2E%2Fetc%2Fpasswd.log", SmartVoiceAssistant.historyFileName("../../etc/passwd"));
+    }
+
+    @Test
+    void differentNamesGetDifferentFiles() {
+        assertNotEquals(SmartVoiceAssistant.historyFileName("a b"), SmartVoiceAssistant.historyFileName("a%20b"));
+        assertNotEquals(SmartVoiceAssistant.historyFileName("K\u00fcche"), SmartVoiceAssistant.historyFileName("Kuche"));
+    }
+
+    @Test
+    void windowsDeviceNamesAreEscaped() {
+        assertEquals("%63on.log", SmartVoiceAssistant.historyFileName("con"));
+        assertEquals("%4EUL.log", SmartVoiceAssistant.historyFileName("NUL"));
+        assertEquals("CONSOLE.log", SmartVoiceAssistant.historyFileName("CONSOLE"));
+    }
+
+    @Test
+    void longNamesAreCutAndKeptApart() {
+        String longName = "\u00fc".repeat(200);
+        String fileName = SmartVoiceAssistant.historyFileName(longName + "1");
+        assertTrue(fileName.length() < 255, fileName);
+        assertTrue(fileName.matches("(%[0-9A-F]{2})+-[0-9A-F]{16}\\.log"), fileName);
+        assertNotEquals(fileName, SmartVoiceAssistant.historyFileName(longName + "2"));
+    }
+
+    @Test
+    void historyIsLoggedUnderTheDataDirectory() {
+        SmartVoiceAssistant assistant = new SmartVoiceAssistant("Living Room/..", directory);
+        CommandHistory history = assistant.getCommandHistory();
+        history.add("lights on");
+        history.close();
+
+        assertTrue(Files.isRegularFile(directory.resolve("voice_history").resolve("Living%20Room%2F%2E%2E.log")));
+    }
+}
@@ -0,0 +1,171 @@
+package org.example.smarthomeapplication.model.voice;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CommandHistoryTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void ringBufferKeepsNewestEntries() {
+        CommandHistory history = new CommandHistory(3);
+        for (int i = 1; i <= 5; i++) {
+            history.add("command " + i);
+        }
+
+        assertEquals(3, history.size());
+        assertEquals(List.of("command 5", "command 4", "command 3"), commands(history.page(0, 10)));
+        assertEquals(List.of("command 4"), commands(history.page(1, 1)));
+        assertEquals(List.of(), history.page(3, 10));
+    }
+
+    @Test
+    void timestampsAreStrictlyIncreasing() {
+        CommandHistory history = new CommandHistory(100);
+        for (int i = 0; i < 100; i++) {
+            history.add("c" + i);
+        }
+        List<CommandHistory.Entry> entries = history.page(0, 100);
+        for (int i = 1; i < entries.size(); i++) {
+            assertTrue(entries.get(i - 1).timestampNanos() > entries.get(i).timestampNanos());
+        }
+    }
+
+    @Test
+    void betweenFindsEntriesInRangeAcrossWrapAround() {
+        CommandHistory history = new CommandHistory(4);
+        CommandHistory.Entry[] added = new CommandHistory.Entry[7];
+        for (int i = 0; i < added.length; i++) {
+            added[i] = history.add("c" + i);
+        }
+
+        // Only c3 to c6 are still buffered
+        assertEquals(List.of("c4", "c5"),
+                commands(history.between(added[4].timestampNanos(), added[6].timestampNanos())));
+        assertEquals(List.of("c3", "c4", "c5", "c6"), commands(history.between(0, Long.MAX_VALUE)));
+        assertEquals(List.of(), history.between(added[6].timestampNanos() + 1, Long.MAX_VALUE));
+    }
+
+    @Test
+    void logRestoresEntriesWithEscapedCharacters() {
+        Path log = directory.resolve("assistant.log");
+        List<String> commands = List.of("plain", "two\nlines", "back\\slash", "tab\there", "\\n literally", "crlf\r\n", "");
+        CommandHistory history = new CommandHistory(10, log);
+        commands.forEach(history::add);
+        history.close();
+
+        CommandHistory restored = reopen(10, log);
+        assertEquals(commands.reversed(), commands(restored.page(0, 10)));
+    }
+
+    @Test
+    void logIsCompactedToBufferedEntries() throws IOException {
+        Path log = directory.resolve("assistant.log");
+        CommandHistory history = new CommandHistory(2, log);
+        for (int i = 0; i < 20; i++) {
+            history.add("c" + i);
+        }
+        history.close();
+
+        // Compaction starts once the log holds 4 capacities, so it never gets much longer than that
+        assertTrue(Files.readAllLines(log).size() <= 2 * 4);
+        assertEquals(List.of("c19", "c18"), commands(reopen(2, log).page(0, 10)));
+    }
+
+    @Test
+    void clearEmptiesTheLog() throws IOException {
+        Path log = directory.resolve("assistant.log");
+        CommandHistory history = new CommandHistory(5, log);
+        history.add("forget me");
+        history.clear();
+        history.add("keep me");
+        history.close();
+
+        assertEquals(1, Files.readAllLines(log).size());
+        assertEquals(List.of("keep me"), commands(reopen(5, log).page(0, 10)));
+    }
+
+    @Test
+    void tornLastLineIsDroppedBeforeAppending() throws IOException {
+        Path log = directory.resolve("assistant.log");
+        CommandHistory history = new CommandHistory(10, log);
+        history.add("first");
+        history.add("second");
+        history.close();
+        byte[] bytes = Files.readAllBytes(log);
+        Files.write(log, "123\thalf writ".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        CommandHistory restored = reopen(10, log);
+        assertEquals(2, restored.size());
+        assertEquals(bytes.length, Files.size(log));
+        restored.add("third");
+        restored.close();
+
+        assertEquals(List.of("third", "second", "first"), commands(reopen(10, log).page(0, 10)));
+    }
+
+    @Test
+    void lineWithBadChecksumIsSkipped() throws IOException {
+        Path log = directory.resolve("assistant.log");
+        CommandHistory history = new CommandHistory(10, log);
+        history.add("first");
+        history.add("second");
+        history.add("third");
+        history.close();
+        String text = Files.readString(log);
+        Files.writeString(log, text.replace("second", "secund"));
+
+        assertEquals(List.of("third", "first"), commands(reopen(10, log).page(0, 10)));
+    }
+
+    @Test
+    void commandsAddedWhileLoadingStayAfterLoadedOnes() {
+        Path log = directory.resolve("assistant.log");
+        CommandHistory history = new CommandHistory(10, log);
+        history.add("first");
+        history.add("second");
+        history.close();
+
+        CommandHistory restored = new CommandHistory(10, log);
+        restored.add("third"); // Starts loading without waiting for it
+        restored.load().join();
+        assertEquals(List.of("third", "second", "first"), commands(restored.page(0, 10)));
+        restored.close();
+
+        assertEquals(List.of("third", "second", "first"), commands(reopen(10, log).page(0, 10)));
+    }
+
+    @Test
+    void readsStartLoadingWithoutWaitingForIt() {
+        Path log = directory.resolve("assistant.log");
+        CommandHistory history = new CommandHistory(10, log);
+        history.add("first");
+        history.close();
+
+        CommandHistory restored = new CommandHistory(10, log);
+        assertTrue(restored.size() <= 1);
+        restored.load().join();
+        assertEquals(1, restored.size());
+    }
+
+    private static CommandHistory reopen(int capacity, Path log) {
+        CommandHistory history = new CommandHistory(capacity, log);
+        history.load().join();
+        return history;
+    }
+
+    private static List<String> commands(List<CommandHistory.Entry> entries) {
+        return entries.stream().map(CommandHistory.Entry::command).toList();
+    }
+}
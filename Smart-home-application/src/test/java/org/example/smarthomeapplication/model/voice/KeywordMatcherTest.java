@@ -0,0 +1,109 @@
+package org.example.smarthomeapplication.model.voice;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class KeywordMatcherTest {
+    private static final int INTENTS = 0;
+    private static final int ACTIONS = 1;
+
+    private final KeywordMatcher matcher = new KeywordMatcher.Builder(2)
+            .addAll(INTENTS, List.of("security", "temperature", "lights"))
+            .addAll(ACTIONS, List.of("disarm", "arm", "check"))
+            .build();
+
+    @Test
+    void earlierKeywordWinsWithinGroup() {
+        // "disarm" contains "arm"; it was added first, so it wins wherever the two appear
+        assertEquals("disarm", matcher.keyword(matcher.match("disarm security"), ACTIONS));
+        assertEquals("disarm", matcher.keyword(matcher.match("arm, no wait, disarm security"), ACTIONS));
+        assertEquals("arm", matcher.keyword(matcher.match("arm security"), ACTIONS));
+        assertEquals("arm", matcher.keyword(matcher.match("check... actually arm security"), ACTIONS));
+    }
+
+    @Test
+    void laterKeywordLosesEvenWhenLonger() {
+        KeywordMatcher armFirst = new KeywordMatcher.Builder(1).add(0, "arm").add(0, "disarm").build();
+        assertEquals("arm", armFirst.keyword(armFirst.match("disarm"), 0));
+    }
+
+    @Test
+    void groupsAreMatchedIndependently() {
+        long result = matcher.match("Please CHECK the Security system");
+        assertEquals("security", matcher.keyword(result, INTENTS));
+        assertEquals("check", matcher.keyword(result, ACTIONS));
+        assertEquals(0, KeywordMatcher.matched(result, INTENTS));
+        assertEquals(2, KeywordMatcher.matched(result, ACTIONS));
+    }
+
+    @Test
+    void keywordsMatchInsideWordsLikeStringContains() {
+        // No word boundaries: "alarm" holds "arm", "checkup" holds "check"
+        assertEquals("arm", matcher.keyword(matcher.match("the alarm"), ACTIONS));
+        assertEquals("check", matcher.keyword(matcher.match("checkup"), ACTIONS));
+        assertEquals("lights", matcher.keyword(matcher.match("spotlightson"), INTENTS));
+    }
+
+    @Test
+    void noMatchIsReportedPerGroup() {
+        long result = matcher.match("what time is it");
+        assertEquals(-1, KeywordMatcher.matched(result, INTENTS));
+        assertNull(matcher.keyword(result, ACTIONS));
+        assertEquals(-1, KeywordMatcher.matched(matcher.match(""), ACTIONS));
+    }
+
+    @Test
+    void overlappingKeywordsAreAllFound() {
+        KeywordMatcher overlapping = new KeywordMatcher.Builder(3)
+                .add(0, "hers").add(1, "she").add(2, "he")
+                .build();
+        long result = overlapping.match("ushers");
+        assertEquals("hers", overlapping.keyword(result, 0));
+        assertEquals("she", overlapping.keyword(result, 1));
+        assertEquals("he", overlapping.keyword(result, 2));
+    }
+
+    @Test
+    void nonAsciiAndCaseInsensitive() {
+        KeywordMatcher accents = new KeywordMatcher.Builder(1).add(0, "Température").add(0, "café").build();
+        assertEquals("température", accents.keyword(accents.match("quelle TEMPÉRATURE fait-il"), 0));
+        assertEquals("café", accents.keyword(accents.match("un CAFÉ"), 0));
+        assertEquals(-1, KeywordMatcher.matched(accents.match("cafe"), 0));
+    }
+
+    @Test
+    void repeatedKeywordsKeepTheirFirstPriority() {
+        KeywordMatcher repeated = new KeywordMatcher.Builder(1).add(0, "b").add(0, "a").add(0, "B").build();
+        assertEquals(List.of("b", "a"), repeated.getKeywords(0));
+        assertEquals("b", repeated.keyword(repeated.match("a b"), 0));
+    }
+
+    @Test
+    void rejectsUnsupportedGroupCounts() {
+        assertThrows(IllegalArgumentException.class, () -> new KeywordMatcher.Builder(0));
+        assertThrows(IllegalArgumentException.class, () -> new KeywordMatcher.Builder(KeywordMatcher.MAX_GROUPS + 1));
+    }
+
+    @Test
+    void agreesWithContainsOnRandomText() {
+        List<String> keywords = List.of("ab", "abc", "bca", "c", "aab", "cab");
+        KeywordMatcher random = new KeywordMatcher.Builder(1).addAll(0, keywords).build();
+        SplittableRandom generator = new SplittableRandom(3);
+        for (int round = 0; round < 10_000; round++) {
+            StringBuilder text = new StringBuilder();
+            for (int i = generator.nextInt(12); i > 0; i--) {
+                text.append("abcdAB".charAt(generator.nextInt(6)));
+            }
+            String lower = text.toString().toLowerCase(Locale.ROOT);
+            String expected = keywords.stream().filter(lower::contains).findFirst().orElse(null);
+            assertEquals(expected, random.keyword(random.match(text), 0), text.toString());
+        }
+    }
+}
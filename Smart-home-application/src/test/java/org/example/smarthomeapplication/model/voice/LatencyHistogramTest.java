@@ -0,0 +1,102 @@
+package org.example.smarthomeapplication.model.voice;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LatencyHistogramTest {
+
+    @Test
+    void emptyHistogramReportsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.valueAtPercentile(50));
+        assertEquals(0, histogram.getCount());
+        assertEquals(0.0, histogram.getMean());
+    }
+
+    @Test
+    void smallValuesAreExact() {
+        LatencyHistogram histogram = new LatencyHistogram(1_000_000, 6);
+        for (int value = 1; value <= 60; value++) {
+            histogram.record(value);
+        }
+        assertEquals(30, histogram.valueAtPercentile(50));
+        assertEquals(1, histogram.valueAtPercentile(0));
+        assertEquals(60, histogram.valueAtPercentile(100));
+        assertEquals(30.5, histogram.getMean());
+    }
+
+    @Test
+    void percentileIsTheNearestRankRoundedUpToItsBucket() {
+        LatencyHistogram histogram = new LatencyHistogram(1_000_000_000L, 6);
+        long[] values = new long[100_000];
+        SplittableRandom random = new SplittableRandom(11);
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextLong(1, 500_000_000L);
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+
+        for (double percentile : new double[]{1, 10, 50, 90, 99, 99.9, 99.99, 100}) {
+            long exact = values[(int) Math.ceil(percentile / 100 * values.length) - 1];
+            long reported = histogram.valueAtPercentile(percentile);
+            // Never below the real value, and above it by at most one sub-bucket: 1/64 of the value
+            assertTrue(reported >= exact, percentile + ": " + reported + " < " + exact);
+            assertTrue(reported - exact <= exact / 64, percentile + ": " + reported + " too far above " + exact);
+        }
+        assertEquals(values[values.length - 1], histogram.valueAtPercentile(100));
+    }
+
+    @Test
+    void percentileNeverExceedsMax() {
+        LatencyHistogram histogram = new LatencyHistogram(1_000_000_000L, 2);
+        histogram.record(1_000_001);
+        assertEquals(1_000_001, histogram.valueAtPercentile(99));
+    }
+
+    @Test
+    void valuesAboveTheHighestAreClamped() {
+        LatencyHistogram histogram = new LatencyHistogram(1000, 4);
+        histogram.record(5);
+        histogram.record(5000);
+        histogram.record(-7); // Counted as zero
+
+        assertEquals(1, histogram.getClampedCount());
+        assertEquals(1000, histogram.getMax());
+        assertEquals(1000, histogram.valueAtPercentile(100));
+        assertEquals(0, histogram.valueAtPercentile(0));
+        assertEquals(3, histogram.getCount());
+    }
+
+    @Test
+    void addMergesCountsAndRejectsOtherLayouts() {
+        LatencyHistogram first = new LatencyHistogram(1_000_000, 6);
+        LatencyHistogram second = new LatencyHistogram(1_000_000, 6);
+        for (int value = 1; value <= 50; value++) {
+            first.record(value);
+            second.record(value + 50);
+        }
+        first.add(second);
+
+        assertEquals(100, first.getCount());
+        assertEquals(100, first.getMax());
+        assertEquals(50, first.valueAtPercentile(50));
+        assertEquals(50.5, first.getMean());
+        assertThrows(IllegalArgumentException.class, () -> first.add(new LatencyHistogram(1_000_000, 5)));
+    }
+
+    @Test
+    void resetForgetsEverything() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(1_000_000);
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMax());
+        assertEquals(0, histogram.valueAtPercentile(99));
+    }
+}
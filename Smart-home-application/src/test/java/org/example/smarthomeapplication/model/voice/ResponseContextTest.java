@@ -0,0 +1,74 @@
+package org.example.smarthomeapplication.model.voice;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ResponseContextTest {
+    private static final Locale[] LOCALES = {
+            Locale.US, Locale.GERMANY, Locale.FRANCE, Locale.forLanguageTag("ar-EG"),
+            Locale.forLanguageTag("th-TH-u-nu-thai"), Locale.forLanguageTag("hi-IN-u-nu-deva")
+    };
+
+    private final Locale originalLocale = Locale.getDefault(Locale.Category.FORMAT);
+
+    @AfterEach
+    void restoreLocale() {
+        Locale.setDefault(Locale.Category.FORMAT, originalLocale);
+    }
+
+    @Test
+    void matchesStringFormatOnEdgeCases() {
+        double[] values = {0.0, -0.0, -0.04, 0.04, 0.05, -0.05, 0.15, 0.25, 0.35, 0.45, 1.05, 4.35, 2.675, 9.95,
+                99.95, -99.95, 21.5, 1e13 + 0.05, 999_999_999_999.95, 1e12, 8.539716493358034E13, 1e15 + 0.5, 1e300, Double.MIN_VALUE,
+                Double.MAX_VALUE, -Double.MAX_VALUE, Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY};
+        for (Locale locale : LOCALES) {
+            Locale.setDefault(Locale.Category.FORMAT, locale);
+            for (double value : values) {
+                assertFormattedLikeStringFormat(value);
+            }
+        }
+    }
+
+    @Test
+    void matchesStringFormatOnHalfwayValues() {
+        Locale.setDefault(Locale.Category.FORMAT, Locale.US);
+        // Every value ending in 5 in the second decimal, where rounding direction matters
+        for (int i = -200_000; i <= 200_000; i++) {
+            assertFormattedLikeStringFormat(i / 100.0 + 0.005 * Integer.signum(i));
+            assertFormattedLikeStringFormat((2 * i + 1) / 20.0);
+            assertFormattedLikeStringFormat(i / 1000.0);
+        }
+    }
+
+    @Test
+    void matchesStringFormatOnRandomValues() {
+        SplittableRandom random = new SplittableRandom(7);
+        for (Locale locale : LOCALES) {
+            Locale.setDefault(Locale.Category.FORMAT, locale);
+            for (int i = 0; i < 20_000; i++) {
+                assertFormattedLikeStringFormat(random.nextDouble(-200, 200));
+                assertFormattedLikeStringFormat(Double.longBitsToDouble(random.nextLong()));
+                assertFormattedLikeStringFormat(Math.round(random.nextDouble(-1e6, 1e6) * 100) / 100.0);
+            }
+        }
+    }
+
+    @Test
+    void unsetPlaceholderShowsItsName() {
+        StringBuilder out = new StringBuilder();
+        ResponseContext.forThisThread().appendTo(Placeholder.TEMPERATURE, out);
+        assertEquals("{{" + Placeholder.TEMPERATURE.getTemplateName() + "}}", out.toString());
+    }
+
+    private static void assertFormattedLikeStringFormat(double value) {
+        StringBuilder out = new StringBuilder();
+        ResponseContext.forThisThread().set(Placeholder.TEMPERATURE, value).appendTo(Placeholder.TEMPERATURE, out);
+        assertEquals(String.format("%.1f", value), out.toString(),
+                "value " + value + " in " + Locale.getDefault(Locale.Category.FORMAT));
+    }
+}
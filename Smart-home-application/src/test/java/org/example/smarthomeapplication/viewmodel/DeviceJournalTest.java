@@ -0,0 +1,174 @@
+package org.example.smarthomeapplication.viewmodel;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DeviceJournalTest {
+    private static final byte TYPE = 7;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void replaysEveryRecordInOrder() throws IOException {
+        try (DeviceJournal journal = new DeviceJournal(directory, 1)) {
+            for (int i = 1; i <= 5; i++) {
+                journal.append(TYPE, payload("record " + i));
+            }
+            assertTrue(journal.sync());
+        }
+
+        List<String> records = new ArrayList<>();
+        long last = replay(0, records);
+
+        assertEquals(5, last);
+        assertEquals(List.of("record 1", "record 2", "record 3", "record 4", "record 5"), records);
+    }
+
+    @Test
+    void replayStopsAtTornTailRecord() throws IOException {
+        try (DeviceJournal journal = new DeviceJournal(directory, 1)) {
+            journal.append(TYPE, payload("first"));
+            journal.append(TYPE, payload("second"));
+            journal.append(TYPE, payload("third"));
+        }
+        Path segment = onlySegment();
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3); // Crash in the middle of writing "third"
+        }
+
+        List<String> records = new ArrayList<>();
+        long last = replay(0, records);
+
+        assertEquals(2, last);
+        assertEquals(List.of("first", "second"), records);
+
+        // Writing resumes after the last whole record, and the torn one stays ignored
+        try (DeviceJournal journal = new DeviceJournal(directory, last + 1)) {
+            journal.append(TYPE, payload("after restart"));
+        }
+        records.clear();
+        assertEquals(3, replay(0, records));
+        assertEquals(List.of("first", "second", "after restart"), records);
+    }
+
+    @Test
+    void replayStopsAtRecordWithBadChecksum() throws IOException {
+        try (DeviceJournal journal = new DeviceJournal(directory, 1)) {
+            journal.append(TYPE, payload("good"));
+            journal.append(TYPE, payload("flipped"));
+        }
+        Path segment = onlySegment();
+        byte[] bytes = Files.readAllBytes(segment);
+        bytes[bytes.length - 1] ^= 0x20;
+        Files.write(segment, bytes);
+
+        List<String> records = new ArrayList<>();
+        assertEquals(1, replay(0, records));
+        assertEquals(List.of("good"), records);
+    }
+
+    @Test
+    void replaySkipsRecordsCoveredBySnapshot() throws IOException {
+        try (DeviceJournal journal = new DeviceJournal(directory, 1)) {
+            for (int i = 1; i <= 4; i++) {
+                journal.append(TYPE, payload("record " + i));
+            }
+        }
+
+        List<String> records = new ArrayList<>();
+        assertEquals(4, replay(2, records));
+        assertEquals(List.of("record 3", "record 4"), records);
+    }
+
+    @Test
+    void deleteSegmentsKeepsSegmentHoldingRecordAfterSnapshot() throws IOException {
+        try (DeviceJournal journal = new DeviceJournal(directory, 1)) {
+            appendAndRoll(journal, 1, 3);     // segment starting at 1 holds 1-3
+            appendAndRoll(journal, 4, 6);     // segment starting at 4 holds 4-6
+            journal.append(TYPE, payload("record 7")); // segment starting at 7
+            assertTrue(journal.sync());
+
+            // A snapshot up to 4 still needs record 5, which is in the segment starting at 4
+            journal.deleteSegmentsUpTo(4);
+            assertEquals(List.of(4L, 7L), segmentStarts());
+
+            List<String> records = new ArrayList<>();
+            replay(4, records);
+            assertEquals(List.of("record 5", "record 6", "record 7"), records);
+
+            // Once the snapshot covers 6, that segment holds nothing needed
+            journal.deleteSegmentsUpTo(6);
+            assertEquals(List.of(7L), segmentStarts());
+        }
+    }
+
+    @Test
+    void deleteSegmentsNeverDeletesNewestSegment() throws IOException {
+        try (DeviceJournal journal = new DeviceJournal(directory, 1)) {
+            journal.append(TYPE, payload("record 1"));
+            assertTrue(journal.sync());
+            journal.deleteSegmentsUpTo(100);
+        }
+        assertEquals(List.of(1L), segmentStarts());
+    }
+
+    @Test
+    void appendAfterCloseIsRejected() throws IOException {
+        DeviceJournal journal = new DeviceJournal(directory, 1);
+        journal.close();
+        assertEquals(-1, journal.append(TYPE, payload("late")));
+        assertFalse(replay(0, new ArrayList<>()) > 0);
+    }
+
+    private void appendAndRoll(DeviceJournal journal, int from, int to) throws IOException {
+        for (int i = from; i <= to; i++) {
+            journal.append(TYPE, payload("record " + i));
+        }
+        assertTrue(journal.sync());
+        journal.roll();
+    }
+
+    private long replay(long afterSequence, List<String> records) throws IOException {
+        return DeviceJournal.replay(directory, afterSequence, (type, payload) -> {
+            assertEquals(TYPE, type);
+            records.add(StandardCharsets.UTF_8.decode(payload).toString());
+        });
+    }
+
+    private List<Long> segmentStarts() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.startsWith("journal-"))
+                    .map(name -> Long.parseLong(name.substring("journal-".length(), name.length() - ".wal".length())))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private Path onlySegment() throws IOException {
+        List<Long> starts = segmentStarts();
+        assertEquals(1, starts.size());
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().startsWith("journal-")).findFirst().orElseThrow();
+        }
+    }
+
+    private static byte[] payload(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,167 @@
+package org.example.smarthomeapplication.viewmodel;
+
+import org.example.smarthomeapplication.model.command.DeviceCommand;
+import org.example.smarthomeapplication.model.device.SmartDevice;
+import org.example.smarthomeapplication.model.device.SmartLight;
+import org.example.smarthomeapplication.model.device.SmartThermostat;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DevicePersistenceTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void restoresDevicesAndTheirState() throws IOException {
+        try (DevicePersistence persistence = DevicePersistence.open(directory)) {
+            SmartHomeController controller = new SmartHomeController();
+            assertEquals(0, controller.enablePersistence(persistence));
+            controller.addDevice("light", "Kitchen");
+            controller.executeCommand("Kitchen", new DeviceCommand.On());
+            controller.executeCommand("Kitchen", new DeviceCommand.Brightness(40));
+        }
+
+        SmartHomeController restored = reopen();
+        SmartLight light = assertInstanceOf(SmartLight.class, restored.getDevice("Kitchen"));
+        assertTrue(light.isOn());
+        assertEquals(40, light.getBrightness());
+    }
+
+    @Test
+    void replaysRemoveAndReAddAfterSnapshot() throws IOException {
+        try (DevicePersistence persistence = DevicePersistence.open(directory)) {
+            SmartHomeController controller = new SmartHomeController();
+            controller.enablePersistence(persistence);
+            controller.addDevice("light", "Hall");
+            controller.addDevice("light", "Porch");
+            assertTrue(persistence.snapshot(controller.getDevices()));
+
+            // Only the journal knows about these
+            controller.removeDevice("Hall");
+            controller.addDevice("thermostat", "Hall");
+            controller.executeCommand("Hall", new DeviceCommand.Target(24.5));
+            controller.removeDevice("Porch");
+        }
+
+        SmartHomeController restored = reopen();
+        assertEquals(1, restored.getDeviceCount());
+        SmartThermostat thermostat = assertInstanceOf(SmartThermostat.class, restored.getDevice("Hall"));
+        assertEquals(24.5, thermostat.getTargetTemperature());
+        assertNull(restored.getDevice("Porch"));
+    }
+
+    @Test
+    void snapshotAfterJournalReplayKeepsLaterChanges() throws IOException {
+        try (DevicePersistence persistence = DevicePersistence.open(directory)) {
+            SmartHomeController controller = new SmartHomeController();
+            controller.enablePersistence(persistence);
+            controller.addDevice("light", "Desk");
+        }
+        try (DevicePersistence persistence = DevicePersistence.open(directory)) {
+            SmartHomeController controller = new SmartHomeController();
+            assertEquals(1, controller.enablePersistence(persistence));
+            assertTrue(persistence.snapshot(controller.getDevices()));
+            controller.removeDevice("Desk");
+            controller.addDevice("light", "Desk");
+            controller.executeCommand("Desk", new DeviceCommand.Color("blue"));
+        }
+
+        SmartLight light = assertInstanceOf(SmartLight.class, reopen().getDevice("Desk"));
+        assertEquals("blue", light.getColor());
+    }
+
+    @Test
+    void synchronousChangeIsOnDiskWhenItReturns() throws IOException {
+        try (DevicePersistence persistence = DevicePersistence.open(directory)) {
+            persistence.setSynchronous(true);
+            SmartHomeController controller = new SmartHomeController();
+            controller.enablePersistence(persistence);
+            controller.addDevice("light", "Garage");
+
+            // Read the journal while it is still open
+            assertEquals(1, DeviceJournal.replay(directory, 0, (type, payload) -> { }));
+        }
+    }
+
+    @Test
+    void restoringCreatesNoFilesForDevices() throws IOException {
+        try (DevicePersistence persistence = DevicePersistence.open(directory)) {
+            SmartHomeController controller = new SmartHomeController();
+            controller.enablePersistence(persistence);
+            controller.addDevice("camera", "Door");
+            controller.addDevice("voice assistant", "Speaker");
+        }
+        Path workingDirectory = Path.of("").toAbsolutePath();
+        long before = countFiles(workingDirectory);
+
+        SmartHomeController restored = reopen();
+
+        assertEquals(2, restored.getDeviceCount());
+        assertEquals(before, countFiles(workingDirectory));
+    }
+
+    @Test
+    void restoresLargeRegistryAndSnapshotsAgain() throws IOException {
+        int count = 100_000;
+        List<SmartDevice> devices = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            SmartLight light = new SmartLight("light-" + i);
+            light.restoreState(i % 2 == 0, i % 101, "white");
+            devices.add(light);
+        }
+        try (DevicePersistence persistence = DevicePersistence.open(directory)) {
+            assertTrue(persistence.snapshot(devices));
+        }
+
+        try (DevicePersistence persistence = DevicePersistence.open(directory)) {
+            SmartHomeController controller = new SmartHomeController(count);
+            assertEquals(count, controller.enablePersistence(persistence));
+            SmartLight light = assertInstanceOf(SmartLight.class, controller.getDevice("light-76543"));
+            assertFalse(light.isOn());
+            assertEquals(76543 % 101, light.getBrightness());
+
+            // Replacing the snapshot that was just restored from must work
+            controller.executeCommand("light-76543", new DeviceCommand.On());
+            assertTrue(persistence.snapshot(controller.getDevices()));
+        }
+        assertTrue(assertInstanceOf(SmartLight.class, reopen().getDevice("light-76543")).isOn());
+    }
+
+    @Test
+    void openingRejectsNonPositiveInterval() {
+        IllegalArgumentException error = assertThrows(
+                IllegalArgumentException.class, () -> DevicePersistence.open(directory, 0));
+        assertFalse(error.getMessage().isEmpty());
+    }
+
+    private SmartHomeController reopen() throws IOException {
+        SmartHomeController controller = new SmartHomeController();
+        try (DevicePersistence persistence = DevicePersistence.open(directory)) {
+            controller.enablePersistence(persistence);
+        }
+        for (SmartDevice device : controller.getDevices()) {
+            assertEquals(device, controller.getDevice(device.getDeviceName()));
+        }
+        return controller;
+    }
+
+    private static long countFiles(Path root) throws IOException {
+        try (Stream<Path> files = Files.walk(root)) {
+            return files.count();
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package org.example.smarthomeapplication.viewmodel;
+
+import org.example.smarthomeapplication.event.AsyncEventBus;
+import org.example.smarthomeapplication.event.OverflowPolicy;
+import org.example.smarthomeapplication.model.command.DeviceCommand;
+import org.example.smarthomeapplication.model.device.SmartDevice;
+import org.example.smarthomeapplication.model.device.SmartLight;
+import org.example.smarthomeapplication.user.Observer;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SmartHomeControllerBatchTest {
+
+    @Test
+    void failedCommandReportsHowFarTheBatchGot() {
+        SmartHomeController controller = new SmartHomeController();
+        FailingDevice device = new FailingDevice("Plug");
+        controller.addDevices(List.of(device));
+
+        Map<String, BatchResult> results = controller.changeDeviceStates(List.of(
+                new CommandForDevice("Plug", new DeviceCommand.On()),
+                new CommandForDevice("Plug", new DeviceCommand.Unknown("dance")),
+                new CommandForDevice("Plug", new DeviceCommand.Voice("fail")),
+                new CommandForDevice("Plug", new DeviceCommand.Off()),
+                new CommandForDevice("Plug", new DeviceCommand.On())));
+
+        BatchResult result = results.get("Plug");
+        assertEquals(1, result.executed());
+        assertEquals(1, result.unsupported());
+        assertEquals(3, result.skipped());
+        assertEquals("fail", result.error());
+        assertFalse(result.isSuccess());
+        assertEquals(List.of("on"), device.applied);
+    }
+
+    @Test
+    void completedBatchSkipsNothing() {
+        SmartHomeController controller = new SmartHomeController();
+        controller.addDevices(List.of(new FailingDevice("Plug")));
+
+        BatchResult result = controller.changeDeviceStates(List.of(
+                new CommandForDevice("Plug", new DeviceCommand.On()),
+                new CommandForDevice("Plug", new DeviceCommand.Off()))).get("Plug");
+
+        assertEquals(2, result.executed());
+        assertEquals(0, result.skipped());
+        assertTrue(result.isSuccess());
+    }
+
+    @Test
+    void disconnectedDeviceSkipsTheWholeBatch() {
+        SmartHomeController controller = new SmartHomeController();
+        SmartLight lamp = new SmartLight("Lamp");
+        FailingDevice plug = new FailingDevice("Plug");
+        controller.addDevices(List.of(lamp, plug));
+        lamp.setActive(false);
+        plug.setActive(false);
+
+        Map<String, BatchResult> results = controller.changeDeviceStates(List.of(
+                new CommandForDevice("Lamp", new DeviceCommand.On()),
+                new CommandForDevice("Lamp", DeviceCommand.brightness(40)),
+                new CommandForDevice("Plug", new DeviceCommand.On())));
+
+        BatchResult lampResult = results.get("Lamp");
+        assertEquals(0, lampResult.executed());
+        assertEquals(2, lampResult.skipped());
+        assertEquals("Device is disconnected", lampResult.error());
+        assertFalse(lampResult.isSuccess());
+        assertEquals(100, lamp.getBrightness());
+        assertEquals(1, results.get("Plug").skipped());
+        assertTrue(plug.applied.isEmpty());
+    }
+
+    @Test
+    void batchReachesBusObserverInOneCall() throws InterruptedException {
+        AsyncEventBus bus = new AsyncEventBus(16, 2, OverflowPolicy.DROP_OLDEST, 1);
+        try {
+            SmartHomeController controller = new SmartHomeController();
+            FailingDevice device = new FailingDevice("Plug");
+            controller.addDevices(List.of(device));
+            controller.setEventBus(bus);
+            RecordingObserver observer = new RecordingObserver(1);
+            device.addObserver(observer);
+
+            controller.changeDeviceStates(List.of(
+                    new CommandForDevice("Plug", new DeviceCommand.On()),
+                    new CommandForDevice("Plug", new DeviceCommand.Off()),
+                    new CommandForDevice("Plug", new DeviceCommand.On())));
+
+            assertTrue(observer.delivered.await(5, TimeUnit.SECONDS));
+            // More messages than the bus's drain size, still a single call
+            assertEquals(List.of(List.of("Plug: on", "Plug: off", "Plug: on")), observer.batches);
+            assertTrue(observer.threadName.startsWith("event-bus-"));
+        } finally {
+            bus.shutdown();
+        }
+    }
+
+    private static class FailingDevice extends SmartDevice {
+        final List<String> applied = new ArrayList<>();
+
+        FailingDevice(String name) {
+            super(name);
+        }
+
+        @Override
+        public boolean execute(DeviceCommand command) {
+            switch (command) {
+                case DeviceCommand.On on -> applied.add("on");
+                case DeviceCommand.Off off -> applied.add("off");
+                case DeviceCommand.Voice voice -> throw new IllegalStateException(voice.text());
+                default -> {
+                    return false;
+                }
+            }
+            notifyObservers(applied.getLast());
+            return true;
+        }
+    }
+
+    private static class RecordingObserver implements Observer {
+        final List<List<String>> batches = new ArrayList<>();
+        volatile String threadName;
+        final CountDownLatch delivered;
+
+        RecordingObserver(int expectedBatches) {
+            this.delivered = new CountDownLatch(expectedBatches);
+        }
+
+        @Override
+        public void update(String message) {
+            updateBatch(List.of(message));
+        }
+
+        @Override
+        public synchronized void updateBatch(List<String> messages) {
+            batches.add(List.copyOf(messages));
+            threadName = Thread.currentThread().getName();
+            delivered.countDown();
+        }
+    }
+}